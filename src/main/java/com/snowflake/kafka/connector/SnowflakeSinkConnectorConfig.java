@@ -73,6 +73,10 @@ public class SnowflakeSinkConnectorConfig {
   public static final String SNOWFLAKE_ROLE = Utils.SF_ROLE;
   public static final String ENABLE_SCHEMATIZATION_CONFIG = "snowflake.enable.schematization";
   public static final String ENABLE_SCHEMATIZATION_DEFAULT = "false";
+  // Insert rows in batch and only re-insert rows which needed schema evolution
+  public static final String ENABLE_SCHEMA_EVOLUTION_BATCH_INSERT_CONFIG =
+      "snowflake.enable.schema.evolution.batch.insert";
+  public static final String ENABLE_SCHEMA_EVOLUTION_BATCH_INSERT_DEFAULT = "false";
 
   // Proxy Info
   private static final String PROXY_INFO = "Proxy Info";
@@ -161,6 +165,136 @@ public class SnowflakeSinkConnectorConfig {
       "Whether to optimize the streaming client to reduce cost. Note that this may affect"
           + " throughput or latency and can only be set if Streaming Snowpipe is enabled";
 
+  public static final String ENABLE_STREAMING_PIPELINED_INSERT_CONFIG =
+      "enable.streaming.pipelined.insert";
+  public static final String ENABLE_STREAMING_PIPELINED_INSERT_DISPLAY =
+      "Enable pipelined insertRows for streaming channels";
+  public static final boolean ENABLE_STREAMING_PIPELINED_INSERT_DEFAULT = false;
+  public static final String ENABLE_STREAMING_PIPELINED_INSERT_DOC =
+      "Whether to hand buffered rows of a streaming channel to a background flusher instead of"
+          + " calling insertRows on the task thread. Conversion of the next batch then overlaps"
+          + " with insertion of the previous one. Can only be set if Streaming Snowpipe is enabled";
+
+  public static final String STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_CONFIG =
+      "streaming.pipelined.insert.max.in.flight.buffers";
+  public static final String STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_DISPLAY =
+      "Max in flight buffers per streaming channel";
+  public static final int STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_DEFAULT = 2;
+  public static final String STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_DOC =
+      "Number of buffers per streaming channel which can wait for insertRows when pipelined"
+          + " insert is enabled. Put blocks once this number is reached.";
+
+  public static final String STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG =
+      "streaming.committed.offset.poll.interval.ms";
+  public static final String STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_DISPLAY =
+      "Committed offset poll interval (ms)";
+  public static final int STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_DEFAULT = 0;
+  public static final String STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_DOC =
+      "Interval at which committed offset tokens of all streaming channels of a task are fetched"
+          + " from Snowflake in background. PreCommit then returns the cached offsets instead of"
+          + " fetching them one partition at a time. 0 disables background polling. Can only be"
+          + " set if Streaming Snowpipe is enabled";
+
+  public static final String SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_CONFIG =
+      "snowpipe.max.in.flight.uploads.per.partition";
+  public static final String SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_DISPLAY =
+      "Max in flight stage uploads per partition";
+  public static final int SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_DEFAULT = 0;
+  public static final String SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_DOC =
+      "Number of files per partition which can be uploaded to the internal stage in background"
+          + " while the task keeps buffering records. Files are still ingested by Snowpipe in"
+          + " offset order. 0 uploads files synchronously on the task thread. Only used if"
+          + " Snowpipe is enabled";
+
+  public static final String SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_TASK_CONFIG =
+      "snowpipe.max.in.flight.uploads.per.task";
+  public static final String SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_TASK_DISPLAY =
+      "Max in flight stage uploads per task";
+  public static final int SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_TASK_DEFAULT = 8;
+  public static final String SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_TASK_DOC =
+      "Number of files which can be uploaded to the internal stage at the same time by all"
+          + " partitions of a task when background uploads are enabled with "
+          + SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_CONFIG
+          + ". Put blocks once this number is reached.";
+
+  public static final String SNOWPIPE_FILE_SIZE_TARGET_COMPRESSED_BYTES_CONFIG =
+      "snowpipe.file.size.target.compressed.bytes";
+  public static final String SNOWPIPE_FILE_SIZE_TARGET_COMPRESSED_BYTES_DISPLAY =
+      "Target compressed size of stage files";
+  public static final long SNOWPIPE_FILE_SIZE_TARGET_COMPRESSED_BYTES_DEFAULT = 0;
+  public static final String SNOWPIPE_FILE_SIZE_TARGET_COMPRESSED_BYTES_DOC =
+      "Size in bytes of the compressed files uploaded to the internal stage. When set, the buffer"
+          + " of a partition is flushed once its compressed size reaches this value instead of"
+          + " when "
+          + BUFFER_SIZE_BYTES
+          + " of uncompressed records is reached, so that file sizes do not depend on how"
+          + " compressible the data is. "
+          + BUFFER_COUNT_RECORDS
+          + " and "
+          + BUFFER_FLUSH_TIME_SEC
+          + " still apply. 0 disables it. Only used if Snowpipe is enabled";
+
+  public static final String SNOWPIPE_SPILL_THRESHOLD_BYTES_CONFIG =
+      "snowpipe.spill.threshold.bytes";
+  public static final String SNOWPIPE_SPILL_THRESHOLD_BYTES_DISPLAY =
+      "Buffer size kept in memory before spilling to disk";
+  public static final long SNOWPIPE_SPILL_THRESHOLD_BYTES_DEFAULT = 0;
+  public static final String SNOWPIPE_SPILL_THRESHOLD_BYTES_DOC =
+      "Compressed size in bytes of the buffer of a partition which is kept in memory. Once it is"
+          + " reached, the buffered data is moved to a temporary file, where the following"
+          + " records are appended, and the file is uploaded from disk. 0 keeps buffers in"
+          + " memory. Only used if Snowpipe is enabled";
+
+  public static final String SNOWPIPE_SPILL_DIRECTORY_CONFIG = "snowpipe.spill.directory";
+  public static final String SNOWPIPE_SPILL_DIRECTORY_DISPLAY = "Spill directory";
+  public static final String SNOWPIPE_SPILL_DIRECTORY_DEFAULT = "";
+  public static final String SNOWPIPE_SPILL_DIRECTORY_DOC =
+      "Local directory of the temporary files of buffers spilled to disk, see "
+          + SNOWPIPE_SPILL_THRESHOLD_BYTES_CONFIG
+          + ". Each task uses its own sub directory, in which the files left by a previous run of"
+          + " the task are deleted when it starts. Defaults to the system temporary directory";
+
+  public static final String PARTITION_OPEN_PARALLELISM_CONFIG = "partition.open.parallelism";
+  public static final String PARTITION_OPEN_PARALLELISM_DISPLAY = "Partition open parallelism";
+  public static final int PARTITION_OPEN_PARALLELISM_DEFAULT = 1;
+  public static final String PARTITION_OPEN_PARALLELISM_DOC =
+      "Number of partitions assigned to a task which are opened at the same time when the task"
+          + " starts or after a rebalance. Tables, stages, pipes and streaming channels are then"
+          + " checked and created in parallel, each table only once for all its partitions. 1"
+          + " opens partitions one at a time";
+
+  public static final String METADATA_CACHE_TTL_MS_CONFIG = "metadata.cache.ttl.ms";
+  public static final String METADATA_CACHE_TTL_MS_DISPLAY = "Metadata cache TTL (ms)";
+  public static final long METADATA_CACHE_TTL_MS_DEFAULT = 0;
+  public static final String METADATA_CACHE_TTL_MS_DOC =
+      "Time during which a task reuses the result of a table, stage or pipe existence or"
+          + " compatibility check instead of querying Snowflake again, so that partitions sharing"
+          + " a table are checked once. Results are invalidated when the connector creates, alters"
+          + " or drops the object, changes made by others are seen once they expire. 0 disables"
+          + " the cache";
+
+  public static final String BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_CONFIG =
+      "buffer.memory.limit.bytes.per.task";
+  public static final String BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_DISPLAY =
+      "Buffer memory limit per task (bytes)";
+  public static final long BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_DEFAULT = 0;
+  public static final String BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_DOC =
+      "Bytes which can be held in memory by the buffers of all partitions of a task, on top of "
+          + BUFFER_SIZE_BYTES
+          + " which applies to each partition. Once exceeded, the largest buffers are flushed"
+          + " right away. Partitions buffering more than their share are paused once 80% of the"
+          + " limit is used and resumed once the usage is under 50%. 0 disables the limit";
+
+  public static final String PARTITION_INSERT_PARALLELISM_CONFIG = "partition.insert.parallelism";
+  public static final String PARTITION_INSERT_PARALLELISM_DISPLAY = "Partition insert parallelism";
+  public static final int PARTITION_INSERT_PARALLELISM_DEFAULT = 1;
+  public static final String PARTITION_INSERT_PARALLELISM_DOC =
+      "Number of partitions whose records are converted and buffered at the same time in each put"
+          + " call of a task. The records of a put are split by partition and the records of a"
+          + " partition are always processed in order on one thread. Buffers reaching their"
+          + " threshold are also flushed on these threads. 1 processes all records on the task"
+          + " thread";
+
   /**
    * Used to serialize the incoming records to kafka connector. Note: Converter code is invoked
    * before actually sending records to Kafka connector.
@@ -526,7 +660,137 @@ public class SnowflakeSinkConnectorConfig {
             CONNECTOR_CONFIG,
             7,
             ConfigDef.Width.NONE,
-            ENABLE_STREAMING_CLIENT_OPTIMIZATION_DISPLAY);
+            ENABLE_STREAMING_CLIENT_OPTIMIZATION_DISPLAY)
+        .define(
+            ENABLE_STREAMING_PIPELINED_INSERT_CONFIG,
+            Type.BOOLEAN,
+            ENABLE_STREAMING_PIPELINED_INSERT_DEFAULT,
+            Importance.LOW,
+            ENABLE_STREAMING_PIPELINED_INSERT_DOC,
+            CONNECTOR_CONFIG,
+            8,
+            ConfigDef.Width.NONE,
+            ENABLE_STREAMING_PIPELINED_INSERT_DISPLAY)
+        .define(
+            STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_CONFIG,
+            Type.INT,
+            STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_DEFAULT,
+            ConfigDef.Range.atLeast(1),
+            Importance.LOW,
+            STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_DOC,
+            CONNECTOR_CONFIG,
+            9,
+            ConfigDef.Width.NONE,
+            STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_DISPLAY)
+        .define(
+            STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG,
+            Type.INT,
+            STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_DEFAULT,
+            ConfigDef.Range.atLeast(0),
+            Importance.LOW,
+            STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_DOC,
+            CONNECTOR_CONFIG,
+            10,
+            ConfigDef.Width.NONE,
+            STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_DISPLAY)
+        .define(
+            SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_CONFIG,
+            Type.INT,
+            SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_DEFAULT,
+            ConfigDef.Range.atLeast(0),
+            Importance.LOW,
+            SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_DOC,
+            CONNECTOR_CONFIG,
+            11,
+            ConfigDef.Width.NONE,
+            SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_DISPLAY)
+        .define(
+            SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_TASK_CONFIG,
+            Type.INT,
+            SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_TASK_DEFAULT,
+            ConfigDef.Range.atLeast(1),
+            Importance.LOW,
+            SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_TASK_DOC,
+            CONNECTOR_CONFIG,
+            12,
+            ConfigDef.Width.NONE,
+            SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_TASK_DISPLAY)
+        .define(
+            SNOWPIPE_FILE_SIZE_TARGET_COMPRESSED_BYTES_CONFIG,
+            Type.LONG,
+            SNOWPIPE_FILE_SIZE_TARGET_COMPRESSED_BYTES_DEFAULT,
+            ConfigDef.Range.atLeast(0),
+            Importance.LOW,
+            SNOWPIPE_FILE_SIZE_TARGET_COMPRESSED_BYTES_DOC,
+            CONNECTOR_CONFIG,
+            13,
+            ConfigDef.Width.NONE,
+            SNOWPIPE_FILE_SIZE_TARGET_COMPRESSED_BYTES_DISPLAY)
+        .define(
+            SNOWPIPE_SPILL_THRESHOLD_BYTES_CONFIG,
+            Type.LONG,
+            SNOWPIPE_SPILL_THRESHOLD_BYTES_DEFAULT,
+            ConfigDef.Range.atLeast(0),
+            Importance.LOW,
+            SNOWPIPE_SPILL_THRESHOLD_BYTES_DOC,
+            CONNECTOR_CONFIG,
+            14,
+            ConfigDef.Width.NONE,
+            SNOWPIPE_SPILL_THRESHOLD_BYTES_DISPLAY)
+        .define(
+            SNOWPIPE_SPILL_DIRECTORY_CONFIG,
+            Type.STRING,
+            SNOWPIPE_SPILL_DIRECTORY_DEFAULT,
+            Importance.LOW,
+            SNOWPIPE_SPILL_DIRECTORY_DOC,
+            CONNECTOR_CONFIG,
+            15,
+            ConfigDef.Width.NONE,
+            SNOWPIPE_SPILL_DIRECTORY_DISPLAY)
+        .define(
+            PARTITION_OPEN_PARALLELISM_CONFIG,
+            Type.INT,
+            PARTITION_OPEN_PARALLELISM_DEFAULT,
+            ConfigDef.Range.atLeast(1),
+            Importance.LOW,
+            PARTITION_OPEN_PARALLELISM_DOC,
+            CONNECTOR_CONFIG,
+            16,
+            ConfigDef.Width.NONE,
+            PARTITION_OPEN_PARALLELISM_DISPLAY)
+        .define(
+            METADATA_CACHE_TTL_MS_CONFIG,
+            Type.LONG,
+            METADATA_CACHE_TTL_MS_DEFAULT,
+            ConfigDef.Range.atLeast(0),
+            Importance.LOW,
+            METADATA_CACHE_TTL_MS_DOC,
+            CONNECTOR_CONFIG,
+            17,
+            ConfigDef.Width.NONE,
+            METADATA_CACHE_TTL_MS_DISPLAY)
+        .define(
+            BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_CONFIG,
+            Type.LONG,
+            BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_DEFAULT,
+            ConfigDef.Range.atLeast(0),
+            Importance.LOW,
+            BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_DOC,
+            CONNECTOR_CONFIG,
+            18,
+            ConfigDef.Width.NONE,
+            BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_DISPLAY)
+        .define(
+            PARTITION_INSERT_PARALLELISM_CONFIG,
+            Type.INT,
+            PARTITION_INSERT_PARALLELISM_DEFAULT,
+            ConfigDef.Range.atLeast(1),
+            Importance.LOW,
+            PARTITION_INSERT_PARALLELISM_DOC,
+            CONNECTOR_CONFIG,
+            19,
+            ConfigDef.Width.NONE,
+            PARTITION_INSERT_PARALLELISM_DISPLAY);
   }
 
   public static class TopicToTableValidator implements ConfigDef.Validator {
@@ -30,6 +30,7 @@ import com.snowflake.kafka.connector.internal.streaming.IngestionMethodConfig;
 import com.snowflake.kafka.connector.records.SnowflakeMetadataConfig;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
@@ -281,8 +282,10 @@ public class SnowflakeSinkTask extends SinkTask {
     this.DYNAMIC_LOGGER.setLoggerInstanceTag(this.getTaskLoggingTag());
 
     long startTime = System.currentTimeMillis();
+    Map<TopicPartition, String> partitionsToTable = new LinkedHashMap<>();
     partitions.forEach(
-        tp -> this.sink.startTask(Utils.tableName(tp.topic(), this.topic2table), tp));
+        tp -> partitionsToTable.put(tp, Utils.tableName(tp.topic(), this.topic2table)));
+    this.sink.startTasks(partitionsToTable);
     this.DYNAMIC_LOGGER.debug(
         "task opened with {} partitions, execution time: {} seconds",
         partitions.size(),
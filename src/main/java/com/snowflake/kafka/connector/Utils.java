@@ -35,15 +35,22 @@ import java.net.Authenticator;
 import java.net.PasswordAuthentication;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.config.Config;
 import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.common.config.ConfigValue;
+import org.apache.kafka.connect.sink.SinkRecord;
 
 /** Various arbitrary helper functions */
 public class Utils {
@@ -388,6 +395,17 @@ public class Utils {
                 "Schematization is only available with {}.",
                 IngestionMethodConfig.SNOWPIPE_STREAMING.toString()));
       }
+      if (config.containsKey(
+              SnowflakeSinkConnectorConfig.ENABLE_SCHEMA_EVOLUTION_BATCH_INSERT_CONFIG)
+          && Boolean.parseBoolean(
+              config.get(
+                  SnowflakeSinkConnectorConfig.ENABLE_SCHEMA_EVOLUTION_BATCH_INSERT_CONFIG))) {
+        invalidConfigParams.put(
+            SnowflakeSinkConnectorConfig.ENABLE_SCHEMA_EVOLUTION_BATCH_INSERT_CONFIG,
+            Utils.formatString(
+                "Schema evolution batch insert is only available with {}.",
+                IngestionMethodConfig.SNOWPIPE_STREAMING.toString()));
+      }
       if (config.containsKey(SnowflakeSinkConnectorConfig.SNOWPIPE_STREAMING_FILE_VERSION)) {
         invalidConfigParams.put(
             SnowflakeSinkConnectorConfig.SNOWPIPE_STREAMING_FILE_VERSION,
@@ -407,8 +425,55 @@ public class Utils {
                 "Streaming client optimization is only available with {}.",
                 IngestionMethodConfig.SNOWPIPE_STREAMING.toString()));
       }
+      if (config.containsKey(SnowflakeSinkConnectorConfig.ENABLE_STREAMING_PIPELINED_INSERT_CONFIG)
+          && Boolean.parseBoolean(
+              config.get(SnowflakeSinkConnectorConfig.ENABLE_STREAMING_PIPELINED_INSERT_CONFIG))) {
+        invalidConfigParams.put(
+            SnowflakeSinkConnectorConfig.ENABLE_STREAMING_PIPELINED_INSERT_CONFIG,
+            Utils.formatString(
+                "Pipelined insert is only available with {}.",
+                IngestionMethodConfig.SNOWPIPE_STREAMING.toString()));
+      }
+      if (config.containsKey(
+          SnowflakeSinkConnectorConfig.STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG)) {
+        invalidConfigParams.put(
+            SnowflakeSinkConnectorConfig.STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG,
+            Utils.formatString(
+                "Committed offset polling is only available with {}.",
+                IngestionMethodConfig.SNOWPIPE_STREAMING.toString()));
+      }
+      invalidConfigParams.putAll(
+          validateMinValue(
+              config,
+              SnowflakeSinkConnectorConfig.SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_CONFIG,
+              0));
+      invalidConfigParams.putAll(
+          validateMinValue(
+              config,
+              SnowflakeSinkConnectorConfig.SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_TASK_CONFIG,
+              1));
+      invalidConfigParams.putAll(
+          validateMinValue(
+              config,
+              SnowflakeSinkConnectorConfig.SNOWPIPE_FILE_SIZE_TARGET_COMPRESSED_BYTES_CONFIG,
+              0));
+      invalidConfigParams.putAll(
+          validateMinValue(
+              config, SnowflakeSinkConnectorConfig.SNOWPIPE_SPILL_THRESHOLD_BYTES_CONFIG, 0));
     }
 
+    invalidConfigParams.putAll(
+        validateMinValue(
+            config, SnowflakeSinkConnectorConfig.PARTITION_OPEN_PARALLELISM_CONFIG, 1));
+    invalidConfigParams.putAll(
+        validateMinValue(config, SnowflakeSinkConnectorConfig.METADATA_CACHE_TTL_MS_CONFIG, 0));
+    invalidConfigParams.putAll(
+        validateMinValue(
+            config, SnowflakeSinkConnectorConfig.BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_CONFIG, 0));
+    invalidConfigParams.putAll(
+        validateMinValue(
+            config, SnowflakeSinkConnectorConfig.PARTITION_INSERT_PARALLELISM_CONFIG, 1));
+
     if (config.containsKey(SnowflakeSinkConnectorConfig.TOPICS_TABLES_MAP)
         && parseTopicToTableMap(config.get(SnowflakeSinkConnectorConfig.TOPICS_TABLES_MAP))
             == null) {
@@ -503,6 +568,41 @@ public class Utils {
     return connectorName;
   }
 
+  /**
+   * Validates a numeric config which has a minimum value
+   *
+   * @param config connector config
+   * @param configName name of the config
+   * @param minValue minimum valid value of the config
+   * @return invalid config, empty if the config is not set or valid
+   */
+  private static Map<String, String> validateMinValue(
+      Map<String, String> config, String configName, long minValue) {
+    Map<String, String> invalidParams = new HashMap<>();
+    if (config.containsKey(configName)) {
+      String value = config.get(configName);
+      try {
+        if (Long.parseLong(value) < minValue) {
+          invalidParams.put(
+              configName,
+              Utils.formatString(
+                  "Config:{} should be at least {}, provided value:{}",
+                  configName,
+                  minValue,
+                  value));
+        }
+      } catch (NumberFormatException e) {
+        invalidParams.put(
+            configName,
+            Utils.formatString(
+                "Config:{} should be an integer, provided value:{}",
+                configName,
+                value));
+      }
+    }
+    return invalidParams;
+  }
+
   /**
    * modify invalid application name in config and return the generated application name
    *
@@ -527,6 +627,38 @@ public class Utils {
     return generateValidName(topic, topic2table);
   }
 
+  /**
+   * Split the records of a put into the records of each partition, keeping their order. Records
+   * of a partition are usually consecutive, so a partition key is only created when the partition
+   * changes.
+   *
+   * @param records records of a put
+   * @param filter records to keep
+   * @return records of each partition, partitions in the order of their first record
+   */
+  public static Map<TopicPartition, List<SinkRecord>> groupByPartition(
+      Collection<SinkRecord> records, Predicate<SinkRecord> filter) {
+    Map<TopicPartition, List<SinkRecord>> partitionRecords = new LinkedHashMap<>();
+    List<SinkRecord> currentRecords = null;
+    SinkRecord previousRecord = null;
+    for (SinkRecord record : records) {
+      if (!filter.test(record)) {
+        continue;
+      }
+      if (previousRecord == null
+          || !previousRecord.kafkaPartition().equals(record.kafkaPartition())
+          || !previousRecord.topic().equals(record.topic())) {
+        currentRecords =
+            partitionRecords.computeIfAbsent(
+                new TopicPartition(record.topic(), record.kafkaPartition()),
+                topicPartition -> new ArrayList<>());
+      }
+      currentRecords.add(record);
+      previousRecord = record;
+    }
+    return partitionRecords;
+  }
+
   /**
    * verify topic name, and generate valid table/application name
    *
@@ -111,6 +111,14 @@ public abstract class BufferThreshold {
         >= (this.flushTimeThresholdSeconds * SECOND_TO_MILLIS);
   }
 
+  /**
+   * @param previousFlushTimeStampMs when was the previous flush of the buffer
+   * @return time in milliseconds from which {@link #isFlushTimeBased(long)} returns true
+   */
+  public long getFlushTimeDeadlineMs(final long previousFlushTimeStampMs) {
+    return previousFlushTimeStampMs + this.flushTimeThresholdSeconds * SECOND_TO_MILLIS;
+  }
+
   /** @return Get flush time threshold in seconds */
   public long getFlushTimeThresholdSeconds() {
     return flushTimeThresholdSeconds;
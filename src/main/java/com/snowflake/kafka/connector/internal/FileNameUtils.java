@@ -82,7 +82,18 @@ public class FileNameUtils {
    * @return file prefix
    */
   static String filePrefix(String appName, String table, int partition) {
-    return appName + "/" + table + "/" + partition + "/";
+    return tablePrefix(appName, table) + partition + "/";
+  }
+
+  /**
+   * generate the prefix shared by the files of all partitions of a table
+   *
+   * @param appName connector name
+   * @param table table name
+   * @return table prefix
+   */
+  static String tablePrefix(String appName, String table) {
+    return appName + "/" + table + "/";
   }
 
   // applicationName/tableName/partitionNumber
@@ -0,0 +1,91 @@
+package com.snowflake.kafka.connector.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Time based flush deadlines of the buffers of a task, so that each put only checks the buffers
+ * which are due instead of all partitions.
+ *
+ * <p>A deadline can be earlier than the actual one, e.g. if the buffer was flushed by size since
+ * the deadline was scheduled. The buffer is then checked and scheduled again with its new deadline.
+ *
+ * <p>Not thread safe, only used by the task thread.
+ *
+ * @param <K> key of a buffer, e.g. the name of its partition
+ */
+public class FlushDeadlineQueue<K> {
+  private final PriorityQueue<Deadline<K>> queue;
+  // latest deadline of each scheduled key, entries of the queue with another deadline are stale
+  private final Map<K, Long> deadlines;
+
+  public FlushDeadlineQueue() {
+    this.queue = new PriorityQueue<>((d1, d2) -> Long.compare(d1.deadlineMs, d2.deadlineMs));
+    this.deadlines = new HashMap<>();
+  }
+
+  /**
+   * Schedule the next check of a buffer, replacing its previous deadline if any
+   *
+   * @param key key of the buffer
+   * @param deadlineMs time in milliseconds at which the buffer should be checked
+   */
+  public void schedule(K key, long deadlineMs) {
+    Long previous = deadlines.put(key, deadlineMs);
+    if (previous == null || previous != deadlineMs) {
+      queue.add(new Deadline<>(key, deadlineMs));
+    }
+  }
+
+  /**
+   * Remove the buffers which are due, they must be scheduled again once checked
+   *
+   * @param nowMs current time in milliseconds
+   * @return keys of the buffers whose deadline is reached, earliest first
+   */
+  public List<K> pollDue(long nowMs) {
+    List<K> due = new ArrayList<>();
+    while (!queue.isEmpty() && queue.peek().deadlineMs <= nowMs) {
+      Deadline<K> deadline = queue.poll();
+      Long current = deadlines.get(deadline.key);
+      if (current != null && current == deadline.deadlineMs) {
+        deadlines.remove(deadline.key);
+        due.add(deadline.key);
+      }
+    }
+    return due;
+  }
+
+  /**
+   * Stop checking a buffer, e.g. when its partition is closed
+   *
+   * @param key key of the buffer
+   */
+  public void remove(K key) {
+    // the entry in the queue is dropped once it is due
+    deadlines.remove(key);
+  }
+
+  public void clear() {
+    queue.clear();
+    deadlines.clear();
+  }
+
+  /** @return number of scheduled buffers */
+  public int size() {
+    return deadlines.size();
+  }
+
+  private static final class Deadline<K> {
+    private final K key;
+    private final long deadlineMs;
+
+    private Deadline(K key, long deadlineMs) {
+      this.key = key;
+      this.deadlineMs = deadlineMs;
+    }
+  }
+}
@@ -0,0 +1,305 @@
+package com.snowflake.kafka.connector.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content of a file which will be uploaded to stage, gzip compressed as it is written.
+ *
+ * <p>Written strings are encoded to UTF-8 and streamed through a gzip deflater into fixed size
+ * byte chunks, so that only the compressed data is kept in memory. Once finished, the content is
+ * read from the chunks without copying them and uploaded as is. Chunks are borrowed from a pool
+ * shared by all buffers and given back by {@link #release()}.
+ *
+ * <p>If a spill directory is given, the compressed data is moved to a temporary file in it once it
+ * reaches the spill threshold, and the rest of the data is appended to the file. The file is then
+ * uploaded from disk and deleted by {@link #release()}.
+ *
+ * <p>Not thread safe. After {@link #finish()}, the content can be read by several threads.
+ */
+public class GzipFileBuffer {
+  static final int CHUNK_SIZE = 64 * 1024;
+
+  // At most 16 MB of free chunks are kept in the pool
+  static final int MAX_POOLED_CHUNKS = 256;
+
+  static final String SPILL_FILE_PREFIX = "snowpipe_buffer_";
+  static final String SPILL_FILE_SUFFIX = ".json.gz";
+
+  private static final KCLogger LOGGER = new KCLogger(GzipFileBuffer.class.getName());
+
+  private static final Queue<byte[]> CHUNK_POOL = new ConcurrentLinkedQueue<>();
+  private static final AtomicInteger POOLED_CHUNKS = new AtomicInteger(0);
+
+  private final List<byte[]> chunks;
+  // number of bytes used in the last chunk
+  private int lastChunkSize;
+  private long compressedSize;
+  private long uncompressedSize;
+  private final GZIPOutputStream gzip;
+  private boolean finished;
+
+  // null if the buffer is never spilled to disk
+  private final Path spillDirectory;
+  private final long spillThreshold;
+  // set once the buffer is spilled
+  private Path spillFile;
+  private OutputStream spillOutput;
+  // streams reading the spill file, closed on release
+  private final List<InputStream> spillInputs;
+
+  GzipFileBuffer() {
+    this(null, 0);
+  }
+
+  /**
+   * @param spillDirectory directory of the spill file, null to keep the data in memory
+   * @param spillThreshold compressed size in bytes from which the data is moved to the spill file
+   */
+  GzipFileBuffer(Path spillDirectory, long spillThreshold) {
+    this.spillDirectory = spillDirectory;
+    this.spillThreshold = spillThreshold;
+    this.spillFile = null;
+    this.spillOutput = null;
+    this.spillInputs = new ArrayList<>();
+    this.chunks = new ArrayList<>();
+    this.lastChunkSize = CHUNK_SIZE;
+    this.compressedSize = 0;
+    this.uncompressedSize = 0;
+    this.finished = false;
+    try {
+      this.gzip = new GZIPOutputStream(new ChunkOutputStream());
+    } catch (IOException e) {
+      throw SnowflakeErrors.ERROR_5023.getException(e);
+    }
+  }
+
+  /**
+   * Compress a string into the buffer
+   *
+   * @param data string, encoded as UTF-8
+   */
+  void write(String data) {
+    if (finished) {
+      throw SnowflakeErrors.ERROR_5023.getException("buffer is already finished");
+    }
+    byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+    try {
+      gzip.write(bytes);
+    } catch (IOException e) {
+      throw SnowflakeErrors.ERROR_5023.getException(e);
+    }
+    uncompressedSize += bytes.length;
+  }
+
+  /** Write the end of the gzip stream and free the deflater, nothing can be written after it */
+  void finish() {
+    if (finished) {
+      return;
+    }
+    try {
+      // finishes the gzip stream, ends the deflater and closes the spill file if any
+      gzip.close();
+    } catch (IOException e) {
+      throw SnowflakeErrors.ERROR_5023.getException(e);
+    }
+    finished = true;
+  }
+
+  /**
+   * @return a new stream reading the compressed content, every upload attempt reads it again
+   */
+  InputStream getInputStream() {
+    if (!finished) {
+      throw SnowflakeErrors.ERROR_5023.getException("buffer is not finished");
+    }
+    if (spillFile != null) {
+      try {
+        InputStream input = new BufferedInputStream(Files.newInputStream(spillFile), CHUNK_SIZE);
+        synchronized (spillInputs) {
+          spillInputs.add(input);
+        }
+        return input;
+      } catch (IOException e) {
+        throw SnowflakeErrors.ERROR_5024.getException(e);
+      }
+    }
+    List<InputStream> streams = new ArrayList<>(chunks.size());
+    for (int i = 0; i < chunks.size(); i++) {
+      int length = i == chunks.size() - 1 ? lastChunkSize : CHUNK_SIZE;
+      streams.add(new ByteArrayInputStream(chunks.get(i), 0, length));
+    }
+    return new SequenceInputStream(Collections.enumeration(streams));
+  }
+
+  /** Give the chunks back to the pool and delete the spill file, the content is lost after it */
+  void release() {
+    if (!finished) {
+      // ends the deflater, the content is dropped anyway
+      try {
+        finish();
+      } catch (SnowflakeKafkaConnectorException e) {
+        LOGGER.warn("Failed to finish buffer before releasing it: {}", e.getMessage());
+      }
+    }
+    releaseChunks();
+    compressedSize = 0;
+    if (spillFile != null) {
+      synchronized (spillInputs) {
+        for (InputStream input : spillInputs) {
+          try {
+            input.close();
+          } catch (IOException e) {
+            LOGGER.warn("Failed to close spill file {}: {}", spillFile, e.getMessage());
+          }
+        }
+        spillInputs.clear();
+      }
+      deleteSpillFile(spillFile);
+      spillFile = null;
+    }
+  }
+
+  /** @return true if the data was moved to a spill file */
+  boolean isSpilled() {
+    return spillFile != null;
+  }
+
+  private void releaseChunks() {
+    for (byte[] chunk : chunks) {
+      if (POOLED_CHUNKS.incrementAndGet() <= MAX_POOLED_CHUNKS) {
+        CHUNK_POOL.offer(chunk);
+      } else {
+        POOLED_CHUNKS.decrementAndGet();
+      }
+    }
+    chunks.clear();
+    lastChunkSize = CHUNK_SIZE;
+  }
+
+  /** Move the compressed data to a new spill file, the next writes are appended to it */
+  private void spill() {
+    try {
+      spillFile = Files.createTempFile(spillDirectory, SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX);
+      spillOutput = new BufferedOutputStream(Files.newOutputStream(spillFile), CHUNK_SIZE);
+      for (int i = 0; i < chunks.size(); i++) {
+        spillOutput.write(chunks.get(i), 0, i == chunks.size() - 1 ? lastChunkSize : CHUNK_SIZE);
+      }
+    } catch (IOException e) {
+      throw SnowflakeErrors.ERROR_5024.getException(e);
+    }
+    releaseChunks();
+    LOGGER.debug("buffer spilled to {}, {} compressed bytes", spillFile, compressedSize);
+  }
+
+  private static void deleteSpillFile(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      LOGGER.warn("Failed to delete spill file {}: {}", file, e.getMessage());
+    }
+  }
+
+  /**
+   * Delete the spill files left in a directory, e.g. by a task which crashed before uploading them
+   *
+   * @param directory spill directory
+   */
+  static void deleteSpillFiles(Path directory) {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    try (DirectoryStream<Path> files =
+        Files.newDirectoryStream(directory, SPILL_FILE_PREFIX + "*" + SPILL_FILE_SUFFIX)) {
+      for (Path file : files) {
+        LOGGER.info("Deleting leftover spill file {}", file);
+        deleteSpillFile(file);
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Failed to list spill files in {}: {}", directory, e.getMessage());
+    }
+  }
+
+  /** @return number of compressed bytes output so far, the deflater may still hold some data */
+  long getCompressedSize() {
+    return compressedSize;
+  }
+
+  /** @return number of UTF-8 bytes written */
+  long getUncompressedSize() {
+    return uncompressedSize;
+  }
+
+  /** @return number of bytes held by the chunks of this buffer */
+  long getAllocatedSize() {
+    return (long) chunks.size() * CHUNK_SIZE;
+  }
+
+  private static byte[] borrowChunk() {
+    byte[] chunk = CHUNK_POOL.poll();
+    if (chunk == null) {
+      return new byte[CHUNK_SIZE];
+    }
+    POOLED_CHUNKS.decrementAndGet();
+    return chunk;
+  }
+
+  /** Output of the deflater, appends to the chunks or to the spill file */
+  private class ChunkOutputStream extends OutputStream {
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (spillOutput != null) {
+        try {
+          spillOutput.write(b, off, len);
+        } catch (IOException e) {
+          throw SnowflakeErrors.ERROR_5024.getException(e);
+        }
+        compressedSize += len;
+        return;
+      }
+      while (len > 0) {
+        if (lastChunkSize == CHUNK_SIZE) {
+          chunks.add(borrowChunk());
+          lastChunkSize = 0;
+        }
+        int length = Math.min(len, CHUNK_SIZE - lastChunkSize);
+        System.arraycopy(b, off, chunks.get(chunks.size() - 1), lastChunkSize, length);
+        lastChunkSize += length;
+        compressedSize += length;
+        off += length;
+        len -= length;
+      }
+      if (spillDirectory != null && compressedSize >= spillThreshold) {
+        spill();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (spillOutput != null) {
+        spillOutput.close();
+      }
+    }
+  }
+}
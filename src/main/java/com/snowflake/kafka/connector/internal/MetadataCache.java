@@ -0,0 +1,106 @@
+package com.snowflake.kafka.connector.internal;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Results of the metadata lookups of a connection, e.g. whether a table exists, kept for a fixed
+ * time so that partitions sharing a table or a stage don't query Snowflake once each.
+ *
+ * <p>The lookups of an object are invalidated when the connector changes the object. Changes made
+ * outside of the connector are only seen once the results expire.
+ *
+ * <p>Thread safe.
+ */
+class MetadataCache {
+  enum Lookup {
+    TABLE_EXISTS,
+    TABLE_COMPATIBLE,
+    STAGE_EXISTS,
+    STAGE_COMPATIBLE,
+    PIPE_EXISTS
+  }
+
+  private final long ttlMs;
+  private final LongSupplier clock;
+  private final Map<String, Result> results;
+  // incremented by every invalidation, so that a lookup running meanwhile doesn't cache its result
+  private final AtomicLong version;
+
+  /** @param ttlMs time in milliseconds during which a result is reused, 0 disables the cache */
+  MetadataCache(long ttlMs) {
+    this(ttlMs, System::currentTimeMillis);
+  }
+
+  MetadataCache(long ttlMs, LongSupplier clock) {
+    this.ttlMs = ttlMs;
+    this.clock = clock;
+    this.results = new ConcurrentHashMap<>();
+    this.version = new AtomicLong(0);
+  }
+
+  /**
+   * Get the result of a lookup, running the query if the result is not cached or has expired
+   *
+   * @param lookup type of lookup
+   * @param name name of the table, stage or pipe
+   * @param query query run on a cache miss
+   * @return result of the lookup
+   */
+  boolean get(Lookup lookup, String name, BooleanSupplier query) {
+    if (ttlMs <= 0) {
+      return query.getAsBoolean();
+    }
+    String key = key(lookup, name);
+    Result cached = results.get(key);
+    long now = clock.getAsLong();
+    if (cached != null && now - cached.time < ttlMs) {
+      return cached.value;
+    }
+    long startVersion = version.get();
+    boolean value = query.getAsBoolean();
+    results.put(key, new Result(value, now));
+    if (version.get() != startVersion) {
+      // the object might have changed while it was queried
+      results.remove(key);
+    }
+    return value;
+  }
+
+  /**
+   * Invalidate all lookups of an object, called after the connector creates, alters or drops it
+   *
+   * @param name name of the table, stage or pipe
+   */
+  void invalidate(String name) {
+    if (ttlMs <= 0) {
+      return;
+    }
+    version.incrementAndGet();
+    for (Lookup lookup : Lookup.values()) {
+      results.remove(key(lookup, name));
+    }
+  }
+
+  /** @return number of cached results, including expired ones */
+  int size() {
+    return results.size();
+  }
+
+  private static String key(Lookup lookup, String name) {
+    return lookup + ":" + name;
+  }
+
+  private static final class Result {
+    private final boolean value;
+    private final long time;
+
+    private Result(boolean value, long time) {
+      this.value = value;
+      this.time = time;
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.snowflake.kafka.connector.internal;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Runs an action on each item of a collection on a bounded number of threads and waits for all of
+ * them, e.g. to open the partitions assigned to a task. The threads either only live for one call
+ * or belong to an executor owned by the caller.
+ */
+public class ParallelRunner {
+  private ParallelRunner() {}
+
+  /**
+   * Run the action on every item. Items are processed on the calling thread if the parallelism or
+   * the number of items is one.
+   *
+   * <p>On the calling thread, the first failure stops the processing. Otherwise all items are
+   * processed even if some of them fail, and one of the failures is then thrown.
+   *
+   * @param items items to process
+   * @param parallelism maximum number of items processed at the same time
+   * @param action action run on each item, must be thread safe
+   * @param <T> type of items
+   */
+  public static <T> void runAll(Collection<T> items, int parallelism, Consumer<T> action) {
+    int threads = Math.min(parallelism, items.size());
+    if (threads <= 1) {
+      items.forEach(action);
+      return;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      runAll(items, executor, action);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Run the action on every item on the given executor, or on the calling thread if there is only
+   * one item. All items are processed even if some of them fail, and one of the failures is then
+   * thrown.
+   *
+   * @param items items to process
+   * @param executor executor bounding the number of items processed at the same time
+   * @param action action run on each item, must be thread safe
+   * @param <T> type of items
+   */
+  public static <T> void runAll(Collection<T> items, ExecutorService executor, Consumer<T> action) {
+    if (items.size() <= 1) {
+      items.forEach(action);
+      return;
+    }
+    try {
+      CompletableFuture.allOf(
+              items.stream()
+                  .map(item -> CompletableFuture.runAsync(() -> action.accept(item), executor))
+                  .toArray(CompletableFuture[]::new))
+          .join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
@@ -117,6 +117,16 @@ public interface SnowflakeConnectionService {
    */
   void alterNonNullableColumns(String tableName, List<String> columnNames);
 
+  /**
+   * Describe the columns of a table
+   *
+   * @param tableName the name of the table
+   * @return the mapping from the columnNames to whether they are nullable
+   * @throws SnowflakeKafkaConnectorException ERROR_2014 if the table does not exist, ERROR_2001
+   *     for other JDBC failures
+   */
+  Map<String, Boolean> describeTableColumns(String tableName);
+
   /**
    * Examine all file names matches our pattern
    *
@@ -230,6 +240,16 @@ public interface SnowflakeConnectionService {
    */
   void putWithCache(final String stageName, final String fileName, final String content);
 
+  /**
+   * put a file which is already gzip compressed to stage. Cache credential for AWS, Azure and GCS
+   * storage.
+   *
+   * @param stageName stage name
+   * @param fileName file name, see {@link #putWithCache(String, String, String)}
+   * @param content finished gzip buffer, it is read again if the upload is retried
+   */
+  void putWithCache(final String stageName, final String fileName, final GzipFileBuffer content);
+
   /**
    * put a file to table stage
    *
@@ -1,5 +1,7 @@
 package com.snowflake.kafka.connector.internal;
 
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.METADATA_CACHE_TTL_MS_CONFIG;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.METADATA_CACHE_TTL_MS_DEFAULT;
 import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.PROVIDER_CONFIG;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -29,6 +31,9 @@ public class SnowflakeConnectionServiceFactory {
     /** Underlying implementation - Check Enum {@link IngestionMethodConfig} */
     private IngestionMethodConfig ingestionMethodConfig;
 
+    // 0 if table, stage and pipe metadata is not cached
+    private long metadataCacheTtlMs = METADATA_CACHE_TTL_MS_DEFAULT;
+
     @VisibleForTesting
     public SnowflakeConnectionServiceBuilder setProperties(Properties prop) {
       this.prop = prop;
@@ -72,6 +77,9 @@ public class SnowflakeConnectionServiceFactory {
       this.proxyProperties = InternalUtils.generateProxyParametersIfRequired(conf);
       this.connectorName = conf.get(Utils.NAME);
       this.ingestionMethodConfig = IngestionMethodConfig.determineIngestionMethod(conf);
+      if (conf.containsKey(METADATA_CACHE_TTL_MS_CONFIG)) {
+        this.metadataCacheTtlMs = Long.parseLong(conf.get(METADATA_CACHE_TTL_MS_CONFIG));
+      }
       return this;
     }
 
@@ -80,7 +88,14 @@ public class SnowflakeConnectionServiceFactory {
       InternalUtils.assertNotEmpty("url", url);
       InternalUtils.assertNotEmpty("connectorName", connectorName);
       return new SnowflakeConnectionServiceV1(
-          prop, url, connectorName, taskID, proxyProperties, kafkaProvider, ingestionMethodConfig);
+          prop,
+          url,
+          connectorName,
+          taskID,
+          proxyProperties,
+          kafkaProvider,
+          ingestionMethodConfig,
+          metadataCacheTtlMs);
     }
   }
 }
@@ -16,12 +16,15 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import net.snowflake.client.jdbc.SnowflakeConnectionV1;
 import net.snowflake.client.jdbc.SnowflakeDriver;
 import net.snowflake.client.jdbc.cloud.storage.StageInfo;
@@ -51,8 +54,18 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
 
   private StageInfo.StageType stageType;
 
+  // Existence and compatibility of tables, stages and pipes, shared by all partitions of the task
+  private final MetadataCache metadataCache;
+
   private static final long CREDENTIAL_EXPIRY_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
 
+  // Limits of the files removed by a single REMOVE statement when purging a stage
+  static final int MAX_FILES_PER_REMOVE = 200;
+  static final int MAX_REMOVE_PATTERN_LENGTH = 32 * 1024;
+
+  // Snowflake error code of "SQL compilation error: Object does not exist or not authorized"
+  private static final int OBJECT_NOT_EXIST_ERROR_CODE = 2003;
+
   // User agent suffix we want to pass in to ingest service
   public static final String USER_AGENT_SUFFIX_FORMAT = "SFKafkaConnector/%s provider/%s";
 
@@ -63,7 +76,8 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
       String taskID,
       Properties proxyProperties,
       String kafkaProvider,
-      IngestionMethodConfig ingestionMethodConfig) {
+      IngestionMethodConfig ingestionMethodConfig,
+      long metadataCacheTtlMs) {
     this.connectorName = connectorName;
     this.taskID = taskID;
     this.url = url;
@@ -71,6 +85,7 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
     this.stageType = null;
     this.proxyProperties = proxyProperties;
     this.kafkaProvider = kafkaProvider;
+    this.metadataCache = new MetadataCache(metadataCacheTtlMs);
     try {
       if (proxyProperties != null && !proxyProperties.isEmpty()) {
         Properties combinedProperties =
@@ -129,6 +144,7 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
     } catch (SQLException e) {
       throw SnowflakeErrors.ERROR_2007.getException(e);
     }
+    metadataCache.invalidate(tableName);
 
     LOGGER.info("create table {}", tableName);
   }
@@ -154,6 +170,7 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
     } catch (SQLException e) {
       throw SnowflakeErrors.ERROR_2007.getException(e);
     }
+    metadataCache.invalidate(tableName);
 
     // Enable schema evolution by default if the table is created by the connector
     String enableSchemaEvolutionQuery =
@@ -197,6 +214,7 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
     } catch (SQLException e) {
       throw SnowflakeErrors.ERROR_2009.getException(e);
     }
+    metadataCache.invalidate(pipeName);
     LOGGER.info("create pipe: {}", pipeName);
   }
 
@@ -224,6 +242,7 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
     } catch (SQLException e) {
       throw SnowflakeErrors.ERROR_2008.getException(e);
     }
+    metadataCache.invalidate(stageName);
     LOGGER.info("create stage {}", stageName);
   }
 
@@ -236,6 +255,11 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
   public boolean tableExist(final String tableName) {
     checkConnection();
     InternalUtils.assertNotEmpty("tableName", tableName);
+    return metadataCache.get(
+        MetadataCache.Lookup.TABLE_EXISTS, tableName, () -> queryTableExist(tableName));
+  }
+
+  private boolean queryTableExist(final String tableName) {
     String query = "desc table identifier(?)";
     PreparedStatement stmt = null;
     boolean exist;
@@ -263,6 +287,11 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
   public boolean stageExist(final String stageName) {
     checkConnection();
     InternalUtils.assertNotEmpty("stageName", stageName);
+    return metadataCache.get(
+        MetadataCache.Lookup.STAGE_EXISTS, stageName, () -> queryStageExist(stageName));
+  }
+
+  private boolean queryStageExist(final String stageName) {
     String query = "desc stage identifier(?)";
     PreparedStatement stmt = null;
     boolean exist;
@@ -290,6 +319,11 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
   public boolean pipeExist(final String pipeName) {
     checkConnection();
     InternalUtils.assertNotEmpty("pipeName", pipeName);
+    return metadataCache.get(
+        MetadataCache.Lookup.PIPE_EXISTS, pipeName, () -> queryPipeExist(pipeName));
+  }
+
+  private boolean queryPipeExist(final String pipeName) {
     String query = "desc pipe identifier(?)";
     PreparedStatement stmt = null;
     boolean exist;
@@ -317,6 +351,11 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
   public boolean isTableCompatible(final String tableName) {
     checkConnection();
     InternalUtils.assertNotEmpty("tableName", tableName);
+    return metadataCache.get(
+        MetadataCache.Lookup.TABLE_COMPATIBLE, tableName, () -> queryTableCompatible(tableName));
+  }
+
+  private boolean queryTableCompatible(final String tableName) {
     String query = "desc table identifier(?)";
     PreparedStatement stmt = null;
     ResultSet result = null;
@@ -410,6 +449,7 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
     } catch (SQLException e) {
       throw SnowflakeErrors.ERROR_2013.getException("table name: " + tableName);
     }
+    metadataCache.invalidate(tableName);
   }
 
   /**
@@ -514,6 +554,7 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
     } catch (SQLException e) {
       throw SnowflakeErrors.ERROR_2015.getException(e);
     }
+    metadataCache.invalidate(tableName);
 
     logColumn.insert(0, "Following columns created for table {}:\n").append("]");
     LOGGER.info(logColumn.toString(), tableName);
@@ -557,6 +598,7 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
     } catch (SQLException e) {
       throw SnowflakeErrors.ERROR_2016.getException(e);
     }
+    metadataCache.invalidate(tableName);
 
     logColumn
         .insert(0, "Following columns' non-nullabilty was dropped for table {}:\n")
@@ -564,10 +606,54 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
     LOGGER.info(logColumn.toString(), tableName);
   }
 
+  /**
+   * Describe the columns of a table
+   *
+   * @param tableName the name of the table
+   * @return the mapping from the columnNames to whether they are nullable
+   */
+  @Override
+  public Map<String, Boolean> describeTableColumns(String tableName) {
+    checkConnection();
+    InternalUtils.assertNotEmpty("tableName", tableName);
+    String query = "desc table identifier(?)";
+    Map<String, Boolean> columnToNullable = new HashMap<>();
+    try (PreparedStatement stmt = conn.prepareStatement(query)) {
+      stmt.setString(1, tableName);
+      try (ResultSet result = stmt.executeQuery()) {
+        while (result.next()) {
+          // The result schema is column name | data type | kind | null? | ...
+          columnToNullable.put(result.getString(1), result.getString(4).equals("Y"));
+        }
+      }
+    } catch (SQLException e) {
+      if (isObjectNotExistError(e)) {
+        throw SnowflakeErrors.ERROR_2014.getException("table name: " + tableName);
+      }
+      throw SnowflakeErrors.ERROR_2001.getException(e);
+    }
+    return columnToNullable;
+  }
+
+  /**
+   * @param e exception thrown by Snowflake JDBC
+   * @return true if the statement failed because the object does not exist or is not authorized
+   */
+  private static boolean isObjectNotExistError(SQLException e) {
+    return e.getErrorCode() == OBJECT_NOT_EXIST_ERROR_CODE
+        || (e.getMessage() != null && e.getMessage().contains("does not exist"));
+  }
+
   @Override
   public boolean isStageCompatible(final String stageName) {
     checkConnection();
     InternalUtils.assertNotEmpty("stageName", stageName);
+    return metadataCache.get(
+        MetadataCache.Lookup.STAGE_COMPATIBLE, stageName, () -> queryStageCompatible(stageName));
+  }
+
+  /** Files put by the connector keep the stage compatible, so puts don't invalidate the result */
+  private boolean queryStageCompatible(final String stageName) {
     if (!stageExist(stageName)) {
       LOGGER.debug("stage {} doesn't exists", stageName);
       return false;
@@ -675,6 +761,7 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
     } catch (SQLException e) {
       throw SnowflakeErrors.ERROR_2001.getException(e);
     }
+    metadataCache.invalidate(pipeName);
 
     LOGGER.info("pipe {} dropped", pipeName);
   }
@@ -718,14 +805,36 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
     } catch (SQLException e) {
       throw SnowflakeErrors.ERROR_2001.getException(e);
     }
+    metadataCache.invalidate(stageName);
     LOGGER.info("stage {} dropped", stageName);
   }
 
   @Override
   public void purgeStage(final String stageName, final List<String> files) {
     InternalUtils.assertNotEmpty("stageName", stageName);
+    List<String> batch = new ArrayList<>();
+    int patternLength = 0;
     for (String fileName : files) {
-      removeFile(stageName, fileName);
+      if (!canBeRemovedByPattern(fileName)) {
+        removeFile(stageName, fileName);
+        continue;
+      }
+      // every escaped character takes up to three characters in the pattern
+      int fileNameLength = fileName.length() * 3 + 1;
+      if (!batch.isEmpty()
+          && (batch.size() >= MAX_FILES_PER_REMOVE
+              || patternLength + fileNameLength > MAX_REMOVE_PATTERN_LENGTH)) {
+        removeFiles(stageName, batch);
+        batch = new ArrayList<>();
+        patternLength = 0;
+      }
+      batch.add(fileName);
+      patternLength += fileNameLength;
+    }
+    if (batch.size() == 1) {
+      removeFile(stageName, batch.get(0));
+    } else if (!batch.isEmpty()) {
+      removeFiles(stageName, batch);
     }
     LOGGER.info("purge {} files from stage: {}", files.size(), stageName);
   }
@@ -835,6 +944,25 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
 
   @Override
   public void putWithCache(final String stageName, final String fileName, final String content) {
+    putWithCache(
+        stageName,
+        fileName,
+        stageType -> internalStage.putWithCache(stageName, fileName, content, stageType));
+  }
+
+  @Override
+  public void putWithCache(
+      final String stageName, final String fileName, final GzipFileBuffer content) {
+    putWithCache(
+        stageName,
+        fileName,
+        stageType -> internalStage.putWithCache(stageName, fileName, content, stageType));
+  }
+
+  private void putWithCache(
+      final String stageName,
+      final String fileName,
+      final Consumer<StageInfo.StageType> upload) {
     // If we don't know the stage type yet, query that first.
     if (stageType == null) {
       stageType = internalStage.getStageType(stageName);
@@ -844,7 +972,7 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
           telemetry,
           SnowflakeInternalOperations.UPLOAD_FILE_TO_INTERNAL_STAGE_NO_CONNECTION,
           () -> {
-            internalStage.putWithCache(stageName, fileName, content, stageType);
+            upload.accept(stageType);
             return true;
           });
     } catch (Exception e) {
@@ -997,6 +1125,119 @@ public class SnowflakeConnectionServiceV1 implements SnowflakeConnectionService
     LOGGER.debug("deleted {} from stage {}", fileName, stageName);
   }
 
+  /**
+   * Remove a group of files from given stage with a single REMOVE statement, the files are matched
+   * by a pattern listing all of their names
+   *
+   * @param stageName stage name
+   * @param fileNames file names, all of them must pass {@link #canBeRemovedByPattern(String)}
+   */
+  private void removeFiles(String stageName, List<String> fileNames) {
+    InternalUtils.assertNotEmpty("stageName", stageName);
+    String directory = commonDirectory(fileNames);
+    String query =
+        "rm @"
+            + stageName
+            + (directory.isEmpty() ? "" : "/" + directory)
+            + " pattern = '"
+            + removePattern(fileNames)
+            + "'";
+
+    int removed;
+    try {
+      removed =
+          (Integer)
+              InternalUtils.backoffAndRetry(
+                  telemetry,
+                  SnowflakeInternalOperations.REMOVE_FILE_FROM_INTERNAL_STAGE,
+                  () -> {
+                    PreparedStatement stmt = conn.prepareStatement(query);
+                    ResultSet resultSet = stmt.executeQuery();
+                    int count = 0;
+                    while (resultSet.next()) {
+                      count++;
+                    }
+                    resultSet.close();
+                    stmt.close();
+                    return count;
+                  });
+    } catch (Exception e) {
+      throw SnowflakeErrors.ERROR_2001.getException(e, this.telemetry);
+    }
+    // files which are not on stage anymore are not reported, same as removing them one by one
+    LOGGER.debug(
+        "deleted {} of {} files from stage {}, directory {}",
+        removed,
+        fileNames.size(),
+        stageName,
+        directory);
+  }
+
+  /**
+   * Only the file names generated by the connector can be matched by a pattern, the other ones are
+   * removed one by one
+   *
+   * @param fileName file name
+   * @return true if all characters of the file name can be escaped in a remove pattern
+   */
+  static boolean canBeRemovedByPattern(String fileName) {
+    if (fileName == null || fileName.isEmpty()) {
+      return false;
+    }
+    for (int i = 0; i < fileName.length(); i++) {
+      char c = fileName.charAt(i);
+      if (c == '\\' || c == '\'' || c == '^' || c == ']' || Character.isISOControl(c)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Longest directory shared by all files, the remove statement only lists files under it
+   *
+   * @param fileNames file names
+   * @return common directory without trailing slash, empty if there is none
+   */
+  static String commonDirectory(List<String> fileNames) {
+    String first = fileNames.get(0);
+    int end = first.lastIndexOf('/');
+    for (String fileName : fileNames) {
+      while (end > 0 && !fileName.regionMatches(0, first, 0, end + 1)) {
+        end = first.lastIndexOf('/', end - 1);
+      }
+      if (end <= 0) {
+        return "";
+      }
+    }
+    return first.substring(0, end);
+  }
+
+  /**
+   * Build a regular expression which only matches the given files. The path matched by a remove
+   * pattern may be prefixed by the stage name, so the match starts at any directory boundary.
+   *
+   * @param fileNames file names, all of them must pass {@link #canBeRemovedByPattern(String)}
+   * @return pattern
+   */
+  static String removePattern(List<String> fileNames) {
+    StringBuilder pattern = new StringBuilder("(.*/)?(");
+    for (int i = 0; i < fileNames.size(); i++) {
+      if (i > 0) {
+        pattern.append('|');
+      }
+      for (char c : fileNames.get(i).toCharArray()) {
+        if (Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '/') {
+          pattern.append(c);
+        } else {
+          // a bracket expression avoids backslashes, which are also escapes in sql strings
+          pattern.append('[').append(c).append(']');
+        }
+      }
+    }
+    return pattern.append(')').toString();
+  }
+
   @Override
   public Connection getConnection() {
     return this.conn;
@@ -271,7 +271,11 @@ public enum SnowflakeErrors {
       "5021",
       "Failed to get data schema",
       "Failed to get data schema. Unrecognizable data type in JSON object"),
-  ERROR_5022("5022", "Invalid column name", "Failed to find column in the schema");
+  ERROR_5022("5022", "Invalid column name", "Failed to find column in the schema"),
+  ERROR_5023(
+      "5023", "Failed to compress buffer", "Error while compressing records of Snowpipe buffer"),
+  ERROR_5024(
+      "5024", "Failed to access spill file", "Error while reading or writing a buffer spill file");
 
   // properties
 
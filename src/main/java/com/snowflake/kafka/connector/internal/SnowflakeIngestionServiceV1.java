@@ -3,6 +3,7 @@ package com.snowflake.kafka.connector.internal;
 import static com.snowflake.kafka.connector.internal.InternalUtils.convertIngestStatus;
 import static com.snowflake.kafka.connector.internal.InternalUtils.timestampToDate;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.snowflake.kafka.connector.internal.telemetry.SnowflakeTelemetryService;
 import java.security.PrivateKey;
 import java.util.*;
@@ -18,7 +19,9 @@ import net.snowflake.ingest.utils.StagedFileWrapper;
  *
  * <p>2. insertReport - Continuous polling
  *
- * <p>3. loadHistoryScan - for last 1 hour.
+ * <p>3. loadHistoryScan - for last 1 hour. The files found are cached, so that each call only
+ * scans the range since the previous one. Files which are still pending close to the end of the
+ * hour are searched by scanning the whole hour again.
  *
  * <p>The difference between above two APIs @see <a
  * href="https://docs.snowflake.com/en/user-guide/data-load-snowpipe-rest-apis.html">here</a>
@@ -28,12 +31,28 @@ public class SnowflakeIngestionServiceV1 implements SnowflakeIngestionService {
   private final KCLogger LOGGER = new KCLogger(SnowflakeIngestionServiceV1.class.getName());
   private static final long ONE_HOUR = 60 * 60 * 1000;
 
+  // Part of the range scanned by the previous loadHistoryScan which is scanned again, in case a
+  // load is reported late or the clocks of the client and Snowflake differ
+  static final long LOAD_HISTORY_SCAN_OVERLAP = 5 * 60 * 1000;
+
+  // Files still pending this long before they leave the scanned hour are searched by scanning the
+  // whole hour again, in case their load was reported later than the overlap. The whole hour is
+  // scanned at most once per LOAD_HISTORY_SCAN_OVERLAP.
+  static final long LOAD_HISTORY_FULL_SCAN_BEFORE_EXPIRY = 10 * 60 * 1000;
+
   private final String stageName;
   private final SimpleIngestManager ingestManager;
   private SnowflakeTelemetryService telemetry = null;
 
   private String beginMark = null;
 
+  // Files found in load history, in the order of the scans which found them
+  private final LinkedHashMap<String, LoadHistoryEntry> loadHistory = new LinkedHashMap<>();
+  // End of the range which was already scanned in load history, exclusive
+  private long loadHistoryScannedUntil = 0;
+  // Time at which the whole hour was last scanned again for pending files
+  private long loadHistoryFullScannedAt = 0;
+
   SnowflakeIngestionServiceV1(
       String accountName,
       String userName,
@@ -62,6 +81,12 @@ public class SnowflakeIngestionServiceV1 implements SnowflakeIngestionService {
     LOGGER.info("initialized the pipe connector for pipe {}", pipeName);
   }
 
+  @VisibleForTesting
+  SnowflakeIngestionServiceV1(String stageName, SimpleIngestManager ingestManager) {
+    this.stageName = stageName;
+    this.ingestManager = ingestManager;
+  }
+
   @Override
   public void setTelemetry(SnowflakeTelemetryService telemetry) {
     this.telemetry = telemetry;
@@ -158,19 +183,80 @@ public class SnowflakeIngestionServiceV1 implements SnowflakeIngestionService {
       final List<String> files, final long startTime) {
     long endTime = startTime + ONE_HOUR;
     Map<String, InternalUtils.IngestedFileStatus> result = initFileStatus(files);
-    Map<String, InternalUtils.IngestedFileStatus> response =
-        checkHistoryByRange(startTime, endTime);
+    updateLoadHistory(startTime, endTime, false);
+    if (hasPendingFilesNearExpiry(files, startTime)) {
+      LOGGER.info("files are still pending before they expire, scanning the whole load history");
+      loadHistoryFullScannedAt = System.currentTimeMillis();
+      updateLoadHistory(startTime, endTime, true);
+    }
 
     files.forEach(
         name -> {
-          if (response.containsKey(name)) {
-            result.put(name, response.get(name));
+          LoadHistoryEntry entry = loadHistory.get(name);
+          if (entry != null) {
+            result.put(name, entry.status);
           }
         });
 
     return result;
   }
 
+  /**
+   * @param files files to search in load history
+   * @param start start timestamp of the scanned hour
+   * @return true if a file is not found or not loaded yet although it leaves the scanned hour soon,
+   *     and the whole hour was not scanned again recently
+   */
+  private boolean hasPendingFilesNearExpiry(List<String> files, long start) {
+    if (System.currentTimeMillis() - loadHistoryFullScannedAt < LOAD_HISTORY_SCAN_OVERLAP) {
+      return false;
+    }
+    for (String name : files) {
+      LoadHistoryEntry entry = loadHistory.get(name);
+      boolean isPending =
+          entry == null || entry.status == InternalUtils.IngestedFileStatus.LOAD_IN_PROGRESS;
+      if (isPending
+          && (!FileNameUtils.verifyFileName(name)
+              || FileNameUtils.fileNameToTimeIngested(name)
+                  < start + LOAD_HISTORY_FULL_SCAN_BEFORE_EXPIRY)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Evict the files found before the given range from the load history cache and scan the part of
+   * the range which was not scanned yet.
+   *
+   * @param start start timestamp inclusive
+   * @param end end timestamp exclusive
+   * @param fullScan scan the whole range, even the part which was already scanned
+   */
+  private void updateLoadHistory(long start, long end, boolean fullScan) {
+    Iterator<LoadHistoryEntry> iterator = loadHistory.values().iterator();
+    while (iterator.hasNext() && iterator.next().scannedUntil <= start) {
+      iterator.remove();
+    }
+
+    long scannedUntil = Math.min(end, System.currentTimeMillis());
+    long scanStart =
+        fullScan ? start : Math.max(start, loadHistoryScannedUntil - LOAD_HISTORY_SCAN_OVERLAP);
+    Map<String, InternalUtils.IngestedFileStatus> response = checkHistoryByRange(scanStart, end);
+
+    response.forEach(
+        (name, status) -> {
+          // keep the cache ordered by scan, a file found again is moved to the end
+          loadHistory.remove(name);
+          loadHistory.put(name, new LoadHistoryEntry(status, scannedUntil));
+        });
+    loadHistoryScannedUntil = Math.max(loadHistoryScannedUntil, scannedUntil);
+    LOGGER.debug(
+        "load history scanned from {}, {} files cached",
+        timestampToDate(scanStart),
+        loadHistory.size());
+  }
+
   /**
    * check files status from load history
    *
@@ -258,4 +344,21 @@ public class SnowflakeIngestionServiceV1 implements SnowflakeIngestionService {
   public SimpleIngestManager getIngestManager() {
     return this.ingestManager;
   }
+
+  /* Only used for testing */
+  int getLoadHistoryCacheSize() {
+    return this.loadHistory.size();
+  }
+
+  /** Status of a file found in load history */
+  private static class LoadHistoryEntry {
+    private final InternalUtils.IngestedFileStatus status;
+    // end of the scanned range in which the file was found
+    private final long scannedUntil;
+
+    private LoadHistoryEntry(InternalUtils.IngestedFileStatus status, long scannedUntil) {
+      this.status = status;
+      this.scannedUntil = scannedUntil;
+    }
+  }
 }
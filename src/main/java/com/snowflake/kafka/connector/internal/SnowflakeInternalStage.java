@@ -144,6 +144,34 @@ public class SnowflakeInternalStage {
    */
   public void putWithCache(
       String stageName, String fullFilePath, String data, final StageInfo.StageType stageType) {
+    byte[] dataBytes = data.getBytes(StandardCharsets.UTF_8);
+    upload(stageName, fullFilePath, new ByteArrayInputStream(dataBytes), true, stageType);
+  }
+
+  /**
+   * Upload an already compressed file to internal stage with previously cached credentials, see
+   * {@link #putWithCache(String, String, String, StageInfo.StageType)}. The compressed bytes are
+   * streamed from the buffer as they are.
+   *
+   * @param stageName Stage name
+   * @param fullFilePath Full file name to be uploaded
+   * @param data finished gzip buffer to be uploaded
+   * @param stageType GCS, Azure or AWS
+   */
+  public void putWithCache(
+      String stageName,
+      String fullFilePath,
+      GzipFileBuffer data,
+      final StageInfo.StageType stageType) {
+    upload(stageName, fullFilePath, data.getInputStream(), false, stageType);
+  }
+
+  private void upload(
+      String stageName,
+      String fullFilePath,
+      InputStream inStream,
+      boolean requireCompress,
+      final StageInfo.StageType stageType) {
     try {
       SnowflakeMetadataWithExpiration credential = storageInfoCache.getOrDefault(stageName, null);
 
@@ -170,9 +198,6 @@ public class SnowflakeInternalStage {
     // TODO: https://snowflakecomputing.atlassian.net/browse/SNOW-350676
     fileTransferMetadata.setPresignedUrlFileName(fullFilePath);
 
-    byte[] dataBytes = data.getBytes(StandardCharsets.UTF_8);
-    InputStream inStream = new ByteArrayInputStream(dataBytes);
-
     // This uploadWithoutConnection api cannot handle expired credentials very well.
     // Need to prevent passing expired credential to it.
     try {
@@ -180,7 +205,7 @@ public class SnowflakeInternalStage {
           SnowflakeFileTransferConfig.Builder.newInstance()
               .setSnowflakeFileTransferMetadata(fileTransferMetadata)
               .setUploadStream(inStream)
-              .setRequireCompress(true)
+              .setRequireCompress(requireCompress)
               .setOcspMode(OCSPMode.FAIL_OPEN)
               .setProxyProperties(proxyProperties)
               .build());
@@ -22,6 +22,17 @@ public interface SnowflakeSinkService {
    */
   void startTask(String tableName, TopicPartition topicPartition);
 
+  /**
+   * Start the tasks of all partitions assigned to the task, equivalent to calling {@link
+   * #startTask(String, TopicPartition)} for each partition. Implementations may open the
+   * partitions in parallel.
+   *
+   * @param partitionsToTable TopicPartitions passed from Kafka and their destination table names
+   */
+  default void startTasks(Map<TopicPartition, String> partitionsToTable) {
+    partitionsToTable.forEach((topicPartition, tableName) -> startTask(tableName, topicPartition));
+  }
+
   /**
    * call pipe to insert a collections of JSON records will trigger time based flush
    *
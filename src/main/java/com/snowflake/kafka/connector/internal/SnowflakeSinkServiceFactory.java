@@ -47,7 +47,7 @@ public class SnowflakeSinkServiceFactory {
         IngestionMethodConfig ingestionType,
         Map<String, String> connectorConfig) {
       if (ingestionType == IngestionMethodConfig.SNOWPIPE) {
-        this.service = new SnowflakeSinkServiceV1(conn);
+        this.service = new SnowflakeSinkServiceV1(conn, connectorConfig);
       } else {
         this.service = new SnowflakeSinkServiceV2(conn, connectorConfig);
       }
@@ -1,11 +1,23 @@
 package com.snowflake.kafka.connector.internal;
 
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.PARTITION_INSERT_PARALLELISM_CONFIG;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.PARTITION_INSERT_PARALLELISM_DEFAULT;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.PARTITION_OPEN_PARALLELISM_CONFIG;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.PARTITION_OPEN_PARALLELISM_DEFAULT;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.SNOWPIPE_FILE_SIZE_TARGET_COMPRESSED_BYTES_CONFIG;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.SNOWPIPE_FILE_SIZE_TARGET_COMPRESSED_BYTES_DEFAULT;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_CONFIG;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_DEFAULT;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_TASK_CONFIG;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_TASK_DEFAULT;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.SNOWPIPE_SPILL_DIRECTORY_CONFIG;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.SNOWPIPE_SPILL_THRESHOLD_BYTES_CONFIG;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.SNOWPIPE_SPILL_THRESHOLD_BYTES_DEFAULT;
 import static com.snowflake.kafka.connector.internal.metrics.MetricsUtil.*;
 import static org.apache.kafka.common.record.TimestampType.NO_TIMESTAMP_TYPE;
 
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
-import com.google.common.annotations.VisibleForTesting;
 import com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig;
 import com.snowflake.kafka.connector.Utils;
 import com.snowflake.kafka.connector.internal.metrics.MetricsJmxReporter;
@@ -18,17 +30,32 @@ import com.snowflake.kafka.connector.records.SnowflakeJsonSchema;
 import com.snowflake.kafka.connector.records.SnowflakeMetadataConfig;
 import com.snowflake.kafka.connector.records.SnowflakeRecordContent;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -36,6 +63,7 @@ import java.util.stream.Collectors;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
 
 /**
  * This is per task configuration. A task can be assigned multiple partitions. Major methods are
@@ -53,17 +81,26 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
   private static final long ONE_HOUR = 60 * 60 * 1000L;
   private static final long TEN_MINUTES = 10 * 60 * 1000L;
   protected static final long CLEAN_TIME = 60 * 1000L; // one minutes
+  // First run of the cleaner of each pipe is delayed by up to this much more than CLEAN_TIME, so
+  // that cleaners of partitions opened together do not all call Snowflake at the same time
+  private static final long CLEAN_TIME_MAX_JITTER = CLEAN_TIME / 4;
+  // Number of threads running the cleaners of all pipes of a task, which limits how many pipes are
+  // checked at the same time. Cleaners mostly wait for Snowflake, hence more threads than cores.
+  private static final int CLEANER_THREADS =
+      Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
 
   // Set in config (Time based flush) in seconds
   private long flushTime;
   // Set in config (buffer size based flush) in bytes
   private long fileSize;
+  // Set in config (compressed size based flush) in bytes, 0 if the buffer size is used instead
+  private final long targetCompressedFileSize;
 
   // Set in config (Threshold before we send the buffer to internal stage) corresponds to # of
   // records in kafka
   private long recordNum;
   private final SnowflakeConnectionService conn;
-  private final Map<String, ServiceContext> pipes;
+  private final Map<TopicPartition, ServiceContext> pipes;
   private final RecordService recordService;
   private boolean isStopped;
   private final SnowflakeTelemetryService telemetryService;
@@ -76,7 +113,49 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
   // If this is true, we will enable Mbean for required classes and emit JMX metrics for monitoring
   private boolean enableCustomJMXMonitoring = SnowflakeSinkConnectorConfig.JMX_OPT_DEFAULT;
 
+  // Number of files per partition which can be uploaded to stage in background, 0 if files are
+  // uploaded synchronously on the task thread
+  private final int maxInFlightUploadsPerPartition;
+  // Uploads files of all partitions of this task in background, null if uploads are synchronous
+  private final ExecutorService uploadExecutor;
+  // Limits the number of files uploaded at the same time (or waiting to be uploaded) by this task
+  private final Semaphore uploadPermits;
+
+  private static final long UPLOAD_EXECUTOR_TERMINATION_TIMEOUT_SEC = 30;
+
+  // Runs cleaners of all pipes of this task instead of two dedicated threads per pipe
+  private final ScheduledExecutorService cleanerExecutor;
+
+  // Directory of the buffers of this task spilled to disk, null if buffers are kept in memory
+  private final Path spillDirectory;
+  // Compressed size of a buffer from which it is spilled to disk
+  private final long spillThreshold;
+
+  private final String taskId;
+  // Number of partitions opened at the same time by startTasks
+  private final int partitionOpenParallelism;
+
+  // Registry for task level metrics, only used if custom JMX monitoring is enabled
+  private final MetricRegistry taskMetricRegistry;
+  private MetricsJmxReporter taskMetricsJmxReporter;
+
+  // Bytes buffered in memory by all partitions, null if the limit is disabled
+  private final TaskMemoryBudget taskMemoryBudget;
+  // Pauses and resumes partitions for the memory budget, null in tests
+  private SinkTaskContext sinkTaskContext;
+
+  // Time based flush deadlines of the pipes
+  private final FlushDeadlineQueue<TopicPartition> flushDeadlines;
+
+  // Converts and buffers the records of several partitions at the same time, null if the records
+  // are inserted on the task thread
+  private final ExecutorService partitionInsertExecutor;
+
   SnowflakeSinkServiceV1(SnowflakeConnectionService conn) {
+    this(conn, null);
+  }
+
+  SnowflakeSinkServiceV1(SnowflakeConnectionService conn, Map<String, String> connectorConfig) {
     if (conn == null || conn.isClosed()) {
       throw SnowflakeErrors.ERROR_5010.getException();
     }
@@ -90,10 +169,108 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
     this.telemetryService = conn.getTelemetryClient();
     this.recordService = new RecordService(this.telemetryService);
     this.topic2TableMap = new HashMap<>();
+    this.cleanerExecutor = Executors.newScheduledThreadPool(CLEANER_THREADS);
 
     // Setting the default value in constructor
     // meaning it will not ignore the null values (Tombstone records wont be ignored/filtered)
     this.behaviorOnNullValues = SnowflakeSinkConnectorConfig.BehaviorOnNullValues.DEFAULT;
+
+    this.taskId =
+        connectorConfig == null ? "-1" : connectorConfig.getOrDefault(Utils.TASK_ID, "-1");
+    this.partitionOpenParallelism =
+        getIntConfig(
+            connectorConfig, PARTITION_OPEN_PARALLELISM_CONFIG, PARTITION_OPEN_PARALLELISM_DEFAULT);
+    this.taskMetricRegistry = new MetricRegistry();
+    this.taskMemoryBudget = TaskMemoryBudget.fromConfig(connectorConfig);
+    this.flushDeadlines = new FlushDeadlineQueue<>();
+    final int partitionInsertParallelism =
+        getIntConfig(
+            connectorConfig,
+            PARTITION_INSERT_PARALLELISM_CONFIG,
+            PARTITION_INSERT_PARALLELISM_DEFAULT);
+    this.partitionInsertExecutor =
+        partitionInsertParallelism > 1
+            ? Executors.newFixedThreadPool(partitionInsertParallelism)
+            : null;
+
+    this.targetCompressedFileSize =
+        getLongConfig(
+            connectorConfig,
+            SNOWPIPE_FILE_SIZE_TARGET_COMPRESSED_BYTES_CONFIG,
+            SNOWPIPE_FILE_SIZE_TARGET_COMPRESSED_BYTES_DEFAULT);
+    if (this.targetCompressedFileSize > 0) {
+      LOGGER.info(
+          "Flushing buffers by compressed size, targetCompressedFileSize:{}",
+          this.targetCompressedFileSize);
+    }
+
+    this.spillThreshold =
+        getLongConfig(
+            connectorConfig,
+            SNOWPIPE_SPILL_THRESHOLD_BYTES_CONFIG,
+            SNOWPIPE_SPILL_THRESHOLD_BYTES_DEFAULT);
+    this.spillDirectory =
+        this.spillThreshold > 0 ? createSpillDirectory(connectorConfig, conn) : null;
+
+    this.maxInFlightUploadsPerPartition =
+        getIntConfig(
+            connectorConfig,
+            SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_CONFIG,
+            SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_DEFAULT);
+    if (this.maxInFlightUploadsPerPartition > 0) {
+      final int maxInFlightUploadsPerTask =
+          getIntConfig(
+              connectorConfig,
+              SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_TASK_CONFIG,
+              SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_TASK_DEFAULT);
+      this.uploadExecutor = Executors.newFixedThreadPool(maxInFlightUploadsPerTask);
+      this.uploadPermits = new Semaphore(maxInFlightUploadsPerTask);
+      LOGGER.info(
+          "Uploading files in background, maxInFlightUploadsPerPartition:{},"
+              + " maxInFlightUploadsPerTask:{}",
+          this.maxInFlightUploadsPerPartition,
+          maxInFlightUploadsPerTask);
+    } else {
+      this.uploadExecutor = null;
+      this.uploadPermits = null;
+    }
+  }
+
+  private static int getIntConfig(
+      Map<String, String> connectorConfig, String configName, int defaultValue) {
+    if (connectorConfig == null || !connectorConfig.containsKey(configName)) {
+      return defaultValue;
+    }
+    return Integer.parseInt(connectorConfig.get(configName));
+  }
+
+  /**
+   * Create the spill directory of this task and delete the files left in it by a previous run of
+   * the task, which are never uploaded since their records are sent again by Kafka
+   */
+  private Path createSpillDirectory(
+      Map<String, String> connectorConfig, SnowflakeConnectionService conn) {
+    String baseDirectory = connectorConfig.get(SNOWPIPE_SPILL_DIRECTORY_CONFIG);
+    if (baseDirectory == null || baseDirectory.isEmpty()) {
+      baseDirectory = System.getProperty("java.io.tmpdir");
+    }
+    Path directory = Paths.get(baseDirectory, conn.getConnectorName(), "task_" + this.taskId);
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw SnowflakeErrors.ERROR_5024.getException(e, telemetryService);
+    }
+    GzipFileBuffer.deleteSpillFiles(directory);
+    LOGGER.info("Spilling buffers to {} from {} compressed bytes", directory, this.spillThreshold);
+    return directory;
+  }
+
+  private static long getLongConfig(
+      Map<String, String> connectorConfig, String configName, long defaultValue) {
+    if (connectorConfig == null || !connectorConfig.containsKey(configName)) {
+      return defaultValue;
+    }
+    return Long.parseLong(connectorConfig.get(configName));
   }
 
   /**
@@ -106,60 +283,254 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
   @Override
   public void startTask(final String tableName, final TopicPartition topicPartition) {
     String stageName = Utils.stageName(conn.getConnectorName(), tableName);
-    String nameIndex = getNameIndex(topicPartition.topic(), topicPartition.partition());
-    if (pipes.containsKey(nameIndex)) {
-      LOGGER.error("task is already registered, name: {}", nameIndex);
+    if (pipes.containsKey(topicPartition)) {
+      LOGGER.error("task is already registered, name: {}", topicPartition);
     } else {
       String pipeName =
           Utils.pipeName(conn.getConnectorName(), tableName, topicPartition.partition());
 
-      pipes.put(
-          nameIndex,
-          new ServiceContext(tableName, stageName, pipeName, conn, topicPartition.partition()));
+      ServiceContext pipe =
+          new ServiceContext(tableName, stageName, pipeName, conn, topicPartition);
+      pipes.put(topicPartition, pipe);
+      flushDeadlines.schedule(topicPartition, pipe.getFlushDeadlineMs());
     }
   }
 
+  /**
+   * Registers all partitions like {@link #startTask(String, TopicPartition)}, then checks or
+   * creates each destination table and stage once and the pipes of all partitions on up to {@link
+   * SnowflakeSinkConnectorConfig#PARTITION_OPEN_PARALLELISM_CONFIG} threads, instead of doing it
+   * on the first insert of each partition. Cleaners still start on the first insert since they
+   * need its offset, but the files left on stage are listed here with one query per table.
+   *
+   * @param partitionsToTable TopicPartitions passed from Kafka and their destination table names
+   */
+  @Override
+  public void startTasks(final Map<TopicPartition, String> partitionsToTable) {
+    final long startTime = System.currentTimeMillis();
+    final Histogram partitionOpenLatency = getPartitionOpenHistogram(PARTITION_OPEN_LATENCY_MS);
+
+    final List<ServiceContext> newContexts = new ArrayList<>();
+    // one partition per table prepares the table and stage shared by all of them
+    final Map<String, ServiceContext> tableContexts = new HashMap<>();
+    partitionsToTable.forEach(
+        (topicPartition, tableName) -> {
+          startTask(tableName, topicPartition);
+          ServiceContext context = pipes.get(topicPartition);
+          if (!context.hasInitialized) {
+            newContexts.add(context);
+            tableContexts.putIfAbsent(tableName, context);
+          }
+        });
+
+    final Map<String, Map<String, List<String>>> stageFilesByTable = new ConcurrentHashMap<>();
+    ParallelRunner.runAll(
+        tableContexts.values(),
+        partitionOpenParallelism,
+        context -> {
+          context.prepareTableAndStage();
+          Map<String, List<String>> stageFiles =
+              listStageFilesByPrefix(context.tableName, context.stageName);
+          if (stageFiles != null) {
+            stageFilesByTable.put(context.tableName, stageFiles);
+          }
+        });
+    for (ServiceContext context : newContexts) {
+      context.setTableAndStagePrepared();
+      Map<String, List<String>> stageFiles = stageFilesByTable.get(context.tableName);
+      if (stageFiles != null) {
+        context.setStageFiles(stageFiles.getOrDefault(context.prefix, new ArrayList<>()));
+      }
+    }
+    ParallelRunner.runAll(
+        newContexts,
+        partitionOpenParallelism,
+        context -> {
+          final long partitionStartTime = System.currentTimeMillis();
+          context.preparePipe();
+          if (partitionOpenLatency != null) {
+            partitionOpenLatency.update(System.currentTimeMillis() - partitionStartTime);
+          }
+        });
+
+    final Histogram taskOpenTime = getPartitionOpenHistogram(TASK_OPEN_TIME_MS);
+    if (taskOpenTime != null) {
+      taskOpenTime.update(System.currentTimeMillis() - startTime);
+    }
+    LOGGER.info(
+        "Opened {} partitions of task:{} in {} ms",
+        partitionsToTable.size(),
+        taskId,
+        System.currentTimeMillis() - startTime);
+  }
+
+  /**
+   * List the files of all partitions of a table on its stage with one query, instead of one query
+   * per partition when its cleaner starts
+   *
+   * @param tableName table name
+   * @param stageName stage of the table
+   * @return file names by partition prefix, null if the stage could not be listed, in which case
+   *     each partition lists its own files
+   */
+  private Map<String, List<String>> listStageFilesByPrefix(
+      final String tableName, final String stageName) {
+    final List<String> files;
+    try {
+      files =
+          conn.listStage(stageName, FileNameUtils.tablePrefix(conn.getConnectorName(), tableName));
+    } catch (Exception e) {
+      LOGGER.warn("Failed to list stage {} at task start: {}", stageName, e.getMessage());
+      return null;
+    }
+    final Map<String, List<String>> filesByPrefix = new HashMap<>();
+    for (String file : files) {
+      filesByPrefix
+          .computeIfAbsent(
+              FileNameUtils.getPrefixFromFileName(file) + "/", prefix -> new ArrayList<>())
+          .add(file);
+    }
+    return filesByPrefix;
+  }
+
+  /**
+   * @return histogram of the task for the given partition open metric, null if custom JMX
+   *     monitoring is disabled
+   */
+  private Histogram getPartitionOpenHistogram(final String metricName) {
+    if (!enableCustomJMXMonitoring) {
+      return null;
+    }
+    if (taskMetricsJmxReporter == null) {
+      taskMetricsJmxReporter = new MetricsJmxReporter(taskMetricRegistry, conn.getConnectorName());
+      taskMetricsJmxReporter.start();
+    }
+    return taskMetricRegistry.histogram(
+        MetricsUtil.constructMetricName(
+            MetricsUtil.taskMetricPrefix(taskId), PARTITION_OPEN_SUB_DOMAIN, metricName));
+  }
+
   @Override
   public void insert(final Collection<SinkRecord> records) {
     // note that records can be empty
-    for (SinkRecord record : records) {
-      // check if need to handle null value records
-      if (recordService.shouldSkipNullValue(record, behaviorOnNullValues)) {
+    // null value records are skipped depending on the config, the others are inserted per
+    // partition. Might happen a count of record based flushing
+    Map<TopicPartition, List<SinkRecord>> partitionRecords =
+        Utils.groupByPartition(
+            records, record -> !recordService.shouldSkipNullValue(record, behaviorOnNullValues));
+    if (partitionInsertExecutor == null) {
+      partitionRecords.forEach(this::insert);
+    } else {
+      insertInParallel(partitionRecords);
+    }
+    // only check the sink contexts whose time based flush is due
+    for (TopicPartition topicPartition : flushDeadlines.pollDue(System.currentTimeMillis())) {
+      ServiceContext pipe = pipes.get(topicPartition);
+      if (pipe == null) {
         continue;
       }
-      // Might happen a count of record based flushing
-      insert(record);
-    }
-    // check all sink context to see if they need to be flushed
-    for (ServiceContext pipe : pipes.values()) {
       // Time based flushing
       if (pipe.shouldFlush()) {
         pipe.flushBuffer();
       }
+      flushDeadlines.schedule(topicPartition, pipe.getFlushDeadlineMs());
+      if (taskMemoryBudget != null) {
+        taskMemoryBudget.update(pipe.topicPartition, pipe.getBufferedBytes());
+      }
+    }
+
+    if (taskMemoryBudget != null) {
+      taskMemoryBudget.applyBackpressure(sinkTaskContext);
     }
   }
 
   @Override
   public void insert(SinkRecord record) {
-    String nameIndex = getNameIndex(record.topic(), record.kafkaPartition());
+    insert(
+        new TopicPartition(record.topic(), record.kafkaPartition()),
+        Collections.singletonList(record));
+  }
+
+  /**
+   * Inserts the records of a partition, its sink context is looked up once for all of them
+   *
+   * @param topicPartition partition of the records
+   * @param records records of the partition, in offset order
+   */
+  private void insert(TopicPartition topicPartition, List<SinkRecord> records) {
+    ServiceContext pipe = getOrStartPipe(topicPartition);
+    for (SinkRecord record : records) {
+      pipe.insert(record);
+    }
+    enforceMemoryBudget(pipe);
+  }
+
+  /**
+   * Inserts the records of each partition on {@link #partitionInsertExecutor}. Sink contexts are
+   * initialized and the memory budget is enforced on the task thread, only the conversion and
+   * buffering of the records run in parallel, along with the flushes of the full buffers.
+   *
+   * @param partitionRecords records of each partition, in offset order
+   */
+  private void insertInParallel(Map<TopicPartition, List<SinkRecord>> partitionRecords) {
+    partitionRecords.keySet().forEach(this::getOrStartPipe);
+    ParallelRunner.runAll(
+        partitionRecords.entrySet(),
+        this.partitionInsertExecutor,
+        entry -> {
+          ServiceContext pipe = pipes.get(entry.getKey());
+          for (SinkRecord record : entry.getValue()) {
+            pipe.insert(record);
+          }
+        });
+    partitionRecords.keySet().forEach(tp -> enforceMemoryBudget(pipes.get(tp)));
+  }
+
+  /**
+   * @param topicPartition partition of a record
+   * @return sink context of the partition, initialized if it's not opened yet
+   */
+  private ServiceContext getOrStartPipe(TopicPartition topicPartition) {
+    ServiceContext pipe = pipes.get(topicPartition);
     // init a new topic partition
-    if (!pipes.containsKey(nameIndex)) {
+    if (pipe == null) {
       LOGGER.warn(
           "Topic: {} Partition: {} hasn't been initialized by OPEN " + "function",
-          record.topic(),
-          record.kafkaPartition());
-      startTask(
-          Utils.tableName(record.topic(), this.topic2TableMap),
-          new TopicPartition(record.topic(), record.kafkaPartition()));
+          topicPartition.topic(),
+          topicPartition.partition());
+      startTask(Utils.tableName(topicPartition.topic(), this.topic2TableMap), topicPartition);
+      pipe = pipes.get(topicPartition);
+    }
+    return pipe;
+  }
+
+  private void enforceMemoryBudget(ServiceContext pipe) {
+    if (taskMemoryBudget != null) {
+      taskMemoryBudget.updateAndEnforce(
+          pipe.topicPartition, pipe.getBufferedBytes(), this::flushBuffer);
+    }
+  }
+
+  /**
+   * Flushes the buffer of a partition when the memory budget of the task is exceeded
+   *
+   * @param topicPartition partition whose buffer is flushed
+   * @return bytes left in memory by the buffer of the partition
+   */
+  private long flushBuffer(TopicPartition topicPartition) {
+    ServiceContext pipe = pipes.get(topicPartition);
+    if (pipe == null) {
+      return 0;
     }
-    pipes.get(nameIndex).insert(record);
+    pipe.flushBuffer();
+    return pipe.getBufferedBytes();
   }
 
   @Override
   public long getOffset(final TopicPartition topicPartition) {
-    String name = getNameIndex(topicPartition.topic(), topicPartition.partition());
-    if (pipes.containsKey(name)) {
-      return pipes.get(name).getOffset();
+    ServiceContext pipe = pipes.get(topicPartition);
+    if (pipe != null) {
+      return pipe.getOffset();
     } else {
       LOGGER.warn(
           "Topic: {} Partition: {} hasn't been initialized to get offset",
@@ -186,8 +557,8 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
   public void close(Collection<TopicPartition> partitions) {
     partitions.forEach(
         tp -> {
-          String name = getNameIndex(tp.topic(), tp.partition());
-          ServiceContext sc = pipes.remove(name);
+          ServiceContext sc = pipes.remove(tp);
+          flushDeadlines.remove(tp);
           if (sc != null) {
             try {
               sc.close();
@@ -208,6 +579,9 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
                 tp.partition());
           }
         });
+    if (taskMemoryBudget != null) {
+      taskMemoryBudget.remove(partitions);
+    }
   }
 
   @Override
@@ -219,6 +593,35 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
           context.unregisterPipeJMXMetrics();
         });
     pipes.clear();
+    flushDeadlines.clear();
+    if (taskMetricsJmxReporter != null) {
+      taskMetricsJmxReporter.removeMetricsFromRegistry(MetricsUtil.taskMetricPrefix(taskId) + "/");
+    }
+    closeUploadExecutor();
+    if (partitionInsertExecutor != null) {
+      partitionInsertExecutor.shutdownNow();
+    }
+    cleanerExecutor.shutdownNow();
+    if (spillDirectory != null) {
+      // files of uploads which did not finish in time
+      GzipFileBuffer.deleteSpillFiles(spillDirectory);
+    }
+  }
+
+  private void closeUploadExecutor() {
+    if (uploadExecutor == null) {
+      return;
+    }
+    uploadExecutor.shutdown();
+    try {
+      if (!uploadExecutor.awaitTermination(
+          UPLOAD_EXECUTOR_TERMINATION_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+        uploadExecutor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      uploadExecutor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
   }
 
   @Override
@@ -270,6 +673,10 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
       this.flushTime = time;
       LOGGER.info("set flush time to {} seconds", time);
     }
+    // deadlines of the pipes already started were computed with the previous flush time
+    pipes.forEach(
+        (topicPartition, pipe) ->
+            flushDeadlines.schedule(topicPartition, pipe.getFlushDeadlineMs()));
   }
 
   @Override
@@ -308,6 +715,12 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
     this.enableCustomJMXMonitoring = enableJMX;
   }
 
+  @Override
+  public void setSinkTaskContext(SinkTaskContext sinkTaskContext) {
+    // partitions are opened and records inserted on several threads
+    this.sinkTaskContext = SynchronizedSinkTaskContext.wrap(sinkTaskContext);
+  }
+
   @Override
   public SnowflakeSinkConnectorConfig.BehaviorOnNullValues getBehaviorOnNullValuesConfig() {
     return this.behaviorOnNullValues;
@@ -322,7 +735,10 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
    */
   @Override
   public Optional<MetricRegistry> getMetricRegistry(final String pipeName) {
-    for (Map.Entry<String, ServiceContext> entry : this.pipes.entrySet()) {
+    if (taskMetricsJmxReporter != null && MetricsUtil.taskMetricPrefix(taskId).equals(pipeName)) {
+      return Optional.of(taskMetricRegistry);
+    }
+    for (Map.Entry<TopicPartition, ServiceContext> entry : this.pipes.entrySet()) {
       if (entry.getValue().pipeName.equalsIgnoreCase(pipeName)) {
         return Optional.of(entry.getValue().getMetricRegistry());
       }
@@ -330,34 +746,36 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
     return Optional.empty();
   }
 
-  @VisibleForTesting
-  protected static String getNameIndex(String topic, int partition) {
-    return topic + "_" + partition;
-  }
-
   private class ServiceContext {
     private final String tableName;
     private final String stageName;
     private final String pipeName;
     private final SnowflakeConnectionService conn;
     private final SnowflakeIngestionService ingestionService;
-    private List<String> fileNames;
+    // Files flushed to stage which are not yet sent to Snowpipe
+    private List<StageFileLedger.StageFile> stagedFiles;
 
-    // Includes a list of files:
+    // Includes the files:
     // 1. Which are added after a flush into internal stage is successful
     // 2. While an app restarts and we do list on an internal stage to find out what needs to be
     // done on leaked files.
-    private List<String> cleanerFileNames;
+    private StageFileLedger cleanerFiles;
     private SnowpipeBuffer buffer;
     private final String prefix;
+    private final TopicPartition topicPartition;
     private final AtomicLong committedOffset; // loaded offset + 1
     private final AtomicLong flushedOffset; // flushed offset (file on stage)
     private final AtomicLong processedOffset; // processed offset
     private long previousFlushTimeStamp;
 
-    // threads
-    private final ExecutorService cleanerExecutor;
-    private final ExecutorService reprocessCleanerExecutor;
+    // Files being uploaded to stage in background, in offset order. Not thread safe, only
+    // accessed by one thread at a time: the task thread, or a thread of partitionInsertExecutor
+    // inserting the records of this partition while the task thread waits for it in put.
+    private final Deque<StageUpload> inFlightUploads;
+
+    // scheduled runs of the cleaner, null if the cleaner was not started
+    private ScheduledFuture<?> cleanerFuture;
+    private ScheduledFuture<?> reprocessCleanerFuture;
     private final Lock bufferLock;
     private final Lock fileListLock;
 
@@ -375,6 +793,13 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
 
     // make the initialization lazy
     private boolean hasInitialized = false;
+    // set if startTasks prepared the table, stage and pipe before the first insert
+    private boolean isTableAndStagePrepared = false;
+    private boolean isPipePrepared = false;
+    // telemetry reported once the pipe is initialized, null until the pipe is prepared
+    private SnowflakeTelemetryPipeCreation pipeCreation = null;
+    // files of this partition on stage listed by startTasks, null if the cleaner lists them
+    private List<String> stageFiles = null;
     private boolean forceCleanerFileReset = false;
 
     private ServiceContext(
@@ -382,20 +807,23 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
         String stageName,
         String pipeName,
         SnowflakeConnectionService conn,
-        int partition) {
+        TopicPartition topicPartition) {
       this.pipeName = pipeName;
       this.tableName = tableName;
       this.stageName = stageName;
       this.conn = conn;
-      this.fileNames = new LinkedList<>();
-      this.cleanerFileNames = new LinkedList<>();
+      this.stagedFiles = new ArrayList<>();
+      this.cleanerFiles = new StageFileLedger();
       this.buffer = new SnowpipeBuffer();
       this.ingestionService = conn.buildIngestService(stageName, pipeName);
-      this.prefix = FileNameUtils.filePrefix(conn.getConnectorName(), tableName, partition);
+      this.prefix =
+          FileNameUtils.filePrefix(conn.getConnectorName(), tableName, topicPartition.partition());
+      this.topicPartition = topicPartition;
       this.processedOffset = new AtomicLong(-1);
       this.flushedOffset = new AtomicLong(-1);
       this.committedOffset = new AtomicLong(0);
       this.previousFlushTimeStamp = System.currentTimeMillis();
+      this.inFlightUploads = new ArrayDeque<>();
 
       this.bufferLock = new ReentrantLock();
       this.fileListLock = new ReentrantLock();
@@ -407,9 +835,6 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
           new SnowflakeTelemetryPipeStatus(
               tableName, stageName, pipeName, enableCustomJMXMonitoring, this.metricsJmxReporter);
 
-      this.cleanerExecutor = Executors.newSingleThreadExecutor();
-      this.reprocessCleanerExecutor = Executors.newSingleThreadExecutor();
-
       if (enableCustomJMXMonitoring) {
         partitionBufferCountHistogram =
             this.metricRegistry.histogram(
@@ -426,13 +851,16 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
 
     private void init(long recordOffset) {
       LOGGER.info("init pipe: {}", pipeName);
-      SnowflakeTelemetryPipeCreation pipeCreation =
-          new SnowflakeTelemetryPipeCreation(tableName, stageName, pipeName);
+      SnowflakeTelemetryPipeCreation pipeCreation = getPipeCreation();
 
-      // wait for sinkConnector to start
-      createTableAndStage(pipeCreation);
-      // recover will only check pipe status and create pipe if it does not exist.
-      recover(pipeCreation);
+      if (!isTableAndStagePrepared) {
+        // wait for sinkConnector to start
+        createTableAndStage(pipeCreation);
+      }
+      if (!isPipePrepared) {
+        // recover will only check pipe status and create pipe if it does not exist.
+        recover(pipeCreation);
+      }
 
       try {
         startCleaner(recordOffset, pipeCreation);
@@ -442,6 +870,39 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
       }
     }
 
+    private SnowflakeTelemetryPipeCreation getPipeCreation() {
+      if (pipeCreation == null) {
+        pipeCreation = new SnowflakeTelemetryPipeCreation(tableName, stageName, pipeName);
+      }
+      return pipeCreation;
+    }
+
+    /** Check or create the table and stage before the first insert, see startTasks */
+    private void prepareTableAndStage() {
+      createTableAndStage(getPipeCreation());
+      isTableAndStagePrepared = true;
+    }
+
+    /** The table and stage were prepared by another partition of the same table */
+    private void setTableAndStagePrepared() {
+      if (!isTableAndStagePrepared) {
+        getPipeCreation().setReuseTable(true);
+        getPipeCreation().setReuseStage(true);
+        isTableAndStagePrepared = true;
+      }
+    }
+
+    /** Files of this partition on stage, listed by startTasks for all partitions of the table */
+    private void setStageFiles(List<String> stageFiles) {
+      this.stageFiles = stageFiles;
+    }
+
+    /** Check or create the pipe before the first insert, see startTasks */
+    private void preparePipe() {
+      recover(getPipeCreation());
+      isPipePrepared = true;
+    }
+
     private boolean resetCleanerFiles() {
       try {
         LOGGER.warn("Resetting cleaner files {}", pipeName);
@@ -452,8 +913,7 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
         List<String> tmpCleanerFileNames = conn.listStage(stageName, prefix);
         fileListLock.lock();
         try {
-          cleanerFileNames.addAll(tmpCleanerFileNames);
-          cleanerFileNames = cleanerFileNames.stream().distinct().collect(Collectors.toList());
+          cleanerFiles.addAll(tmpCleanerFileNames);
         } finally {
           fileListLock.unlock();
         }
@@ -469,9 +929,11 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
     // If there are files already on stage, we need to decide whether we will reprocess the offsets
     // or we will purge them.
     private void startCleaner(long recordOffset, SnowflakeTelemetryPipeCreation pipeCreation) {
-      // When cleaner start, scan stage for all files of this pipe.
+      // When cleaner start, scan stage for all files of this pipe, unless startTasks did it.
       // If we know that we are going to reprocess the file, then safely delete the file.
-      List<String> currentFilesOnStage = conn.listStage(stageName, prefix);
+      List<String> currentFilesOnStage =
+          stageFiles != null ? stageFiles : conn.listStage(stageName, prefix);
+      stageFiles = null;
       List<String> reprocessFiles = new ArrayList<>();
 
       filterFileReprocess(currentFilesOnStage, reprocessFiles, recordOffset);
@@ -486,57 +948,68 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
 
       fileListLock.lock();
       try {
-        cleanerFileNames.addAll(currentFilesOnStage);
+        cleanerFiles.addAll(currentFilesOnStage);
       } finally {
         fileListLock.unlock();
       }
 
-      cleanerExecutor.submit(
-          () -> {
-            LOGGER.info("pipe {}: cleaner started", pipeName);
-            while (!isStopped) {
-              try {
-                telemetryService.reportKafkaPartitionUsage(pipeStatus, false);
-                Thread.sleep(CLEAN_TIME);
-
-                if (forceCleanerFileReset && resetCleanerFiles()) {
-                  continue;
-                }
-
-                checkStatus();
-              } catch (InterruptedException e) {
-                LOGGER.info("Cleaner terminated by an interrupt:\n{}", e.getMessage());
-                break;
-              } catch (Exception e) {
-                LOGGER.warn(
-                    "Cleaner encountered an exception {}:\n{}\n{}",
-                    e.getClass(),
-                    e.getMessage(),
-                    e.getStackTrace());
-                telemetryService.reportKafkaConnectFatalError(e.getMessage());
-                forceCleanerFileReset = true;
-              }
-            }
-          });
+      LOGGER.info("pipe {}: cleaner started", pipeName);
+      telemetryService.reportKafkaPartitionUsage(pipeStatus, false);
+      final long firstCleanDelay =
+          CLEAN_TIME + ThreadLocalRandom.current().nextLong(CLEAN_TIME_MAX_JITTER);
+      cleanerFuture =
+          cleanerExecutor.scheduleWithFixedDelay(
+              this::runCleaner, firstCleanDelay, CLEAN_TIME, TimeUnit.MILLISECONDS);
 
       if (reprocessFiles.size() > 0) {
-        // After we start the cleaner thread, delay a while and start deleting files.
-        reprocessCleanerExecutor.submit(
-            () -> {
-              try {
-                Thread.sleep(CLEAN_TIME);
-                LOGGER.info(
-                    "Purging files already present on the stage before start. ReprocessFileSize:{}",
-                    reprocessFiles.size());
-                purge(reprocessFiles);
-              } catch (Exception e) {
-                LOGGER.error(
-                    "Reprocess cleaner encountered an exception {}:\n{}\n{}",
-                    e.getClass(),
-                    e.getMessage(),
-                    e.getStackTrace());
-              }
-            });
+        // After we start the cleaner, delay a while and start deleting files.
+        reprocessCleanerFuture =
+            cleanerExecutor.schedule(
+                () -> {
+                  try {
+                    LOGGER.info(
+                        "Purging files already present on the stage before start."
+                            + " ReprocessFileSize:{}",
+                        reprocessFiles.size());
+                    purge(reprocessFiles);
+                  } catch (Exception e) {
+                    LOGGER.error(
+                        "Reprocess cleaner encountered an exception {}:\n{}\n{}",
+                        e.getClass(),
+                        e.getMessage(),
+                        e.getStackTrace());
+                  }
+                },
+                firstCleanDelay,
+                TimeUnit.MILLISECONDS);
+      }
+    }
+
+    /**
+     * One run of the cleaner, scheduled every CLEAN_TIME on the cleaner executor shared by all
+     * pipes of the task. It must not throw, otherwise later runs would be suppressed.
+     */
+    private void runCleaner() {
+      if (isStopped) {
+        return;
+      }
+      try {
+        if (!(forceCleanerFileReset && resetCleanerFiles())) {
+          checkStatus();
+        }
+      } catch (Exception e) {
+        LOGGER.warn(
+            "Cleaner encountered an exception {}:\n{}\n{}",
+            e.getClass(),
+            e.getMessage(),
+            e.getStackTrace());
+        telemetryService.reportKafkaConnectFatalError(e.getMessage());
+        forceCleanerFileReset = true;
+      }
+      try {
+        telemetryService.reportKafkaPartitionUsage(pipeStatus, false);
+      } catch (Exception e) {
+        LOGGER.warn("Failed to report partition usage:\n{}", e.getMessage());
       }
     }
 
@@ -562,24 +1035,27 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
      */
     private void filterFileReprocess(
         List<String> currentFilesOnStage, List<String> reprocessFiles, long recordOffset) {
-      // iterate over a copy since reprocess files get removed from it
-      new LinkedList<>(currentFilesOnStage)
-          .forEach(
-              name -> {
-                long fileStartOffset = FileNameUtils.fileNameToStartOffset(name);
-                // If start offset of this file is greater than the offset of the record that is
-                // sent to the connector,
-                // all content of this file will be reprocessed. Thus this file can be deleted.
-                if (recordOffset <= fileStartOffset) {
-                  reprocessFiles.add(name);
-                  currentFilesOnStage.remove(name);
-                }
-              });
+      currentFilesOnStage.removeIf(
+          name -> {
+            long fileStartOffset = FileNameUtils.fileNameToStartOffset(name);
+            // If start offset of this file is greater than the offset of the record that is
+            // sent to the connector,
+            // all content of this file will be reprocessed. Thus this file can be deleted.
+            if (recordOffset <= fileStartOffset) {
+              reprocessFiles.add(name);
+              return true;
+            }
+            return false;
+          });
     }
 
     private void stopCleaner() {
-      cleanerExecutor.shutdownNow();
-      reprocessCleanerExecutor.shutdownNow();
+      if (cleanerFuture != null) {
+        cleanerFuture.cancel(true);
+      }
+      if (reprocessCleanerFuture != null) {
+        reprocessCleanerFuture.cancel(true);
+      }
       LOGGER.info("pipe {}: cleaner terminated", pipeName);
     }
 
@@ -621,7 +1097,7 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
             processedOffset.set(snowflakeRecord.kafkaOffset());
             pipeStatus.setProcessedOffset(snowflakeRecord.kafkaOffset());
             buffer.insert(snowflakeRecord);
-            if (buffer.getBufferSizeBytes() >= getFileSize()
+            if (isFileSizeReached(buffer)
                 || (getRecordNumber() != 0 && buffer.getNumOfRecords() >= getRecordNumber())) {
               tmpBuff = buffer;
               this.buffer = new SnowpipeBuffer();
@@ -637,6 +1113,17 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
       }
     }
 
+    /**
+     * The size of a buffer is either its compressed size, if a target compressed file size is
+     * set, or the size of the uncompressed records
+     */
+    private boolean isFileSizeReached(final SnowpipeBuffer buffer) {
+      if (targetCompressedFileSize > 0) {
+        return buffer.getCompressedSizeBytes() >= targetCompressedFileSize;
+      }
+      return buffer.getBufferSizeBytes() >= getFileSize();
+    }
+
     private boolean shouldConvertContent(final Object content) {
       return content != null && !(content instanceof SnowflakeRecordContent);
     }
@@ -692,6 +1179,16 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
       return (System.currentTimeMillis() - this.previousFlushTimeStamp) >= (getFlushTime() * 1000);
     }
 
+    /** @return time at which the buffer is flushed by time unless it is flushed earlier */
+    private long getFlushDeadlineMs() {
+      return this.previousFlushTimeStamp + getFlushTime() * 1000;
+    }
+
+    /** @return bytes held in memory by the buffer, nothing once it is spilled to disk */
+    private long getBufferedBytes() {
+      return buffer.getAllocatedSizeBytes();
+    }
+
     private void flushBuffer() {
       // Just checking buffer size, no atomic operation required
       if (buffer.isEmpty()) {
@@ -734,20 +1231,21 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
     }
 
     private long getOffset() {
-      if (fileNames.isEmpty()) {
+      // files are only ingested once their upload has finished
+      completeUploads(false);
+      if (stagedFiles.isEmpty()) {
         return committedOffset.get();
       }
 
-      List<String> fileNamesCopy = new ArrayList<>();
-      List<String> fileNamesForMetrics = new ArrayList<>();
+      List<StageFileLedger.StageFile> filesForMetrics;
       fileListLock.lock();
       try {
-        fileNamesCopy.addAll(fileNames);
-        fileNamesForMetrics.addAll(fileNames);
-        fileNames = new LinkedList<>();
+        filesForMetrics = stagedFiles;
+        stagedFiles = new ArrayList<>();
       } finally {
         fileListLock.unlock();
       }
+      List<String> fileNamesCopy = toFileNames(filesForMetrics);
 
       LOGGER.info("pipe {}, ingest files: {}", pipeName, fileNamesCopy);
 
@@ -758,10 +1256,9 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
       // update telemetry data
       long currentTime = System.currentTimeMillis();
       pipeStatus.setCommittedOffset(committedOffset.get() - 1);
-      pipeStatus.addAndGetFileCountOnIngestion(fileNamesForMetrics.size());
-      fileNamesForMetrics.forEach(
-          name ->
-              pipeStatus.updateCommitLag(currentTime - FileNameUtils.fileNameToTimeIngested(name)));
+      pipeStatus.addAndGetFileCountOnIngestion(filesForMetrics.size());
+      filesForMetrics.forEach(
+          file -> pipeStatus.updateCommitLag(currentTime - file.getTimeIngested()));
 
       return committedOffset.get();
     }
@@ -773,11 +1270,95 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
       this.previousFlushTimeStamp = System.currentTimeMillis();
 
       // If we failed to submit/put, throw an runtime exception that kills the connector.
-      // SnowflakeThreadPoolUtils.flusherThreadPool.submit(
       String fileName = FileNameUtils.fileName(prefix, buff.getFirstOffset(), buff.getLastOffset());
-      String content = buff.getData();
-      conn.putWithCache(stageName, fileName, content);
+      GzipFileBuffer content = buff.getData();
+      if (uploadExecutor == null) {
+        try {
+          conn.putWithCache(stageName, fileName, content);
+        } finally {
+          content.release();
+        }
+        onFileUploaded(fileName, buff);
+        return;
+      }
+
+      // Register files of earlier uploads first and wait if this partition has too many files in
+      // flight
+      completeUploads(false);
+      while (inFlightUploads.size() >= maxInFlightUploadsPerPartition) {
+        completeOldestUpload();
+      }
+
+      try {
+        uploadPermits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw SnowflakeErrors.ERROR_5018.getException(e);
+      }
+      CompletableFuture<Void> future;
+      try {
+        future =
+            CompletableFuture.runAsync(
+                () -> {
+                  try {
+                    conn.putWithCache(stageName, fileName, content);
+                  } finally {
+                    content.release();
+                    uploadPermits.release();
+                  }
+                },
+                uploadExecutor);
+      } catch (RejectedExecutionException e) {
+        content.release();
+        uploadPermits.release();
+        throw e;
+      }
+      inFlightUploads.addLast(new StageUpload(fileName, buff, future));
+      LOGGER.debug("pipe {}, uploading file in background: {}", pipeName, fileName);
+    }
+
+    /**
+     * Registers files whose upload finished, in offset order. A file is never registered before a
+     * file with smaller offsets, even if its upload finished first.
+     *
+     * @param waitForAll true to wait for all files in flight, false to only register the files
+     *     whose upload already finished
+     */
+    private void completeUploads(boolean waitForAll) {
+      while (!inFlightUploads.isEmpty()
+          && (waitForAll || inFlightUploads.peekFirst().future.isDone())) {
+        completeOldestUpload();
+      }
+    }
+
+    /**
+     * Waits for the upload of the oldest file in flight and registers it. If the upload failed,
+     * the exception of putWithCache is thrown, which kills the connector as a synchronous upload
+     * would.
+     */
+    private void completeOldestUpload() {
+      StageUpload upload = inFlightUploads.pollFirst();
+      try {
+        upload.future.join();
+      } catch (CompletionException e) {
+        // remaining uploads can not be registered since their offsets are after a missing file
+        inFlightUploads.clear();
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+      onFileUploaded(upload.fileName, upload.buffer);
+    }
 
+    /**
+     * Called once a file is on stage, moves the flushed offset and adds the file to the files
+     * which will be ingested and cleaned
+     *
+     * @param fileName name of the file on stage
+     * @param buff buffer which the file was created from
+     */
+    private void onFileUploaded(final String fileName, final SnowpipeBuffer buff) {
       // compute metrics which will be exported to JMX for now.
       // TODO: Send it to Telemetry API too
       computeBufferMetrics(buff);
@@ -788,10 +1369,11 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
       pipeStatus.addAndGetFileCountOnStage(1L); // plus one
       pipeStatus.resetMemoryUsage();
 
+      StageFileLedger.StageFile file = StageFileLedger.StageFile.of(fileName);
       fileListLock.lock();
       try {
-        fileNames.add(fileName);
-        cleanerFileNames.add(fileName);
+        stagedFiles.add(file);
+        cleanerFiles.add(file);
       } finally {
         fileListLock.unlock();
       }
@@ -800,80 +1382,67 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
     }
 
     private void checkStatus() {
-      // We are using a temporary list which will reset the cleanerFileNames
-      // After this checkStatus() call, we will have an updated cleanerFileNames which are subset of
-      // existing cleanerFileNames
-      // this time th
-      List<String> tmpFileNames;
+      // We are using a temporary ledger which will reset the cleanerFiles
+      // After this checkStatus() call, we will have an updated cleanerFiles which are subset of
+      // existing cleanerFiles
+      StageFileLedger tmpFiles;
 
       fileListLock.lock();
       try {
-        tmpFileNames = cleanerFileNames;
-        cleanerFileNames = new LinkedList<>();
+        tmpFiles = cleanerFiles;
+        cleanerFiles = new StageFileLedger();
       } finally {
         fileListLock.unlock();
       }
 
       long currentTime = System.currentTimeMillis();
-      List<String> loadedFiles = new LinkedList<>();
-      List<String> failedFiles = new LinkedList<>();
+      List<StageFileLedger.StageFile> loadedFiles = new ArrayList<>();
+      List<StageFileLedger.StageFile> failedFiles = new ArrayList<>();
 
       // ingest report
       // This will update the loadedFiles (successfully loaded) &
       // failedFiles: PARTIAL + FAILED
-      // In any cases tmpFileNames will be updated.
-      // If we get all files in ingestReport, tmpFileNames will be empty
+      // In any cases tmpFiles will be updated.
+      // If we get all files in ingestReport, tmpFiles will be empty
       filterResultFromSnowpipeScan(
-          ingestionService.readIngestReport(tmpFileNames), tmpFileNames, loadedFiles, failedFiles);
-
-      // old files
-      List<String> oldFiles = new LinkedList<>();
-
-      // iterate over a copy since failed files get removed from it
-      // Iterate over those files which were not found in ingest report call and are sitting more
-      // than an hour earlier.
-      // Also add those files into oldFiles which are not purged/found in ingestReport since last 10
-      // minutes.
-      new LinkedList<>(tmpFileNames)
-          .forEach(
-              name -> {
-                long time = FileNameUtils.fileNameToTimeIngested(name);
-                if (time < currentTime - ONE_HOUR) {
-                  failedFiles.add(name);
-                  tmpFileNames.remove(name);
-                } else if (time < currentTime - TEN_MINUTES) {
-                  oldFiles.add(name);
-                }
-              });
+          ingestionService.readIngestReport(tmpFiles.getFileNames()),
+          tmpFiles,
+          loadedFiles,
+          failedFiles);
+
+      // Files which were not found in ingest report call and are sitting more than an hour
+      // earlier are failed.
+      failedFiles.addAll(tmpFiles.removeIngestedBefore(currentTime - ONE_HOUR));
+
       // load history
-      // Use loadHistoryScan API to scan last one hour of data and if filter files from above
-      // filtered list.
+      // If some files are not purged/found in ingestReport since last 10 minutes, use
+      // loadHistoryScan API to scan last one hour of data and filter files from the ledger.
       // This is the last filtering we do and after this, we start purging loadedFiles and moving
       // failedFiles to tableStage
-      if (!oldFiles.isEmpty()) {
+      if (tmpFiles.hasIngestedBefore(currentTime - TEN_MINUTES)) {
         filterResultFromSnowpipeScan(
-            ingestionService.readOneHourHistory(tmpFileNames, currentTime - ONE_HOUR),
-            tmpFileNames,
+            ingestionService.readOneHourHistory(tmpFiles.getFileNames(), currentTime - ONE_HOUR),
+            tmpFiles,
             loadedFiles,
             failedFiles);
       }
-      purge(loadedFiles);
+      purge(toFileNames(loadedFiles));
 
-      moveToTableStage(failedFiles);
+      moveToTableStage(toFileNames(failedFiles));
 
       fileListLock.lock();
       try {
         // Add back all those files which were neither found in ingestReport nor in loadHistoryScan
-        cleanerFileNames.addAll(tmpFileNames);
+        cleanerFiles.addAll(tmpFiles);
       } finally {
         fileListLock.unlock();
       }
 
       // update purged offset in telemetry
       loadedFiles.forEach(
-          name ->
+          file ->
               pipeStatus.setPurgedOffsetAtomically(
-                  value -> Math.max(FileNameUtils.fileNameToEndOffset(name), value)));
+                  value -> Math.max(file.getEndOffset(), value)));
       // update file count in telemetry
       int fileCountRemovedFromStage = loadedFiles.size() + failedFiles.size();
       pipeStatus.addAndGetFileCountOnStage(-fileCountRemovedFromStage);
@@ -883,29 +1452,25 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
       pipeStatus.addAndGetFileCountPurged(loadedFiles.size());
       // update lag information
       loadedFiles.forEach(
-          name ->
-              pipeStatus.updateIngestionLag(
-                  currentTime - FileNameUtils.fileNameToTimeIngested(name)));
+          file -> pipeStatus.updateIngestionLag(currentTime - file.getTimeIngested()));
     }
 
     // fileStatus Map may include mapping of fileNames with their ingestion status.
     // It can be received either from insertReport API or loadHistoryScan
     private void filterResultFromSnowpipeScan(
         Map<String, InternalUtils.IngestedFileStatus> fileStatus,
-        List<String> allFiles,
-        List<String> loadedFiles,
-        List<String> failedFiles) {
+        StageFileLedger allFiles,
+        List<StageFileLedger.StageFile> loadedFiles,
+        List<StageFileLedger.StageFile> failedFiles) {
       fileStatus.forEach(
           (name, status) -> {
             switch (status) {
               case LOADED:
-                loadedFiles.add(name);
-                allFiles.remove(name);
+                addRemovedFile(allFiles, name, loadedFiles);
                 break;
               case FAILED:
               case PARTIALLY_LOADED:
-                failedFiles.add(name);
-                allFiles.remove(name);
+                addRemovedFile(allFiles, name, failedFiles);
                 break;
               default:
                 // otherwise, do nothing
@@ -913,6 +1478,16 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
           });
     }
 
+    private void addRemovedFile(
+        StageFileLedger allFiles, String name, List<StageFileLedger.StageFile> files) {
+      StageFileLedger.StageFile file = allFiles.remove(name);
+      files.add(file == null ? StageFileLedger.StageFile.of(name) : file);
+    }
+
+    private List<String> toFileNames(List<StageFileLedger.StageFile> files) {
+      return files.stream().map(StageFileLedger.StageFile::getName).collect(Collectors.toList());
+    }
+
     private void purge(List<String> files) {
       if (!files.isEmpty()) {
         LOGGER.debug(
@@ -954,6 +1529,14 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
       } catch (Exception e) {
         LOGGER.warn("Failed to terminate Cleaner or Flusher");
       }
+      try {
+        // files left on stage without being ingested are handled by the cleaner of the next owner
+        completeUploads(true);
+      } catch (Exception e) {
+        LOGGER.warn("pipe {}: failed to finish uploading files: {}", pipeName, e.getMessage());
+      }
+      // records which are not flushed are sent again to the next owner of the partition
+      buffer.release();
       ingestionService.close();
       telemetryService.reportKafkaPartitionUsage(pipeStatus, true);
       LOGGER.info("pipe {}: service closed", pipeName);
@@ -1025,6 +1608,19 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
       return this.metricRegistry;
     }
 
+    /** A file being uploaded to stage in background */
+    private class StageUpload {
+      private final String fileName;
+      private final SnowpipeBuffer buffer;
+      private final CompletableFuture<Void> future;
+
+      private StageUpload(String fileName, SnowpipeBuffer buffer, CompletableFuture<Void> future) {
+        this.fileName = fileName;
+        this.buffer = buffer;
+        this.future = future;
+      }
+    }
+
     /**
      * Implementation of Buffer for Snowpipe based implementation of KC.
      *
@@ -1036,12 +1632,13 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
      * when we would generate files in internal stage for snowpipe to ingest later using Snowpipe's
      * REST APIs
      */
-    private class SnowpipeBuffer extends PartitionBuffer<String> {
-      private final StringBuilder stringBuilder;
+    private class SnowpipeBuffer extends PartitionBuffer<GzipFileBuffer> {
+      // created with the first record, every buffer holds a deflater
+      private GzipFileBuffer file;
 
       private SnowpipeBuffer() {
         super();
-        stringBuilder = new StringBuilder();
+        file = null;
       }
 
       @Override
@@ -1050,25 +1647,59 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
         if (getBufferSizeBytes() == 0L) {
           setFirstOffset(record.kafkaOffset());
         }
+        if (file == null) {
+          file = new GzipFileBuffer(spillDirectory, spillThreshold);
+        }
 
-        stringBuilder.append(data);
+        long allocatedSize = file.getAllocatedSize();
+        file.write(data);
         setNumOfRecords(getNumOfRecords() + 1);
         setBufferSizeBytes(getBufferSizeBytes() + data.length() * 2L); // 1 char = 2 bytes
         setLastOffset(record.kafkaOffset());
-        pipeStatus.addAndGetMemoryUsage(data.length() * 2L);
+        // only the compressed data is kept in memory
+        pipeStatus.addAndGetMemoryUsage(file.getAllocatedSize() - allocatedSize);
+      }
+
+      /**
+       * @return number of bytes output by the compression so far, less than the final file size
+       *     by what the deflater still holds
+       */
+      public long getCompressedSizeBytes() {
+        return file == null ? 0 : file.getCompressedSize();
       }
 
-      public String getData() {
-        String result = stringBuilder.toString();
+      /** @return number of bytes of the compressed data kept in memory */
+      public long getAllocatedSizeBytes() {
+        return file == null ? 0 : file.getAllocatedSize();
+      }
+
+      /**
+       * Finish the compressed file, no record can be inserted after it
+       *
+       * @return the file content, which must be released after it is uploaded
+       */
+      public GzipFileBuffer getData() {
+        if (file == null) {
+          file = new GzipFileBuffer();
+        }
+        file.finish();
         LOGGER.debug(
-            "flush buffer: {} records, {} bytes, offset {} - {}",
+            "flush buffer: {} records, {} bytes, {} compressed bytes, offset {} - {}",
             getNumOfRecords(),
             getBufferSizeBytes(),
+            file.getCompressedSize(),
             getFirstOffset(),
             getLastOffset());
         pipeStatus.addAndGetTotalSizeOfData(getBufferSizeBytes());
         pipeStatus.addAndGetTotalNumberOfRecord(getNumOfRecords());
-        return result;
+        return file;
+      }
+
+      /** Drop the buffered data without uploading it */
+      public void release() {
+        if (file != null) {
+          file.release();
+        }
       }
 
       @Override
@@ -1080,14 +1711,15 @@ class SnowflakeSinkServiceV1 implements SnowflakeSinkService {
   }
 
   /**
-   * Only used for testing Given a pipename, find out if buffer for this pipe has any data inserted.
+   * Only used for testing Given a partition, find out if buffer for this pipe has any data
+   * inserted.
    *
-   * @param pipeName
+   * @param topicPartition
    * @return
    */
-  protected boolean isPartitionBufferEmpty(final String pipeName) {
-    if (pipes.containsKey(pipeName)) {
-      return pipes.get(pipeName).isBufferEmpty();
+  protected boolean isPartitionBufferEmpty(final TopicPartition topicPartition) {
+    if (pipes.containsKey(topicPartition)) {
+      return pipes.get(topicPartition).isBufferEmpty();
     }
     return false;
   }
@@ -0,0 +1,179 @@
+package com.snowflake.kafka.connector.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Files of one pipe which are on stage and waiting for their ingestion status. The offsets and the
+ * ingestion time of every file are parsed from its name only once, when the file is added.
+ *
+ * <p>Files are indexed by name, so that a status change found in the ingest report or the load
+ * history is applied in constant time, and by ingestion time, so that the files older than a given
+ * time are found without scanning the whole ledger.
+ *
+ * <p>Not thread safe, callers synchronize the access.
+ */
+class StageFileLedger {
+  private static final Comparator<StageFile> BY_TIME_INGESTED =
+      Comparator.comparingLong(StageFile::getTimeIngested).thenComparing(StageFile::getName);
+
+  private final Map<String, StageFile> filesByName;
+  private final NavigableSet<StageFile> filesByTime;
+
+  StageFileLedger() {
+    this.filesByName = new HashMap<>();
+    this.filesByTime = new TreeSet<>(BY_TIME_INGESTED);
+  }
+
+  /**
+   * Add a file to the ledger
+   *
+   * @param file file on stage
+   * @return false if the file was already in the ledger
+   */
+  boolean add(StageFile file) {
+    if (filesByName.putIfAbsent(file.getName(), file) != null) {
+      return false;
+    }
+    filesByTime.add(file);
+    return true;
+  }
+
+  /**
+   * Add files to the ledger, files already in the ledger are ignored
+   *
+   * @param fileNames names of files on stage
+   */
+  void addAll(Collection<String> fileNames) {
+    for (String fileName : fileNames) {
+      if (!filesByName.containsKey(fileName)) {
+        add(StageFile.of(fileName));
+      }
+    }
+  }
+
+  /**
+   * Add all files of another ledger, files already in this ledger are ignored
+   *
+   * @param other another ledger
+   */
+  void addAll(StageFileLedger other) {
+    other.filesByName.values().forEach(this::add);
+  }
+
+  /**
+   * Remove a file from the ledger
+   *
+   * @param fileName file name
+   * @return the removed file, null if the file was not in the ledger
+   */
+  StageFile remove(String fileName) {
+    StageFile file = filesByName.remove(fileName);
+    if (file != null) {
+      filesByTime.remove(file);
+    }
+    return file;
+  }
+
+  /**
+   * Remove all files ingested before the given time
+   *
+   * @param time timestamp in milliseconds, exclusive
+   * @return removed files, ordered by ingestion time
+   */
+  List<StageFile> removeIngestedBefore(long time) {
+    List<StageFile> result = new ArrayList<>();
+    Iterator<StageFile> iterator = filesByTime.iterator();
+    while (iterator.hasNext()) {
+      StageFile file = iterator.next();
+      if (file.getTimeIngested() >= time) {
+        break;
+      }
+      iterator.remove();
+      filesByName.remove(file.getName());
+      result.add(file);
+    }
+    return result;
+  }
+
+  /**
+   * @param time timestamp in milliseconds, exclusive
+   * @return true if at least one file was ingested before the given time
+   */
+  boolean hasIngestedBefore(long time) {
+    return !filesByTime.isEmpty() && filesByTime.first().getTimeIngested() < time;
+  }
+
+  /** @return names of all files, ordered by ingestion time */
+  List<String> getFileNames() {
+    List<String> result = new ArrayList<>(filesByTime.size());
+    filesByTime.forEach(file -> result.add(file.getName()));
+    return result;
+  }
+
+  int size() {
+    return filesByName.size();
+  }
+
+  boolean isEmpty() {
+    return filesByName.isEmpty();
+  }
+
+  /** A file on stage with the information encoded in its name */
+  static final class StageFile {
+    private final String name;
+    private final long startOffset;
+    private final long endOffset;
+    private final long timeIngested;
+
+    private StageFile(String name, long startOffset, long endOffset, long timeIngested) {
+      this.name = name;
+      this.startOffset = startOffset;
+      this.endOffset = endOffset;
+      this.timeIngested = timeIngested;
+    }
+
+    /**
+     * Parse a file name generated by {@link FileNameUtils#fileName(String, String, int, long,
+     * long)}
+     *
+     * @param fileName file name
+     * @return stage file
+     */
+    static StageFile of(String fileName) {
+      return new StageFile(
+          fileName,
+          FileNameUtils.fileNameToStartOffset(fileName),
+          FileNameUtils.fileNameToEndOffset(fileName),
+          FileNameUtils.fileNameToTimeIngested(fileName));
+    }
+
+    String getName() {
+      return name;
+    }
+
+    long getStartOffset() {
+      return startOffset;
+    }
+
+    long getEndOffset() {
+      return endOffset;
+    }
+
+    long getTimeIngested() {
+      return timeIngested;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.snowflake.kafka.connector.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.ErrantRecordReporter;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+
+/**
+ * SinkTaskContext whose calls are serialized, since the context of Kafka Connect is not thread
+ * safe while partitions are opened or records are inserted on several threads during a call of the
+ * task. Kafka Connect only reads the context once the call returns.
+ *
+ * <p>Offsets can also be collected while other threads run and applied to the context of Kafka
+ * Connect on the task thread afterwards, see {@link #deferOffsets()}.
+ */
+public class SynchronizedSinkTaskContext implements SinkTaskContext {
+  private final SinkTaskContext context;
+
+  // Offsets reset while deferring, null when offsets are applied right away
+  private Map<TopicPartition, Long> deferredOffsets;
+
+  private SynchronizedSinkTaskContext(SinkTaskContext context) {
+    this.context = context;
+  }
+
+  /**
+   * @param context context of the task, may be null in tests
+   * @return the context with serialized calls, null if the context is null
+   */
+  public static SynchronizedSinkTaskContext wrap(SinkTaskContext context) {
+    if (context == null || context instanceof SynchronizedSinkTaskContext) {
+      return (SynchronizedSinkTaskContext) context;
+    }
+    return new SynchronizedSinkTaskContext(context);
+  }
+
+  /**
+   * Collects the offsets reset from now on instead of passing them to Kafka Connect, until {@link
+   * #applyDeferredOffsets()} is invoked on the task thread.
+   */
+  public synchronized void deferOffsets() {
+    if (deferredOffsets == null) {
+      deferredOffsets = new HashMap<>();
+    }
+  }
+
+  /** Passes the offsets collected since {@link #deferOffsets()} to Kafka Connect. */
+  public synchronized void applyDeferredOffsets() {
+    if (deferredOffsets == null) {
+      return;
+    }
+    final Map<TopicPartition, Long> offsets = deferredOffsets;
+    deferredOffsets = null;
+    if (!offsets.isEmpty()) {
+      context.offset(offsets);
+    }
+  }
+
+  @Override
+  public synchronized Map<String, String> configs() {
+    return context.configs();
+  }
+
+  @Override
+  public synchronized void offset(Map<TopicPartition, Long> offsets) {
+    if (deferredOffsets != null) {
+      deferredOffsets.putAll(offsets);
+    } else {
+      context.offset(offsets);
+    }
+  }
+
+  @Override
+  public synchronized void offset(TopicPartition tp, long offset) {
+    if (deferredOffsets != null) {
+      deferredOffsets.put(tp, offset);
+    } else {
+      context.offset(tp, offset);
+    }
+  }
+
+  @Override
+  public synchronized void timeout(long timeoutMs) {
+    context.timeout(timeoutMs);
+  }
+
+  @Override
+  public synchronized Set<TopicPartition> assignment() {
+    return context.assignment();
+  }
+
+  @Override
+  public synchronized void pause(TopicPartition... partitions) {
+    context.pause(partitions);
+  }
+
+  @Override
+  public synchronized void resume(TopicPartition... partitions) {
+    context.resume(partitions);
+  }
+
+  @Override
+  public synchronized void requestCommit() {
+    context.requestCommit();
+  }
+
+  @Override
+  public synchronized ErrantRecordReporter errantRecordReporter() {
+    return context.errantRecordReporter();
+  }
+}
@@ -0,0 +1,189 @@
+package com.snowflake.kafka.connector.internal;
+
+import com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+
+/**
+ * Memory budget shared by the buffers of all partitions of a task, on top of the per partition
+ * buffer thresholds.
+ *
+ * <p>Once the buffered bytes of all partitions exceed the budget, the largest buffers are flushed
+ * right away. Partitions buffering more than their share of the budget are paused once most of the
+ * budget is used, so that Kafka stops sending their records, and resumed once enough memory is
+ * released by the time based flushes.
+ *
+ * <p>Not thread safe, only used by the task thread.
+ */
+public class TaskMemoryBudget {
+  private static final KCLogger LOGGER = new KCLogger(TaskMemoryBudget.class.getName());
+
+  // Partitions above their share are paused once this fraction of the budget is used, and forced
+  // flushes stop once the usage is back under it
+  static final double PAUSE_RATIO = 0.8;
+  // Paused partitions are resumed once the usage is under this fraction of the budget
+  static final double RESUME_RATIO = 0.5;
+
+  private final long maxBytes;
+  private final Map<TopicPartition, Long> bufferedBytes;
+  private long totalBytes;
+  private final Set<TopicPartition> pausedPartitions;
+
+  /** @param maxBytes bytes which can be buffered by all partitions of the task */
+  public TaskMemoryBudget(long maxBytes) {
+    this.maxBytes = maxBytes;
+    this.bufferedBytes = new HashMap<>();
+    this.totalBytes = 0;
+    this.pausedPartitions = new HashSet<>();
+  }
+
+  /**
+   * @param connectorConfig connector config, may be null in tests
+   * @return budget configured by {@link
+   *     SnowflakeSinkConnectorConfig#BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_CONFIG}, null if disabled
+   */
+  public static TaskMemoryBudget fromConfig(Map<String, String> connectorConfig) {
+    if (connectorConfig == null
+        || !connectorConfig.containsKey(
+            SnowflakeSinkConnectorConfig.BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_CONFIG)) {
+      return null;
+    }
+    long maxBytes =
+        Long.parseLong(
+            connectorConfig.get(
+                SnowflakeSinkConnectorConfig.BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_CONFIG));
+    return maxBytes > 0 ? new TaskMemoryBudget(maxBytes) : null;
+  }
+
+  /**
+   * Set the number of bytes buffered by a partition, e.g. after a record is added to its buffer or
+   * after its buffer is flushed
+   *
+   * @param partition topic partition
+   * @param bytes bytes held in memory by the buffer of the partition
+   */
+  public void update(TopicPartition partition, long bytes) {
+    Long previous = bufferedBytes.put(partition, bytes);
+    totalBytes += bytes - (previous == null ? 0 : previous);
+  }
+
+  /**
+   * Set the number of bytes buffered by a partition and flush the largest buffers if the budget is
+   * exceeded, until most of the budget is available again
+   *
+   * @param partition topic partition
+   * @param bytes bytes held in memory by the buffer of the partition
+   * @param flushBuffer flushes the buffer of a partition and returns its bytes left in memory
+   */
+  public void updateAndEnforce(
+      TopicPartition partition, long bytes, ToLongFunction<TopicPartition> flushBuffer) {
+    update(partition, bytes);
+    if (totalBytes <= maxBytes) {
+      return;
+    }
+    List<Map.Entry<TopicPartition, Long>> partitions = new ArrayList<>(bufferedBytes.entrySet());
+    partitions.sort(Map.Entry.<TopicPartition, Long>comparingByValue().reversed());
+    long usedBytes = totalBytes;
+    int flushed = 0;
+    for (Map.Entry<TopicPartition, Long> entry : partitions) {
+      if (totalBytes <= maxBytes * PAUSE_RATIO || entry.getValue() == 0) {
+        break;
+      }
+      update(entry.getKey(), flushBuffer.applyAsLong(entry.getKey()));
+      flushed++;
+    }
+    LOGGER.info(
+        "Task memory budget of {} bytes exceeded with {} buffered bytes, flushed {} buffers, {}"
+            + " bytes left",
+        maxBytes,
+        usedBytes,
+        flushed,
+        totalBytes);
+  }
+
+  /**
+   * Pause the partitions above their share of the budget if most of it is used, or resume the
+   * paused partitions once enough memory is released. Called once per put.
+   *
+   * @param context context of the task, null in tests without Kafka Connect
+   */
+  public void applyBackpressure(SinkTaskContext context) {
+    if (context == null) {
+      return;
+    }
+    if (totalBytes >= maxBytes * PAUSE_RATIO) {
+      long share = maxBytes / Math.max(1, bufferedBytes.size());
+      List<TopicPartition> partitionsToPause = new ArrayList<>();
+      bufferedBytes.forEach(
+          (partition, bytes) -> {
+            if (bytes > share && !pausedPartitions.contains(partition)) {
+              partitionsToPause.add(partition);
+            }
+          });
+      if (!partitionsToPause.isEmpty()) {
+        LOGGER.info(
+            "Pausing partitions {} above their share of {} bytes, {} bytes buffered by the task",
+            partitionsToPause,
+            share,
+            totalBytes);
+        context.pause(partitionsToPause.toArray(new TopicPartition[0]));
+        pausedPartitions.addAll(partitionsToPause);
+      }
+    } else if (totalBytes <= maxBytes * RESUME_RATIO && !pausedPartitions.isEmpty()) {
+      LOGGER.info(
+          "Resuming partitions {}, {} bytes buffered by the task", pausedPartitions, totalBytes);
+      context.resume(pausedPartitions.toArray(new TopicPartition[0]));
+      pausedPartitions.clear();
+    }
+  }
+
+  /**
+   * Stop tracking closed partitions, they are not resumed since they are no longer assigned
+   *
+   * @param partitions closed partitions
+   */
+  public void remove(Collection<TopicPartition> partitions) {
+    for (TopicPartition partition : partitions) {
+      Long bytes = bufferedBytes.remove(partition);
+      if (bytes != null) {
+        totalBytes -= bytes;
+      }
+      pausedPartitions.remove(partition);
+    }
+  }
+
+  /**
+   * Stop tracking the buffers of partitions whose channels were dropped while they are still
+   * assigned. Paused partitions stay paused until the next {@link #applyBackpressure} resumes them,
+   * since no record would otherwise come for them.
+   *
+   * @param partitions partitions whose buffers were dropped
+   */
+  public void release(Collection<TopicPartition> partitions) {
+    for (TopicPartition partition : partitions) {
+      Long bytes = bufferedBytes.remove(partition);
+      if (bytes != null) {
+        totalBytes -= bytes;
+      }
+    }
+  }
+
+  /** @return bytes buffered by all partitions */
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /** @return partitions paused by this budget */
+  public Set<TopicPartition> getPausedPartitions() {
+    return Collections.unmodifiableSet(pausedPartitions);
+  }
+}
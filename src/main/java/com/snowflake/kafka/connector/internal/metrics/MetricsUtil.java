@@ -70,6 +70,12 @@ public class MetricsUtil {
    */
   public static final String PURGED_OFFSET = "purged-offset";
 
+  /**
+   * Milliseconds since the committed offset token of a streaming channel was fetched in
+   * background. Only registered when committed offset polling is enabled.
+   */
+  public static final String COMMITTED_OFFSET_STALENESS_MS = "committed-offset-staleness-ms";
+
   // Buffer related constants
   public static final String BUFFER_SUB_DOMAIN = "buffer";
 
@@ -79,6 +85,42 @@ public class MetricsUtil {
   // in memory buffer count representing the number of records in kafka
   public static final String BUFFER_RECORD_COUNT = "buffer-record-count";
 
+  // Streaming insertRows related constants
+  public static final String INSERT_ROWS_SUB_DOMAIN = "insert-rows";
+
+  /**
+   * Number of buffers of a streaming channel which are waiting for (or are in) insertRows API.
+   * Only non zero when pipelined insert is enabled.
+   */
+  public static final String IN_FLIGHT_BUFFER_COUNT = "in-flight-buffer-count";
+
+  // Partition open related constants, registered per task
+  public static final String PARTITION_OPEN_SUB_DOMAIN = "partition-open";
+
+  /**
+   * Time in milliseconds taken by {@link org.apache.kafka.connect.sink.SinkTask#open(Collection)}
+   * to open all partitions assigned to the task.
+   */
+  public static final String TASK_OPEN_TIME_MS = "task-open-time-ms";
+
+  /**
+   * Time in milliseconds taken to open a single partition during {@link
+   * org.apache.kafka.connect.sink.SinkTask#open(Collection)}, i.e. its channel or its pipe, not
+   * including the time it waited for other partitions opened in parallel. Updated once per opened
+   * partition.
+   */
+  public static final String PARTITION_OPEN_LATENCY_MS = "partition-open-latency-ms";
+
+  /**
+   * Name under which task level metrics are registered, in place of the pipe or channel name.
+   *
+   * @param taskId id of the task
+   * @return task name
+   */
+  public static String taskMetricPrefix(final String taskId) {
+    return "task_" + taskId;
+  }
+
   // Event Latency related constants
 
   public static final String LATENCY_SUB_DOMAIN = "latencies";
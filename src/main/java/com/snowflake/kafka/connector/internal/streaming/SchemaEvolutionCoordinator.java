@@ -0,0 +1,274 @@
+package com.snowflake.kafka.connector.internal.streaming;
+
+import com.snowflake.kafka.connector.internal.KCLogger;
+import com.snowflake.kafka.connector.internal.SnowflakeConnectionService;
+import com.snowflake.kafka.connector.internal.SnowflakeKafkaConnectorException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nonnull;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+/**
+ * Coordinates schema evolution of the tables of a task, shared by all {@link
+ * TopicPartitionChannel}s of the task.
+ *
+ * <p>Many partitions usually map to the same table and hit the same schema mismatch at about the
+ * same time. Instead of every channel issuing the same ALTER TABLE:
+ *
+ * <ul>
+ *   <li>Columns of each table are cached, columns which are already present (or already nullable)
+ *       are not altered again. Columns cached before the request are loaded again before deciding
+ *       there is nothing to alter, since the table might have changed outside of the connector.
+ *   <li>Evolution of a table is single flight. Concurrent requests wait for the ALTER TABLE in
+ *       progress and only alter what is still missing after it, which usually is nothing.
+ *   <li>Channels only reopen once the ALTER TABLE has landed, since {@link #evolveSchemaIfNeeded}
+ *       returns once the evolved columns are visible when describing the table.
+ *   <li>Each ALTER TABLE bumps the schema version of the table. Channels of the table opened
+ *       before that reopen once before their next insert (Check {@link #getSchemaVersion}),
+ *       instead of each one finding out through rejected rows.
+ * </ul>
+ */
+public class SchemaEvolutionCoordinator {
+  private static final KCLogger LOGGER = new KCLogger(SchemaEvolutionCoordinator.class.getName());
+
+  // Columns are loaded again until the ALTER TABLE is visible, at most this many times
+  static final int MAX_DDL_VISIBILITY_CHECKS = 10;
+
+  static final long DURATION_BETWEEN_DDL_VISIBILITY_CHECKS_MS = 200;
+
+  // Connection which will be used to describe and alter tables
+  private final SnowflakeConnectionService conn;
+
+  // Key is table name, value is the cached view of the table's columns
+  private final ConcurrentMap<String, TableColumns> tableColumns = new ConcurrentHashMap<>();
+
+  public SchemaEvolutionCoordinator(@Nonnull SnowflakeConnectionService conn) {
+    this.conn = conn;
+  }
+
+  /**
+   * Evolves the table for a single record. Check {@link
+   * SchematizationUtils#evolveSchemaIfNeeded(SnowflakeConnectionService, String, List, List,
+   * SinkRecord)}
+   *
+   * @param tableName table name
+   * @param nonNullableColumns a list of columns that needs to update the nullability
+   * @param extraColNames a list of columns that needs to be updated
+   * @param record the sink record that contains the schema and actual data
+   */
+  public void evolveSchemaIfNeeded(
+      String tableName,
+      List<String> nonNullableColumns,
+      List<String> extraColNames,
+      SinkRecord record) {
+    evolveSchemaIfNeeded(
+        tableName,
+        nonNullableColumns,
+        extraColNames == null ? null : SchematizationUtils.getColumnTypes(record, extraColNames));
+  }
+
+  /**
+   * Evolves the table so that it has all extra columns and none of the non nullable columns is NOT
+   * NULL anymore. Only one evolution per table runs at a time.
+   *
+   * @param tableName table name
+   * @param nonNullableColumns a list of columns that needs to update the nullability
+   * @param extraColumnsToType a map from the columns that needs to be added to their types
+   */
+  public void evolveSchemaIfNeeded(
+      String tableName,
+      List<String> nonNullableColumns,
+      Map<String, String> extraColumnsToType) {
+    final long requestedAtNanos = System.nanoTime();
+    final TableColumns columns = tableColumns.computeIfAbsent(tableName, k -> new TableColumns());
+    synchronized (columns) {
+      Map<String, Boolean> columnToNullable = columns.getOrLoad(tableName);
+      List<String> columnsToAlter = getColumnsToAlter(columnToNullable, nonNullableColumns);
+      Map<String, String> columnsToAdd = getColumnsToAdd(columnToNullable, extraColumnsToType);
+
+      // Rows were rejected for these columns. Unless the columns were loaded by an evolution which
+      // ran while this request waited, the cache might miss a change done outside of the connector
+      if (isEmpty(columnsToAlter)
+          && isEmpty(columnsToAdd)
+          && columns.isLoadedBefore(requestedAtNanos)) {
+        columns.invalidate();
+        columnToNullable = columns.getOrLoad(tableName);
+        columnsToAlter = getColumnsToAlter(columnToNullable, nonNullableColumns);
+        columnsToAdd = getColumnsToAdd(columnToNullable, extraColumnsToType);
+      }
+
+      final boolean hasColumnsToAlter = !isEmpty(columnsToAlter);
+      final boolean hasColumnsToAdd = !isEmpty(columnsToAdd);
+      if (!hasColumnsToAlter && !hasColumnsToAdd) {
+        LOGGER.info(
+            "Table:{} was already evolved for nonNullableColumns:{}, extraColumns:{}",
+            tableName,
+            nonNullableColumns,
+            extraColumnsToType == null ? null : extraColumnsToType.keySet());
+        return;
+      }
+
+      SchematizationUtils.evolveSchemaIfNeeded(
+          this.conn,
+          tableName,
+          hasColumnsToAlter ? columnsToAlter : null,
+          hasColumnsToAdd ? columnsToAdd : null);
+      columns.schemaVersion++;
+
+      // Failures are only logged by SchematizationUtils since another task might have altered the
+      // table. Channels reopened after this returns must see the evolved columns.
+      columns.reloadUntilEvolved(
+          tableName,
+          hasColumnsToAlter ? columnsToAlter : null,
+          hasColumnsToAdd ? columnsToAdd.keySet() : null);
+    }
+  }
+
+  /**
+   * Returns the schema version of the table, which is bumped every time the table is altered. A
+   * channel opened before the version changed doesn't know about the evolved columns yet.
+   *
+   * @param tableName table name
+   * @return schema version of the table, 0 if it was never altered by this task
+   */
+  public long getSchemaVersion(String tableName) {
+    final TableColumns columns = tableColumns.get(tableName);
+    return columns == null ? 0 : columns.schemaVersion;
+  }
+
+  /** @return columns which are not nullable yet, null if no column needs to be nullable */
+  private static List<String> getColumnsToAlter(
+      Map<String, Boolean> columnToNullable, List<String> nonNullableColumns) {
+    if (nonNullableColumns == null) {
+      return null;
+    }
+    final List<String> columnsToAlter = new ArrayList<>();
+    for (String columnName : nonNullableColumns) {
+      if (columnToNullable == null
+          || !columnToNullable.getOrDefault(SchematizationUtils.formatName(columnName), false)) {
+        columnsToAlter.add(columnName);
+      }
+    }
+    return columnsToAlter;
+  }
+
+  /** @return columns which are not present yet to their types, null if no column needs adding */
+  private static Map<String, String> getColumnsToAdd(
+      Map<String, Boolean> columnToNullable, Map<String, String> extraColumnsToType) {
+    if (extraColumnsToType == null) {
+      return null;
+    }
+    final Map<String, String> columnsToAdd = new LinkedHashMap<>();
+    for (Map.Entry<String, String> columnToType : extraColumnsToType.entrySet()) {
+      if (columnToNullable == null
+          || !columnToNullable.containsKey(
+              SchematizationUtils.formatName(columnToType.getKey()))) {
+        columnsToAdd.put(columnToType.getKey(), columnToType.getValue());
+      }
+    }
+    return columnsToAdd;
+  }
+
+  private static boolean isEmpty(List<String> columns) {
+    return columns == null || columns.isEmpty();
+  }
+
+  private static boolean isEmpty(Map<String, String> columns) {
+    return columns == null || columns.isEmpty();
+  }
+
+  /** Cached columns of one table, also used as the lock for evolving that table */
+  private class TableColumns {
+    // Column name to whether it is nullable, null if not loaded
+    private Map<String, Boolean> columnToNullable;
+
+    // System.nanoTime() when the columns were loaded
+    private long loadedAtNanos;
+
+    // Number of times the table was altered, read by channels without holding the lock
+    private volatile long schemaVersion;
+
+    /** @return columns of the table, null if the table could not be described */
+    private Map<String, Boolean> getOrLoad(String tableName) {
+      if (columnToNullable == null) {
+        try {
+          columnToNullable = new HashMap<>(conn.describeTableColumns(tableName));
+          loadedAtNanos = System.nanoTime();
+        } catch (SnowflakeKafkaConnectorException e) {
+          LOGGER.warn(
+              "Failure describing table:{}, altering it without checking the columns, msg:{}",
+              tableName,
+              e.getMessage());
+        }
+      }
+      return columnToNullable;
+    }
+
+    /**
+     * Loads the columns again until the evolved columns are visible. Gives up if the table can't be
+     * described or after {@link #MAX_DDL_VISIBILITY_CHECKS} checks, the columns are then loaded
+     * again next time.
+     *
+     * @param tableName table name
+     * @param nullableColumns columns which should be nullable now, may be null
+     * @param addedColumns columns which should be present now, may be null
+     */
+    private void reloadUntilEvolved(
+        String tableName, Collection<String> nullableColumns, Collection<String> addedColumns) {
+      for (int check = 0; check < MAX_DDL_VISIBILITY_CHECKS; check++) {
+        invalidate();
+        final Map<String, Boolean> loadedColumns = getOrLoad(tableName);
+        if (loadedColumns == null || isEvolved(loadedColumns, nullableColumns, addedColumns)) {
+          return;
+        }
+        try {
+          Thread.sleep(DURATION_BETWEEN_DDL_VISIBILITY_CHECKS_MS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+      LOGGER.warn(
+          "Evolved columns of table:{} are not visible yet, nullableColumns:{}, addedColumns:{}",
+          tableName,
+          nullableColumns,
+          addedColumns);
+      invalidate();
+    }
+
+    private boolean isEvolved(
+        Map<String, Boolean> loadedColumns,
+        Collection<String> nullableColumns,
+        Collection<String> addedColumns) {
+      if (nullableColumns != null) {
+        for (String columnName : nullableColumns) {
+          if (!loadedColumns.getOrDefault(SchematizationUtils.formatName(columnName), false)) {
+            return false;
+          }
+        }
+      }
+      if (addedColumns != null) {
+        for (String columnName : addedColumns) {
+          if (!loadedColumns.containsKey(SchematizationUtils.formatName(columnName))) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private boolean isLoadedBefore(long nanos) {
+      return columnToNullable != null && loadedAtNanos - nanos < 0;
+    }
+
+    private void invalidate() {
+      columnToNullable = null;
+    }
+  }
+}
@@ -66,6 +66,28 @@ public class SchematizationUtils {
       List<String> nonNullableColumns,
       List<String> extraColNames,
       SinkRecord record) {
+    evolveSchemaIfNeeded(
+        conn,
+        tableName,
+        nonNullableColumns,
+        extraColNames == null ? null : getColumnTypes(record, extraColNames));
+  }
+
+  /**
+   * Execute a ALTER TABLE command if there is any extra column that needs to be added, or any
+   * column nullability that needs to be updated, used by schema evolution when the columns of
+   * several rows are collected before altering the table once
+   *
+   * @param conn connection to the Snowflake
+   * @param tableName table name
+   * @param nonNullableColumns a list of columns that needs to update the nullability
+   * @param extraColumnsToType a map from the columns that needs to be added to their types
+   */
+  public static void evolveSchemaIfNeeded(
+      @Nonnull SnowflakeConnectionService conn,
+      String tableName,
+      List<String> nonNullableColumns,
+      Map<String, String> extraColumnsToType) {
     // Update nullability if needed, ignore any exceptions since other task might be succeeded
     if (nonNullableColumns != null) {
       try {
@@ -82,8 +104,7 @@ public class SchematizationUtils {
     }
 
     // Add columns if needed, ignore any exceptions since other task might be succeeded
-    if (extraColNames != null) {
-      Map<String, String> extraColumnsToType = getColumnTypes(record, extraColNames);
+    if (extraColumnsToType != null) {
       try {
         conn.appendColumnsToTable(tableName, extraColumnsToType);
       } catch (SnowflakeKafkaConnectorException e) {
@@ -4,27 +4,53 @@ import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.BUFFER_
 import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.SNOWPIPE_STREAMING_FILE_VERSION;
 import static com.snowflake.kafka.connector.internal.streaming.StreamingUtils.STREAMING_BUFFER_COUNT_RECORDS_DEFAULT;
 import static com.snowflake.kafka.connector.internal.streaming.StreamingUtils.STREAMING_BUFFER_FLUSH_TIME_DEFAULT_SEC;
+import static com.snowflake.kafka.connector.internal.metrics.MetricsUtil.COMMITTED_OFFSET_STALENESS_MS;
+import static com.snowflake.kafka.connector.internal.metrics.MetricsUtil.INSERT_ROWS_SUB_DOMAIN;
+import static com.snowflake.kafka.connector.internal.metrics.MetricsUtil.IN_FLIGHT_BUFFER_COUNT;
+import static com.snowflake.kafka.connector.internal.metrics.MetricsUtil.OFFSET_SUB_DOMAIN;
+import static com.snowflake.kafka.connector.internal.metrics.MetricsUtil.PARTITION_OPEN_LATENCY_MS;
+import static com.snowflake.kafka.connector.internal.metrics.MetricsUtil.PARTITION_OPEN_SUB_DOMAIN;
+import static com.snowflake.kafka.connector.internal.metrics.MetricsUtil.TASK_OPEN_TIME_MS;
 import static com.snowflake.kafka.connector.internal.streaming.TopicPartitionChannel.NO_OFFSET_TOKEN_REGISTERED_IN_SNOWFLAKE;
 import static net.snowflake.ingest.utils.ParameterProvider.BLOB_FORMAT_VERSION;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 import com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig;
 import com.snowflake.kafka.connector.Utils;
 import com.snowflake.kafka.connector.dlq.KafkaRecordErrorReporter;
+import com.snowflake.kafka.connector.internal.FlushDeadlineQueue;
 import com.snowflake.kafka.connector.internal.KCLogger;
+import com.snowflake.kafka.connector.internal.ParallelRunner;
 import com.snowflake.kafka.connector.internal.SnowflakeConnectionService;
 import com.snowflake.kafka.connector.internal.SnowflakeErrors;
 import com.snowflake.kafka.connector.internal.SnowflakeSinkService;
+import com.snowflake.kafka.connector.internal.SynchronizedSinkTaskContext;
+import com.snowflake.kafka.connector.internal.TaskMemoryBudget;
+import com.snowflake.kafka.connector.internal.metrics.MetricsJmxReporter;
+import com.snowflake.kafka.connector.internal.metrics.MetricsUtil;
 import com.snowflake.kafka.connector.internal.telemetry.SnowflakeTelemetryService;
 import com.snowflake.kafka.connector.records.RecordService;
 import com.snowflake.kafka.connector.records.SnowflakeMetadataConfig;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import net.snowflake.ingest.streaming.SnowflakeStreamingIngestClient;
 import net.snowflake.ingest.streaming.SnowflakeStreamingIngestClientFactory;
 import net.snowflake.ingest.utils.SFException;
@@ -54,6 +80,11 @@ public class SnowflakeSinkServiceV2 implements SnowflakeSinkService {
 
   private static String STREAMING_CLIENT_PREFIX_NAME = "KC_CLIENT_";
 
+  private static final long EXECUTOR_TERMINATION_TIMEOUT_SEC = 30;
+
+  // The poll itself occupies one thread of the committed offset poller
+  private static final int MIN_COMMITTED_OFFSET_POLL_THREADS = 2;
+
   // Assume next three values are a threshold after which we will call insertRows API
   // Set in config (Time based flush) in seconds
   private long flushTimeSeconds;
@@ -85,7 +116,7 @@ public class SnowflakeSinkServiceV2 implements SnowflakeSinkService {
   private KafkaRecordErrorReporter kafkaRecordErrorReporter;
 
   /* SinkTaskContext has access to all methods/APIs available to talk to Kafka Connect runtime*/
-  private SinkTaskContext sinkTaskContext;
+  private SynchronizedSinkTaskContext sinkTaskContext;
 
   // ------ Streaming Ingest ------ //
   // needs url, username. p8 key, role name
@@ -101,11 +132,52 @@ public class SnowflakeSinkServiceV2 implements SnowflakeSinkService {
   private boolean enableSchematization;
 
   /**
-   * Key is formulated in {@link #partitionChannelKey(String, int)} }
+   * Key is the TopicPartition passed from Kafka, the channel name is formulated in {@link
+   * #partitionChannelKey(String, int)}
    *
    * <p>value is the Streaming Ingest Channel implementation (Wrapped around TopicPartitionChannel)
    */
-  private final Map<String, TopicPartitionChannel> partitionsToChannel;
+  private final Map<TopicPartition, TopicPartitionChannel> partitionsToChannel;
+
+  /**
+   * Executor shared by all channels of this task to invoke insertRows API in background. Null if
+   * pipelined insert is disabled. (Check {@link
+   * SnowflakeSinkConnectorConfig#ENABLE_STREAMING_PIPELINED_INSERT_CONFIG})
+   */
+  private final ExecutorService insertRowsExecutor;
+
+  // Number of buffers per channel which can wait for insertRows API in background
+  private final int maxInFlightBuffers;
+
+  /**
+   * Refreshes the committed offset token of all channels in background so that preCommit doesn't
+   * fetch them one partition at a time. Null if committed offset polling is disabled. (Check {@link
+   * SnowflakeSinkConnectorConfig#STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG})
+   *
+   * <p>One thread runs the scheduled poll, the others fetch offset tokens of channels in parallel.
+   */
+  private final ScheduledExecutorService committedOffsetPollExecutor;
+
+  // Shared by all channels so that a table is evolved once for all partitions mapping to it
+  private final SchemaEvolutionCoordinator schemaEvolutionCoordinator;
+
+  // Registry for channel level metrics, only used if custom JMX monitoring is enabled
+  private final MetricRegistry metricRegistry;
+
+  private MetricsJmxReporter metricsJmxReporter;
+
+  // Number of partitions opened at the same time by startTasks
+  private final int partitionOpenParallelism;
+
+  // Bytes buffered by all channels, null if the limit is disabled
+  private final TaskMemoryBudget taskMemoryBudget;
+
+  // Time based flush deadlines of the channels
+  private final FlushDeadlineQueue<TopicPartition> flushDeadlines;
+
+  // Converts and buffers the records of several partitions at the same time, null if the records
+  // are inserted on the task thread
+  private final ExecutorService partitionInsertExecutor;
 
   public SnowflakeSinkServiceV2(
       SnowflakeConnectionService conn, Map<String, String> connectorConfig) {
@@ -134,7 +206,27 @@ public class SnowflakeSinkServiceV2 implements SnowflakeSinkService {
     this.streamingIngestClientName =
         STREAMING_CLIENT_PREFIX_NAME + conn.getConnectorName() + "_" + taskId;
     initStreamingClient();
-    this.partitionsToChannel = new HashMap<>();
+    // Read by the committed offset poller
+    this.partitionsToChannel = new ConcurrentHashMap<>();
+
+    this.maxInFlightBuffers = StreamingUtils.getPipelinedInsertMaxInFlightBuffers(connectorConfig);
+    this.insertRowsExecutor = createInsertRowsExecutor(connectorConfig);
+    this.metricRegistry = new MetricRegistry();
+    this.committedOffsetPollExecutor = startCommittedOffsetPoller(connectorConfig);
+    this.schemaEvolutionCoordinator = conn == null ? null : new SchemaEvolutionCoordinator(conn);
+    this.partitionOpenParallelism =
+        getIntConfig(
+            connectorConfig,
+            SnowflakeSinkConnectorConfig.PARTITION_OPEN_PARALLELISM_CONFIG,
+            SnowflakeSinkConnectorConfig.PARTITION_OPEN_PARALLELISM_DEFAULT);
+    this.partitionInsertExecutor =
+        createPartitionInsertExecutor(
+            getIntConfig(
+                connectorConfig,
+                SnowflakeSinkConnectorConfig.PARTITION_INSERT_PARALLELISM_CONFIG,
+                SnowflakeSinkConnectorConfig.PARTITION_INSERT_PARALLELISM_DEFAULT));
+    this.taskMemoryBudget = TaskMemoryBudget.fromConfig(connectorConfig);
+    this.flushDeadlines = new FlushDeadlineQueue<>();
   }
 
   @VisibleForTesting
@@ -155,7 +247,7 @@ public class SnowflakeSinkServiceV2 implements SnowflakeSinkService {
       String taskId,
       String streamingIngestClientName,
       boolean enableSchematization,
-      Map<String, TopicPartitionChannel> partitionsToChannel) {
+      Map<TopicPartition, TopicPartitionChannel> partitionsToChannel) {
     this.flushTimeSeconds = flushTimeSeconds;
     this.fileSizeBytes = fileSizeBytes;
     this.recordNum = recordNum;
@@ -166,13 +258,37 @@ public class SnowflakeSinkServiceV2 implements SnowflakeSinkService {
     this.behaviorOnNullValues = behaviorOnNullValues;
     this.enableCustomJMXMonitoring = enableCustomJMXMonitoring;
     this.kafkaRecordErrorReporter = kafkaRecordErrorReporter;
-    this.sinkTaskContext = sinkTaskContext;
+    // channels are opened and records inserted on several threads
+    this.sinkTaskContext = SynchronizedSinkTaskContext.wrap(sinkTaskContext);
     this.streamingIngestClient = streamingIngestClient;
     this.connectorConfig = connectorConfig;
     this.taskId = taskId;
     this.streamingIngestClientName = streamingIngestClientName;
     this.enableSchematization = enableSchematization;
     this.partitionsToChannel = partitionsToChannel;
+
+    this.maxInFlightBuffers =
+        connectorConfig == null
+            ? SnowflakeSinkConnectorConfig.STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_DEFAULT
+            : StreamingUtils.getPipelinedInsertMaxInFlightBuffers(connectorConfig);
+    this.insertRowsExecutor = createInsertRowsExecutor(connectorConfig);
+    this.metricRegistry = new MetricRegistry();
+    this.committedOffsetPollExecutor = startCommittedOffsetPoller(connectorConfig);
+    this.schemaEvolutionCoordinator = conn == null ? null : new SchemaEvolutionCoordinator(conn);
+    this.partitionOpenParallelism =
+        getIntConfig(
+            connectorConfig,
+            SnowflakeSinkConnectorConfig.PARTITION_OPEN_PARALLELISM_CONFIG,
+            SnowflakeSinkConnectorConfig.PARTITION_OPEN_PARALLELISM_DEFAULT);
+    this.partitionInsertExecutor =
+        createPartitionInsertExecutor(
+            getIntConfig(
+                connectorConfig,
+                SnowflakeSinkConnectorConfig.PARTITION_INSERT_PARALLELISM_CONFIG,
+                SnowflakeSinkConnectorConfig.PARTITION_INSERT_PARALLELISM_DEFAULT));
+    this.taskMemoryBudget = TaskMemoryBudget.fromConfig(connectorConfig);
+    this.flushDeadlines = new FlushDeadlineQueue<>();
+    partitionsToChannel.values().forEach(this::scheduleTimeBasedFlush);
   }
 
   /**
@@ -190,7 +306,82 @@ public class SnowflakeSinkServiceV2 implements SnowflakeSinkService {
     createTableIfNotExists(tableName);
 
     // Create channel for the given partition
-    createStreamingChannelForTopicPartition(tableName, topicPartition);
+    TopicPartitionChannel channel =
+        createStreamingChannelForTopicPartition(tableName, topicPartition);
+    registerChannelMetrics(channel);
+    scheduleTimeBasedFlush(channel);
+  }
+
+  /**
+   * Creates each destination table once, then opens the channels of all partitions on up to
+   * {@link SnowflakeSinkConnectorConfig#PARTITION_OPEN_PARALLELISM_CONFIG} threads. Channel metrics
+   * are registered once all channels are open since the registration is not thread safe.
+   *
+   * @param partitionsToTable TopicPartitions passed from Kafka and their destination table names
+   */
+  @Override
+  public void startTasks(Map<TopicPartition, String> partitionsToTable) {
+    final long startTime = System.currentTimeMillis();
+    final Histogram partitionOpenLatency = getPartitionOpenHistogram(PARTITION_OPEN_LATENCY_MS);
+
+    // the tables should be present before opening channels, partitions often share a table
+    ParallelRunner.runAll(
+        new HashSet<>(partitionsToTable.values()),
+        this.partitionOpenParallelism,
+        this::createTableIfNotExists);
+
+    // Offsets recovered from Snowflake while opening the channels are applied on the task thread
+    // once they are all open, the context of Kafka Connect is not thread safe
+    final Collection<TopicPartitionChannel> openedChannels = new ConcurrentLinkedQueue<>();
+    if (this.sinkTaskContext != null) {
+      this.sinkTaskContext.deferOffsets();
+    }
+    try {
+      ParallelRunner.runAll(
+          partitionsToTable.entrySet(),
+          this.partitionOpenParallelism,
+          entry -> {
+            final long partitionStartTime = System.currentTimeMillis();
+            openedChannels.add(
+                createStreamingChannelForTopicPartition(entry.getValue(), entry.getKey()));
+            if (partitionOpenLatency != null) {
+              partitionOpenLatency.update(System.currentTimeMillis() - partitionStartTime);
+            }
+          });
+    } finally {
+      if (this.sinkTaskContext != null) {
+        this.sinkTaskContext.applyDeferredOffsets();
+      }
+    }
+    openedChannels.forEach(
+        channel -> {
+          registerChannelMetrics(channel);
+          scheduleTimeBasedFlush(channel);
+        });
+
+    final Histogram taskOpenTime = getPartitionOpenHistogram(TASK_OPEN_TIME_MS);
+    if (taskOpenTime != null) {
+      taskOpenTime.update(System.currentTimeMillis() - startTime);
+    }
+    LOGGER.info(
+        "Opened {} partitions of task:{} in {} ms",
+        partitionsToTable.size(),
+        this.taskId,
+        System.currentTimeMillis() - startTime);
+  }
+
+  /**
+   * @return histogram of the task for the given partition open metric, null if custom JMX
+   *     monitoring is disabled
+   */
+  private Histogram getPartitionOpenHistogram(final String metricName) {
+    if (!this.enableCustomJMXMonitoring) {
+      return null;
+    }
+    startMetricsJmxReporter();
+    return this.metricRegistry.histogram(
+        MetricsUtil.constructMetricName(
+            MetricsUtil.taskMetricPrefix(this.taskId), PARTITION_OPEN_SUB_DOMAIN, metricName));
   }
 
   /**
@@ -198,14 +389,15 @@ public class SnowflakeSinkServiceV2 implements SnowflakeSinkService {
    *
    * <p>This is essentially a blind write to partitionsToChannel. i.e. we do not check if it is
    * presented or not.
+   *
+   * @return the new channel, its metrics are not registered yet
    */
-  private void createStreamingChannelForTopicPartition(
+  private TopicPartitionChannel createStreamingChannelForTopicPartition(
       final String tableName, final TopicPartition topicPartition) {
     final String partitionChannelKey =
         partitionChannelKey(topicPartition.topic(), topicPartition.partition());
     // Create new instance of TopicPartitionChannel which will always open the channel.
-    partitionsToChannel.put(
-        partitionChannelKey,
+    final TopicPartitionChannel topicPartitionChannel =
         new TopicPartitionChannel(
             this.streamingIngestClient,
             topicPartition,
@@ -217,7 +409,54 @@ public class SnowflakeSinkServiceV2 implements SnowflakeSinkService {
             this.sinkTaskContext,
             this.conn,
             this.recordService,
-            this.conn.getTelemetryClient()));
+            this.conn.getTelemetryClient(),
+            this.insertRowsExecutor,
+            this.maxInFlightBuffers,
+            this.schemaEvolutionCoordinator);
+    partitionsToChannel.put(topicPartition, topicPartitionChannel);
+    return topicPartitionChannel;
+  }
+
+  /**
+   * Registers the number of in flight buffers of the channel if pipelined insert is enabled and
+   * the staleness of its committed offset token if committed offset polling is enabled. Only when
+   * custom JMX monitoring is enabled.
+   */
+  private void registerChannelMetrics(final TopicPartitionChannel topicPartitionChannel) {
+    if (!this.enableCustomJMXMonitoring
+        || (this.insertRowsExecutor == null && this.committedOffsetPollExecutor == null)) {
+      return;
+    }
+    startMetricsJmxReporter();
+    final String channelName = topicPartitionChannel.getChannelName();
+    // A channel with the same name might have been reopened
+    removeChannelMetrics(channelName);
+    if (this.insertRowsExecutor != null) {
+      this.metricRegistry.register(
+          MetricsUtil.constructMetricName(
+              channelName, INSERT_ROWS_SUB_DOMAIN, IN_FLIGHT_BUFFER_COUNT),
+          (Gauge<Integer>) topicPartitionChannel::getInFlightBufferCount);
+    }
+    if (this.committedOffsetPollExecutor != null) {
+      this.metricRegistry.register(
+          MetricsUtil.constructMetricName(
+              channelName, OFFSET_SUB_DOMAIN, COMMITTED_OFFSET_STALENESS_MS),
+          (Gauge<Long>) topicPartitionChannel::getCommittedOffsetStalenessMs);
+    }
+  }
+
+  private void startMetricsJmxReporter() {
+    if (this.metricsJmxReporter == null) {
+      this.metricsJmxReporter = new MetricsJmxReporter(this.metricRegistry, conn.getConnectorName());
+      this.metricsJmxReporter.start();
+    }
+  }
+
+  private void removeChannelMetrics(final String channelName) {
+    if (this.metricsJmxReporter != null) {
+      // Metric names are channelName/subDomain/metricName, don't match channels sharing a prefix
+      this.metricsJmxReporter.removeMetricsFromRegistry(channelName + "/");
+    }
   }
 
   /**
@@ -233,20 +472,45 @@ public class SnowflakeSinkServiceV2 implements SnowflakeSinkService {
   @Override
   public void insert(Collection<SinkRecord> records) {
     // note that records can be empty but, we will still need to check for time based flush
-    for (SinkRecord record : records) {
-      // check if need to handle null value records
-      if (recordService.shouldSkipNullValue(record, behaviorOnNullValues)) {
-        continue;
-      }
-      // While inserting into buffer, we will check for count threshold and buffered bytes
-      // threshold.
-      insert(record);
+    // null value records are skipped depending on the config, the others are inserted per
+    // partition
+    Map<TopicPartition, List<SinkRecord>> partitionRecords =
+        Utils.groupByPartition(
+            records, record -> !recordService.shouldSkipNullValue(record, behaviorOnNullValues));
+    // While inserting into buffer, we will check for count threshold and buffered bytes
+    // threshold.
+    if (partitionInsertExecutor == null) {
+      partitionRecords.forEach(this::insert);
+    } else {
+      insertInParallel(partitionRecords);
     }
 
-    // check all partitions to see if they need to be flushed based on time
-    for (TopicPartitionChannel partitionChannel : partitionsToChannel.values()) {
+    // only check the partitions whose time based flush is due
+    for (TopicPartition topicPartition : flushDeadlines.pollDue(System.currentTimeMillis())) {
+      TopicPartitionChannel partitionChannel = partitionsToChannel.get(topicPartition);
+      if (partitionChannel == null) {
+        continue;
+      }
       // Time based flushing
       partitionChannel.insertBufferedRecordsIfFlushTimeThresholdReached();
+      scheduleTimeBasedFlush(partitionChannel);
+      if (taskMemoryBudget != null) {
+        taskMemoryBudget.update(
+            partitionChannel.getTopicPartition(),
+            partitionChannel.getBufferedBytesIncludingInFlight());
+      }
+    }
+
+    if (taskMemoryBudget != null) {
+      // Paused partitions receive no records, their in flight buffers are released in background
+      for (TopicPartition topicPartition : taskMemoryBudget.getPausedPartitions()) {
+        TopicPartitionChannel partitionChannel = partitionsToChannel.get(topicPartition);
+        if (partitionChannel != null) {
+          taskMemoryBudget.update(
+              topicPartition, partitionChannel.getBufferedBytesIncludingInFlight());
+        }
+      }
+      taskMemoryBudget.applyBackpressure(sinkTaskContext);
     }
   }
 
@@ -258,29 +522,96 @@ public class SnowflakeSinkServiceV2 implements SnowflakeSinkService {
    */
   @Override
   public void insert(SinkRecord record) {
-    String partitionChannelKey = partitionChannelKey(record.topic(), record.kafkaPartition());
-    // init a new topic partition if it's not presented in cache or if channel is closed
-    if (!partitionsToChannel.containsKey(partitionChannelKey)
-        || partitionsToChannel.get(partitionChannelKey).isChannelClosed()) {
+    insert(
+        new TopicPartition(record.topic(), record.kafkaPartition()),
+        Collections.singletonList(record));
+  }
+
+  /**
+   * Inserts the records of a partition into its buffer, the channel is looked up once and its
+   * buffer lock is acquired once for all of them
+   *
+   * @param topicPartition partition of the records
+   * @param records records of the partition, in offset order
+   */
+  private void insert(TopicPartition topicPartition, List<SinkRecord> records) {
+    TopicPartitionChannel channelPartition = getOrStartChannel(topicPartition);
+    channelPartition.insertRecordsToBuffer(records);
+    enforceMemoryBudget(channelPartition);
+  }
+
+  /**
+   * Inserts the records of each partition on {@link #partitionInsertExecutor}. Channels are opened
+   * and the memory budget is enforced on the task thread, only the conversion and buffering of
+   * the records run in parallel, along with the flushes of the buffers reaching a threshold.
+   *
+   * @param partitionRecords records of each partition, in offset order
+   */
+  private void insertInParallel(Map<TopicPartition, List<SinkRecord>> partitionRecords) {
+    partitionRecords.keySet().forEach(this::getOrStartChannel);
+    ParallelRunner.runAll(
+        partitionRecords.entrySet(),
+        this.partitionInsertExecutor,
+        entry -> partitionsToChannel.get(entry.getKey()).insertRecordsToBuffer(entry.getValue()));
+    partitionRecords.keySet().forEach(tp -> enforceMemoryBudget(partitionsToChannel.get(tp)));
+  }
+
+  /**
+   * @param topicPartition partition of a record
+   * @return channel of the partition, opened if it's not presented in cache or if it's closed
+   */
+  private TopicPartitionChannel getOrStartChannel(TopicPartition topicPartition) {
+    TopicPartitionChannel channelPartition = partitionsToChannel.get(topicPartition);
+    if (channelPartition == null || channelPartition.isChannelClosed()) {
       LOGGER.warn(
           "Topic: {} Partition: {} hasn't been initialized by OPEN function",
-          record.topic(),
-          record.kafkaPartition());
-      startTask(
-          Utils.tableName(record.topic(), this.topicToTableMap),
-          new TopicPartition(record.topic(), record.kafkaPartition()));
+          topicPartition.topic(),
+          topicPartition.partition());
+      startTask(Utils.tableName(topicPartition.topic(), this.topicToTableMap), topicPartition);
+      channelPartition = partitionsToChannel.get(topicPartition);
+    }
+    return channelPartition;
+  }
+
+  private void enforceMemoryBudget(TopicPartitionChannel channelPartition) {
+    if (taskMemoryBudget != null) {
+      taskMemoryBudget.updateAndEnforce(
+          channelPartition.getTopicPartition(),
+          channelPartition.getBufferedBytesIncludingInFlight(),
+          this::flushBufferedRecords);
+    }
+  }
+
+  /**
+   * Flushes the buffer of a partition when the memory budget of the task is exceeded
+   *
+   * @param topicPartition partition whose buffer is flushed
+   * @return bytes left in memory for the partition, including the buffers still in flight
+   */
+  private long flushBufferedRecords(TopicPartition topicPartition) {
+    TopicPartitionChannel channel = partitionsToChannel.get(topicPartition);
+    if (channel == null) {
+      return 0;
     }
+    channel.flushBufferedRecords();
+    return channel.getBufferedBytesIncludingInFlight();
+  }
 
-    TopicPartitionChannel channelPartition = partitionsToChannel.get(partitionChannelKey);
-    channelPartition.insertRecordToBuffer(record);
+  /**
+   * Schedules the next check of the time based flush of a channel, at the time it would be due if
+   * the channel is not flushed meanwhile
+   *
+   * @param channel channel of a partition
+   */
+  private void scheduleTimeBasedFlush(TopicPartitionChannel channel) {
+    flushDeadlines.schedule(channel.getTopicPartition(), channel.getTimeBasedFlushDeadlineMs());
   }
 
   @Override
   public long getOffset(TopicPartition topicPartition) {
-    String partitionChannelKey =
-        partitionChannelKey(topicPartition.topic(), topicPartition.partition());
-    if (partitionsToChannel.containsKey(partitionChannelKey)) {
-      return partitionsToChannel.get(partitionChannelKey).getOffsetSafeToCommitToKafka();
+    TopicPartitionChannel topicPartitionChannel = partitionsToChannel.get(topicPartition);
+    if (topicPartitionChannel != null) {
+      return topicPartitionChannel.getOffsetSafeToCommitToKafka();
     } else {
       LOGGER.warn(
           "Topic: {} Partition: {} hasn't been initialized to get offset",
@@ -302,12 +633,18 @@ public class SnowflakeSinkServiceV2 implements SnowflakeSinkService {
 
   @Override
   public void closeAll() {
+    closeCommittedOffsetPoller();
     partitionsToChannel.forEach(
-        (partitionChannelKey, topicPartitionChannel) -> {
-          LOGGER.info("Closing partition channel:{}", partitionChannelKey);
+        (topicPartition, topicPartitionChannel) -> {
+          LOGGER.info("Closing partition channel:{}", topicPartitionChannel.getChannelName());
           topicPartitionChannel.closeChannel();
+          removeChannelMetrics(topicPartitionChannel.getChannelName());
         });
     partitionsToChannel.clear();
+    flushDeadlines.clear();
+    removeChannelMetrics(MetricsUtil.taskMetricPrefix(this.taskId));
+    closeInsertRowsExecutor();
+    shutdownExecutor(this.partitionInsertExecutor, "PartitionInsert");
     closeStreamingClient();
   }
 
@@ -325,16 +662,17 @@ public class SnowflakeSinkServiceV2 implements SnowflakeSinkService {
    */
   @Override
   public void close(Collection<TopicPartition> partitions) {
+    // Channels of partitions which are not closed are dropped too and opened again on the next put
+    final Set<TopicPartition> droppedPartitions = new HashSet<>(partitionsToChannel.keySet());
+    droppedPartitions.removeAll(partitions);
     partitions.forEach(
         topicPartition -> {
-          final String partitionChannelKey =
-              partitionChannelKey(topicPartition.topic(), topicPartition.partition());
-          TopicPartitionChannel topicPartitionChannel =
-              partitionsToChannel.get(partitionChannelKey);
+          TopicPartitionChannel topicPartitionChannel = partitionsToChannel.get(topicPartition);
           // Check for null since it's possible that the something goes wrong even before the
           // channels are created
           if (topicPartitionChannel != null) {
             topicPartitionChannel.closeChannel();
+            removeChannelMetrics(topicPartitionChannel.getChannelName());
           }
           LOGGER.info(
               "Closing partitionChannel:{}, partition:{}, topic:{}",
@@ -342,7 +680,16 @@ public class SnowflakeSinkServiceV2 implements SnowflakeSinkService {
               topicPartition.topic(),
               topicPartition.partition());
         });
+    // Stops the pipelined insert of dropped channels before they are opened again on the next put,
+    // otherwise a stale insert fails on the new channel and reopens it in background
+    droppedPartitions.forEach(
+        topicPartition -> partitionsToChannel.get(topicPartition).discardInFlightBuffers());
     partitionsToChannel.clear();
+    flushDeadlines.clear();
+    if (taskMemoryBudget != null) {
+      taskMemoryBudget.remove(partitions);
+      taskMemoryBudget.release(droppedPartitions);
+    }
   }
 
   @Override
@@ -454,12 +801,13 @@ public class SnowflakeSinkServiceV2 implements SnowflakeSinkService {
 
   @Override
   public void setSinkTaskContext(SinkTaskContext sinkTaskContext) {
-    this.sinkTaskContext = sinkTaskContext;
+    // channels are opened and records inserted on several threads
+    this.sinkTaskContext = SynchronizedSinkTaskContext.wrap(sinkTaskContext);
   }
 
   @Override
   public Optional<MetricRegistry> getMetricRegistry(String pipeName) {
-    return Optional.empty();
+    return this.metricsJmxReporter == null ? Optional.empty() : Optional.of(this.metricRegistry);
   }
 
   /**
@@ -483,14 +831,13 @@ public class SnowflakeSinkServiceV2 implements SnowflakeSinkService {
   /**
    * Used for testing Only
    *
-   * @param topicPartitionChannelKey look {@link #partitionChannelKey(String, int)} for key format
+   * @param topicPartition TopicPartition of the channel
    * @return TopicPartitionChannel if present in partitionsToChannel Map else null
    */
   @VisibleForTesting
   protected Optional<TopicPartitionChannel> getTopicPartitionChannelFromCacheKey(
-      final String topicPartitionChannelKey) {
-    return Optional.ofNullable(
-        this.partitionsToChannel.getOrDefault(topicPartitionChannelKey, null));
+      final TopicPartition topicPartition) {
+    return Optional.ofNullable(this.partitionsToChannel.getOrDefault(topicPartition, null));
   }
 
   // ------ Streaming Ingest Related Functions ------ //
@@ -530,6 +877,123 @@ public class SnowflakeSinkServiceV2 implements SnowflakeSinkService {
     }
   }
 
+  private static int getIntConfig(
+      Map<String, String> connectorConfig, String configName, int defaultValue) {
+    if (connectorConfig == null || !connectorConfig.containsKey(configName)) {
+      return defaultValue;
+    }
+    return Integer.parseInt(connectorConfig.get(configName));
+  }
+
+  /**
+   * Creates the executor converting and buffering the records of several partitions at the same
+   * time.
+   *
+   * @param parallelism number of partitions inserted at the same time
+   * @return null if records are inserted on the task thread
+   */
+  private static ExecutorService createPartitionInsertExecutor(int parallelism) {
+    return parallelism <= 1 ? null : Executors.newFixedThreadPool(parallelism);
+  }
+
+  /**
+   * Creates the executor for pipelined insertRows. Threads are bounded by number of cores since
+   * channels of a task don't run more than one insertRows at a time each.
+   *
+   * @return null if pipelined insert is disabled
+   */
+  private static ExecutorService createInsertRowsExecutor(Map<String, String> connectorConfig) {
+    if (connectorConfig == null || !StreamingUtils.enablePipelinedInsert(connectorConfig)) {
+      return null;
+    }
+    return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+  }
+
+  private void closeInsertRowsExecutor() {
+    // Channels are already closed, which waits for in flight buffers
+    shutdownExecutor(this.insertRowsExecutor, "InsertRows");
+  }
+
+  /**
+   * Schedules {@link #pollCommittedOffsets()} if committed offset polling is enabled.
+   *
+   * @return null if committed offset polling is disabled
+   */
+  private ScheduledExecutorService startCommittedOffsetPoller(
+      Map<String, String> connectorConfig) {
+    final long committedOffsetPollIntervalMs =
+        connectorConfig == null
+            ? 0
+            : StreamingUtils.getCommittedOffsetPollIntervalMs(connectorConfig);
+    if (committedOffsetPollIntervalMs <= 0) {
+      return null;
+    }
+    final ScheduledExecutorService pollExecutor =
+        Executors.newScheduledThreadPool(
+            Math.max(MIN_COMMITTED_OFFSET_POLL_THREADS, Runtime.getRuntime().availableProcessors()));
+    pollExecutor.scheduleWithFixedDelay(
+        this::pollCommittedOffsets,
+        committedOffsetPollIntervalMs,
+        committedOffsetPollIntervalMs,
+        TimeUnit.MILLISECONDS);
+    LOGGER.info(
+        "Polling committed offsets for task:{} every {} ms",
+        this.taskId,
+        committedOffsetPollIntervalMs);
+    return pollExecutor;
+  }
+
+  /**
+   * Fetches the committed offset token of all channels in parallel and waits for them. Failures
+   * are only logged, preCommit fetches the offset token itself once the cached one gets stale.
+   */
+  private void pollCommittedOffsets() {
+    try {
+      CompletableFuture.allOf(
+              partitionsToChannel.values().stream()
+                  .map(
+                      topicPartitionChannel ->
+                          CompletableFuture.runAsync(
+                              () -> refreshCommittedOffsetToken(topicPartitionChannel),
+                              this.committedOffsetPollExecutor))
+                  .toArray(CompletableFuture[]::new))
+          .join();
+    } catch (Exception e) {
+      LOGGER.warn("Failure polling committed offsets for task:{}, {}", this.taskId, e.getMessage());
+    }
+  }
+
+  private void refreshCommittedOffsetToken(final TopicPartitionChannel topicPartitionChannel) {
+    try {
+      topicPartitionChannel.refreshCommittedOffsetToken();
+    } catch (Exception e) {
+      LOGGER.warn(
+          "Failure polling committed offset for channel:{}, {}",
+          topicPartitionChannel.getChannelName(),
+          e.getMessage());
+    }
+  }
+
+  private void closeCommittedOffsetPoller() {
+    shutdownExecutor(this.committedOffsetPollExecutor, "Committed offset poll");
+  }
+
+  private void shutdownExecutor(final ExecutorService executor, final String executorName) {
+    if (executor == null) {
+      return;
+    }
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(EXECUTOR_TERMINATION_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+        LOGGER.warn("{} executor for task:{} did not terminate in time", executorName, this.taskId);
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      executor.shutdownNow();
+    }
+  }
+
   /** Closes the streaming client. */
   private void closeStreamingClient() {
     LOGGER.info("Closing Streaming Client:{}", this.streamingIngestClientName);
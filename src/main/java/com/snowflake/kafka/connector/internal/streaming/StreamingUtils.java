@@ -2,12 +2,18 @@ package com.snowflake.kafka.connector.internal.streaming;
 
 import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.BOOLEAN_VALIDATOR;
 import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.CUSTOM_SNOWFLAKE_CONVERTERS;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.ENABLE_STREAMING_PIPELINED_INSERT_CONFIG;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.ENABLE_STREAMING_PIPELINED_INSERT_DEFAULT;
 import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.ERRORS_DEAD_LETTER_QUEUE_TOPIC_NAME_CONFIG;
 import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.ERRORS_LOG_ENABLE_CONFIG;
 import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.ERRORS_TOLERANCE_CONFIG;
 import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.ErrorTolerance;
 import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.INGESTION_METHOD_OPT;
 import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.KEY_CONVERTER_CONFIG_FIELD;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_DEFAULT;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_CONFIG;
+import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_DEFAULT;
 import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.VALUE_CONVERTER_CONFIG_FIELD;
 
 import com.google.common.base.Strings;
@@ -36,6 +42,12 @@ public class StreamingUtils {
 
   protected static final int MAX_GET_OFFSET_TOKEN_RETRIES = 3;
 
+  // Rows accepted by a batch insertRows are waited for before the channel is reopened for schema
+  // evolution, so that only the rejected rows need to be inserted again
+  protected static final Duration DURATION_BETWEEN_COMMITTED_OFFSET_CHECK = Duration.ofMillis(200);
+
+  protected static final int MAX_COMMITTED_OFFSET_CHECKS = 10;
+
   // Buffer related defaults and minimum set at connector level by clients/customers.
   public static final long STREAMING_BUFFER_FLUSH_TIME_MINIMUM_SEC =
       Duration.ofSeconds(1).getSeconds();
@@ -121,6 +133,38 @@ public class StreamingUtils {
     return Boolean.parseBoolean(sfConnectorConfig.getOrDefault(ERRORS_LOG_ENABLE_CONFIG, "false"));
   }
 
+  /* Returns true if connector config has enable.streaming.pipelined.insert = true */
+  public static boolean enablePipelinedInsert(Map<String, String> sfConnectorConfig) {
+    return Boolean.parseBoolean(
+        sfConnectorConfig.getOrDefault(
+            ENABLE_STREAMING_PIPELINED_INSERT_CONFIG,
+            Boolean.toString(ENABLE_STREAMING_PIPELINED_INSERT_DEFAULT)));
+  }
+
+  /* Returns the number of buffers per channel which can wait for insertRows in pipelined mode */
+  public static int getPipelinedInsertMaxInFlightBuffers(Map<String, String> sfConnectorConfig) {
+    return Integer.parseInt(
+        sfConnectorConfig.getOrDefault(
+            STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_CONFIG,
+            Integer.toString(STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_DEFAULT)));
+  }
+
+  /* Returns true if connector config has snowflake.enable.schema.evolution.batch.insert = true */
+  public static boolean enableSchemaEvolutionBatchInsert(Map<String, String> sfConnectorConfig) {
+    return Boolean.parseBoolean(
+        sfConnectorConfig.getOrDefault(
+            SnowflakeSinkConnectorConfig.ENABLE_SCHEMA_EVOLUTION_BATCH_INSERT_CONFIG,
+            SnowflakeSinkConnectorConfig.ENABLE_SCHEMA_EVOLUTION_BATCH_INSERT_DEFAULT));
+  }
+
+  /* Returns the interval for polling committed offsets in background, 0 if disabled */
+  public static long getCommittedOffsetPollIntervalMs(Map<String, String> sfConnectorConfig) {
+    return Long.parseLong(
+        sfConnectorConfig.getOrDefault(
+            STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG,
+            Integer.toString(STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_DEFAULT)));
+  }
+
   /* Returns dlq topic name if connector config has errors.deadletterqueue.topic.name set */
   public static String getDlqTopicName(Map<String, String> sfConnectorConfig) {
     return sfConnectorConfig.getOrDefault(ERRORS_DEAD_LETTER_QUEUE_TOPIC_NAME_CONFIG, "");
@@ -180,6 +224,12 @@ public class StreamingUtils {
 
           // Valid schematization for Snowpipe Streaming
           invalidParams.putAll(validateSchematizationConfig(inputConfig));
+
+          // Valid pipelined insert for Snowpipe Streaming
+          invalidParams.putAll(validatePipelinedInsertConfig(inputConfig));
+
+          // Valid committed offset polling for Snowpipe Streaming
+          invalidParams.putAll(validateCommittedOffsetPollConfig(inputConfig));
         }
       } catch (ConfigException exception) {
         invalidParams.put(
@@ -247,6 +297,86 @@ public class StreamingUtils {
       }
     }
 
+    if (inputConfig.containsKey(
+        SnowflakeSinkConnectorConfig.ENABLE_SCHEMA_EVOLUTION_BATCH_INSERT_CONFIG)) {
+      BOOLEAN_VALIDATOR.ensureValid(
+          SnowflakeSinkConnectorConfig.ENABLE_SCHEMA_EVOLUTION_BATCH_INSERT_CONFIG,
+          inputConfig.get(SnowflakeSinkConnectorConfig.ENABLE_SCHEMA_EVOLUTION_BATCH_INSERT_CONFIG));
+    }
+
+    return invalidParams;
+  }
+
+  /**
+   * Validates if the configs are allowed values when pipelined insert is enabled.
+   *
+   * <p>return a map of invalid params
+   */
+  private static Map<String, String> validatePipelinedInsertConfig(
+      Map<String, String> inputConfig) {
+    Map<String, String> invalidParams = new HashMap<>();
+
+    if (inputConfig.containsKey(ENABLE_STREAMING_PIPELINED_INSERT_CONFIG)) {
+      BOOLEAN_VALIDATOR.ensureValid(
+          ENABLE_STREAMING_PIPELINED_INSERT_CONFIG,
+          inputConfig.get(ENABLE_STREAMING_PIPELINED_INSERT_CONFIG));
+    }
+
+    if (inputConfig.containsKey(STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_CONFIG)) {
+      String maxInFlightBuffers =
+          inputConfig.get(STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_CONFIG);
+      try {
+        if (Integer.parseInt(maxInFlightBuffers) < 1) {
+          invalidParams.put(
+              STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_CONFIG,
+              Utils.formatString(
+                  "Config:{} should be at least 1, provided value:{}",
+                  STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_CONFIG,
+                  maxInFlightBuffers));
+        }
+      } catch (NumberFormatException e) {
+        invalidParams.put(
+            STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_CONFIG,
+            Utils.formatString(
+                "Config:{} should be an integer, provided value:{}",
+                STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_CONFIG,
+                maxInFlightBuffers));
+      }
+    }
+
+    return invalidParams;
+  }
+
+  /**
+   * Validates the interval for polling committed offsets in background.
+   *
+   * <p>return a map of invalid params
+   */
+  private static Map<String, String> validateCommittedOffsetPollConfig(
+      Map<String, String> inputConfig) {
+    Map<String, String> invalidParams = new HashMap<>();
+
+    if (inputConfig.containsKey(STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG)) {
+      String pollIntervalMs = inputConfig.get(STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG);
+      try {
+        if (Integer.parseInt(pollIntervalMs) < 0) {
+          invalidParams.put(
+              STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG,
+              Utils.formatString(
+                  "Config:{} should not be negative, provided value:{}",
+                  STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG,
+                  pollIntervalMs));
+        }
+      } catch (NumberFormatException e) {
+        invalidParams.put(
+            STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG,
+            Utils.formatString(
+                "Config:{} should be an integer, provided value:{}",
+                STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG,
+                pollIntervalMs));
+      }
+    }
+
     return invalidParams;
   }
 }
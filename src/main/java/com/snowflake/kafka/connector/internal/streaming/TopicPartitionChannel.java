@@ -4,6 +4,8 @@ import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.ERRORS_
 import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.ERRORS_TOLERANCE_CONFIG;
 import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.SNOWFLAKE_ROLE;
 import static com.snowflake.kafka.connector.internal.streaming.StreamingUtils.DURATION_BETWEEN_GET_OFFSET_TOKEN_RETRY;
+import static com.snowflake.kafka.connector.internal.streaming.StreamingUtils.DURATION_BETWEEN_COMMITTED_OFFSET_CHECK;
+import static com.snowflake.kafka.connector.internal.streaming.StreamingUtils.MAX_COMMITTED_OFFSET_CHECKS;
 import static com.snowflake.kafka.connector.internal.streaming.StreamingUtils.MAX_GET_OFFSET_TOKEN_RETRIES;
 import static java.time.temporal.ChronoUnit.SECONDS;
 import static org.apache.kafka.common.record.TimestampType.NO_TIMESTAMP_TYPE;
@@ -18,6 +20,7 @@ import com.snowflake.kafka.connector.internal.BufferThreshold;
 import com.snowflake.kafka.connector.internal.KCLogger;
 import com.snowflake.kafka.connector.internal.PartitionBuffer;
 import com.snowflake.kafka.connector.internal.SnowflakeConnectionService;
+import com.snowflake.kafka.connector.internal.SnowflakeKafkaConnectorException;
 import com.snowflake.kafka.connector.internal.telemetry.SnowflakeTelemetryService;
 import com.snowflake.kafka.connector.records.RecordService;
 import com.snowflake.kafka.connector.records.SnowflakeJsonSchema;
@@ -28,11 +31,25 @@ import dev.failsafe.RetryPolicy;
 import dev.failsafe.function.CheckedSupplier;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import net.snowflake.client.jdbc.internal.fasterxml.jackson.core.JsonProcessingException;
@@ -67,19 +84,28 @@ import org.apache.kafka.connect.sink.SinkTaskContext;
 public class TopicPartitionChannel {
   private static final KCLogger LOGGER = new KCLogger(TopicPartitionChannel.class.getName());
 
+  // Bit of the writer state of a buffer which is set once the buffer is swapped out
+  private static final int SEALED = Integer.MIN_VALUE;
+
   public static final long NO_OFFSET_TOKEN_REGISTERED_IN_SNOWFLAKE = -1L;
 
   // last time we invoked insertRows API
-  private long previousFlushTimeStampMs;
+  private volatile long previousFlushTimeStampMs;
 
-  /* Buffer to hold JSON converted incoming SinkRecords */
-  private StreamingBuffer streamingBuffer;
+  /**
+   * Active buffer to hold JSON converted incoming SinkRecords. Records are appended to it without a
+   * lock, flushes and offset resets swap it for an empty buffer. (Check {@link
+   * StreamingBuffer#tryAcquireWriter()})
+   */
+  private final AtomicReference<StreamingBuffer> streamingBuffer;
 
-  private final Lock bufferLock = new ReentrantLock(true);
+  // Hands the swapped out buffers over to insertRows API one at a time, hence in offset order.
+  // Taken once per flush, never to add a single record
+  private final Lock flushLock = new ReentrantLock();
 
   // used to communicate to the streaming ingest's insertRows API
   // This is non final because we might decide to get the new instance of Channel
-  private SnowflakeStreamingIngestChannel channel;
+  private volatile SnowflakeStreamingIngestChannel channel;
 
   // -------- private final fields -------- //
 
@@ -114,7 +140,70 @@ public class TopicPartitionChannel {
    * <p>This boolean is used to indicate that we reset offset in kafka and we will only buffer once
    * we see the offset which is one more than an offset present in Snowflake.
    */
-  private boolean isOffsetResetInKafka;
+  private volatile boolean isOffsetResetInKafka;
+
+  // ------ Pipelined insertRows ------ //
+
+  /**
+   * Runs insertRows API in background when pipelined insert is enabled. Null means insertRows is
+   * invoked on the task thread.
+   *
+   * <p>The executor is shared by all channels of a task, buffers of this channel are still inserted
+   * one after the other in offset order. (Check {@link #drainInFlightBuffers()})
+   */
+  private final ExecutorService insertRowsExecutor;
+
+  // Buffers which were swapped out of streamingBuffer and are waiting for insertRows API
+  private final BlockingQueue<StreamingBuffer> inFlightBuffers;
+
+  // True if a drain of inFlightBuffers was submitted to insertRowsExecutor and has not finished
+  private final AtomicBoolean isInFlightBufferDrainScheduled = new AtomicBoolean(false);
+
+  // Last drain submitted to insertRowsExecutor, used to wait for in flight buffers on close
+  private volatile Future<?> inFlightBufferDrainFuture;
+
+  // Failure of insertRows in background, rethrown on the task thread
+  private final AtomicReference<RuntimeException> inFlightBufferInsertFailure =
+      new AtomicReference<>();
+
+  // Offset to reset in kafka which was recovered in background, applied on the task thread since
+  // SinkTaskContext is not thread safe
+  private final AtomicLong pendingOffsetToResetInKafka =
+      new AtomicLong(NO_OFFSET_TOKEN_REGISTERED_IN_SNOWFLAKE);
+
+  /**
+   * Incremented whenever buffered records are discarded. i.e. when we reset the offset in kafka or
+   * close the channel. In flight buffers created in an older generation are not inserted since
+   * kafka will send their records again.
+   */
+  private final AtomicLong bufferGeneration = new AtomicLong(0);
+
+  // ------ Committed offset polling ------ //
+
+  // Number of poll intervals after which the cached offset token is fetched again in preCommit
+  private static final long MAX_COMMITTED_OFFSET_STALENESS_POLL_INTERVALS = 3;
+
+  /**
+   * Interval at which {@link SnowflakeSinkServiceV2} refreshes the committed offset token of this
+   * channel in background. 0 means the offset token is fetched in every preCommit.
+   */
+  private final long committedOffsetPollIntervalMs;
+
+  // Last offset token fetched from Snowflake and the time it was fetched at
+  private final AtomicReference<CommittedOffsetToken> cachedCommittedOffsetToken =
+      new AtomicReference<>();
+
+  // Makes sure the background poller doesn't use this channel once it is being closed
+  private final Object committedOffsetRefreshLock = new Object();
+
+  private boolean isChannelClosing = false;
+
+  /**
+   * Set by the background poller when it failed to fetch the committed offset token. The poller
+   * never reopens the channel since that would race with insertRows, the channel is recovered by
+   * the thread which inserts the rows instead. (Check {@link #recoverChannelIfNeeded()})
+   */
+  private final AtomicBoolean isChannelRecoveryNeeded = new AtomicBoolean(false);
 
   private final SnowflakeStreamingIngestClient streamingIngestClient;
 
@@ -162,9 +251,25 @@ public class TopicPartitionChannel {
   // Whether schema evolution could be done on this channel
   private final boolean enableSchemaEvolution;
 
+  /**
+   * Whether rows are inserted in batch when schema evolution is enabled. If not, rows are inserted
+   * one by one until the first row which needs schema evolution.
+   */
+  private final boolean enableSchemaEvolutionBatchInsert;
+
   // Reference to the Snowflake connection service
   private final SnowflakeConnectionService conn;
 
+  // Shared by all channels of the task to evolve the schema of their tables
+  private final SchemaEvolutionCoordinator schemaEvolutionCoordinator;
+
+  // Schema version of the table when the channel was opened, newer versions need a reopen
+  private volatile long openedSchemaVersion;
+
+  // Whether rows were inserted since the channel was opened, which a reopen would drop if they are
+  // not committed yet
+  private volatile boolean hasInsertedRowsSinceOpen = false;
+
   /**
    * Used to send telemetry to Snowflake. Currently, TelemetryClient created from a Snowflake
    * Connection Object, i.e. not a session-less Client
@@ -223,6 +328,60 @@ public class TopicPartitionChannel {
       SnowflakeConnectionService conn,
       RecordService recordService,
       SnowflakeTelemetryService telemetryService) {
+    this(
+        streamingIngestClient,
+        topicPartition,
+        channelName,
+        tableName,
+        streamingBufferThreshold,
+        sfConnectorConfig,
+        kafkaRecordErrorReporter,
+        sinkTaskContext,
+        conn,
+        recordService,
+        telemetryService,
+        null, /* insertRows on the task thread */
+        1,
+        conn == null ? null : new SchemaEvolutionCoordinator(conn));
+  }
+
+  /**
+   * @param streamingIngestClient client created specifically for this task
+   * @param topicPartition topic partition corresponding to this Streaming Channel
+   *     (TopicPartitionChannel)
+   * @param channelName channel Name which is deterministic for topic and partition
+   * @param tableName table to ingest in snowflake
+   * @param streamingBufferThreshold bytes, count of records and flush time thresholds.
+   * @param sfConnectorConfig configuration set for snowflake connector
+   * @param kafkaRecordErrorReporter kafka errpr reporter for sending records to DLQ
+   * @param sinkTaskContext context on Kafka Connect's runtime
+   * @param conn the snowflake connection service
+   * @param recordService record service for processing incoming offsets from Kafka
+   * @param telemetryService Telemetry Service which includes the Telemetry Client, sends Json data
+   *     to Snowflake
+   * @param insertRowsExecutor executor which runs insertRows API in background, null to invoke
+   *     insertRows on the task thread
+   * @param maxInFlightBuffers number of buffers which can wait for insertRows in background before
+   *     inserting into the buffer blocks
+   * @param schemaEvolutionCoordinator coordinates schema evolution of the table with other channels
+   *     of the task, only used if schema evolution is enabled
+   */
+  public TopicPartitionChannel(
+      SnowflakeStreamingIngestClient streamingIngestClient,
+      TopicPartition topicPartition,
+      final String channelName,
+      final String tableName,
+      final BufferThreshold streamingBufferThreshold,
+      final Map<String, String> sfConnectorConfig,
+      KafkaRecordErrorReporter kafkaRecordErrorReporter,
+      SinkTaskContext sinkTaskContext,
+      SnowflakeConnectionService conn,
+      RecordService recordService,
+      SnowflakeTelemetryService telemetryService,
+      ExecutorService insertRowsExecutor,
+      int maxInFlightBuffers,
+      SchemaEvolutionCoordinator schemaEvolutionCoordinator) {
+    Preconditions.checkArgument(maxInFlightBuffers > 0);
     this.streamingIngestClient = Preconditions.checkNotNull(streamingIngestClient);
     Preconditions.checkState(!streamingIngestClient.isClosed());
     this.topicPartition = Preconditions.checkNotNull(topicPartition);
@@ -233,13 +392,22 @@ public class TopicPartitionChannel {
     this.kafkaRecordErrorReporter = Preconditions.checkNotNull(kafkaRecordErrorReporter);
     this.sinkTaskContext = Preconditions.checkNotNull(sinkTaskContext);
     this.conn = conn;
+    this.schemaEvolutionCoordinator = schemaEvolutionCoordinator;
 
     this.recordService = recordService;
     this.telemetryServiceV2 = telemetryService;
 
     this.previousFlushTimeStampMs = System.currentTimeMillis();
 
-    this.streamingBuffer = new StreamingBuffer();
+    this.streamingBuffer = new AtomicReference<>(new StreamingBuffer());
+
+    /* Pipelined insertRows */
+    this.insertRowsExecutor = insertRowsExecutor;
+    this.inFlightBuffers = new ArrayBlockingQueue<>(maxInFlightBuffers);
+
+    /* Committed offset polling */
+    this.committedOffsetPollIntervalMs =
+        StreamingUtils.getCommittedOffsetPollIntervalMs(this.sfConnectorConfig);
 
     /* Error properties */
     this.errorTolerance = StreamingUtils.tolerateErrors(this.sfConnectorConfig);
@@ -253,12 +421,16 @@ public class TopicPartitionChannel {
     this.enableSchemaEvolution =
         this.enableSchematization
             && this.conn != null
+            && this.schemaEvolutionCoordinator != null
             && this.conn.hasSchemaEvolutionPermission(
                 tableName, sfConnectorConfig.get(SNOWFLAKE_ROLE));
+    this.enableSchemaEvolutionBatchInsert =
+        StreamingUtils.enableSchemaEvolutionBatchInsert(sfConnectorConfig);
 
     // Open channel and reset the offset in kafka
     this.channel = Preconditions.checkNotNull(openChannelForTable());
     final long lastCommittedOffsetToken = fetchOffsetTokenWithRetry();
+    cacheCommittedOffsetToken(lastCommittedOffsetToken);
     this.offsetPersistedInSnowflake.set(lastCommittedOffsetToken);
     this.processedOffset.set(lastCommittedOffsetToken);
     if (lastCommittedOffsetToken != NO_OFFSET_TOKEN_REGISTERED_IN_SNOWFLAKE) {
@@ -267,7 +439,16 @@ public class TopicPartitionChannel {
   }
 
   /**
-   * Inserts the record into buffer
+   * Inserts the record into buffer, see {@link #insertRecordsToBuffer(List)}
+   *
+   * @param kafkaSinkRecord input record from Kafka
+   */
+  public void insertRecordToBuffer(SinkRecord kafkaSinkRecord) {
+    insertRecordsToBuffer(Collections.singletonList(kafkaSinkRecord));
+  }
+
+  /**
+   * Inserts the records of this partition into buffer, in offset order
    *
    * <p>Step 1: Initializes this channel by fetching the offsetToken from Snowflake for the first
    * time this channel/partition has received offset after start/restart.
@@ -275,50 +456,81 @@ public class TopicPartitionChannel {
    * <p>Step 2: Decides whether given offset from Kafka needs to be processed and whether it
    * qualifies for being added into buffer.
    *
+   * <p>The decision is made while holding the writer slot of the active buffer since offsets
+   * might be reset by the background flusher when pipelined insert is enabled. A reset seals the
+   * active buffer and waits for the record being added before it changes the offsets.
+   *
+   * <p>When pipelined insert is enabled, a failure or offset reset in background is checked before
+   * each record, so no more records of the batch are buffered after it. Otherwise it is checked
+   * once per buffer, since buffers are then inserted and offsets reset on the task thread only.
+   *
+   * @param kafkaSinkRecords input records from Kafka, all from this partition
+   */
+  public void insertRecordsToBuffer(List<SinkRecord> kafkaSinkRecords) {
+    int index = 0;
+    while (index < kafkaSinkRecords.size()) {
+      checkInFlightBuffersAndResetOffsetInKafka();
+
+      StreamingBuffer fullStreamingBuffer = addRecordToBuffer(kafkaSinkRecords.get(index++));
+      while (this.insertRowsExecutor == null
+          && index < kafkaSinkRecords.size()
+          && fullStreamingBuffer == null) {
+        fullStreamingBuffer = addRecordToBuffer(kafkaSinkRecords.get(index++));
+      }
+
+      // If we found reaching buffer size threshold or count based threshold, we will immediately
+      // flush (Insert them)
+      if (fullStreamingBuffer != null) {
+        flushStreamingBuffer(fullStreamingBuffer);
+      }
+    }
+  }
+
+  /**
+   * Adds the record to the active buffer if its offset is expected
+   *
    * @param kafkaSinkRecord input record from Kafka
+   * @return the active buffer if it reached a threshold and should be flushed, null otherwise
    */
-  public void insertRecordToBuffer(SinkRecord kafkaSinkRecord) {
+  private StreamingBuffer addRecordToBuffer(SinkRecord kafkaSinkRecord) {
+    final StreamingBuffer activeStreamingBuffer = acquireActiveBuffer();
+    try {
+      return addRecordToBuffer(kafkaSinkRecord, activeStreamingBuffer);
+    } finally {
+      activeStreamingBuffer.releaseWriter();
+    }
+  }
+
+  private StreamingBuffer addRecordToBuffer(
+      SinkRecord kafkaSinkRecord, StreamingBuffer activeStreamingBuffer) {
     final long currentOffsetPersistedInSnowflake = this.offsetPersistedInSnowflake.get();
     final long currentProcessedOffset = this.processedOffset.get();
 
     // Ignore adding to the buffer until we see the expected offset value
     if (shouldIgnoreAddingRecordToBuffer(kafkaSinkRecord, currentProcessedOffset)) {
-      return;
+      return null;
     }
 
-    // Accept the incoming record only if we don't have a valid offset token at server side, or the
-    // incoming record offset is 1 + the processed offset
+    // Accept the incoming record only if we don't have a valid offset token at server side, or
+    // the incoming record offset is 1 + the processed offset
     if (currentProcessedOffset == NO_OFFSET_TOKEN_REGISTERED_IN_SNOWFLAKE
         || kafkaSinkRecord.kafkaOffset() >= currentProcessedOffset + 1) {
-      StreamingBuffer copiedStreamingBuffer = null;
-      bufferLock.lock();
-      try {
-        this.streamingBuffer.insert(kafkaSinkRecord);
-        this.processedOffset.set(kafkaSinkRecord.kafkaOffset());
-        // # of records or size based flushing
-        if (this.streamingBufferThreshold.isFlushBufferedBytesBased(
-                streamingBuffer.getBufferSizeBytes())
-            || this.streamingBufferThreshold.isFlushBufferedRecordCountBased(
-                streamingBuffer.getNumOfRecords())) {
-          copiedStreamingBuffer = streamingBuffer;
-          this.streamingBuffer = new StreamingBuffer();
-          LOGGER.debug(
-              "Flush based on buffered bytes or buffered number of records for"
-                  + " channel:{},currentBufferSizeInBytes:{}, currentBufferedRecordCount:{},"
-                  + " connectorBufferThresholds:{}",
-              this.getChannelName(),
-              copiedStreamingBuffer.getBufferSizeBytes(),
-              copiedStreamingBuffer.getSinkRecords().size(),
-              this.streamingBufferThreshold);
-        }
-      } finally {
-        bufferLock.unlock();
-      }
-
-      // If we found reaching buffer size threshold or count based threshold, we will immediately
-      // flush (Insert them)
-      if (copiedStreamingBuffer != null) {
-        insertBufferedRecords(copiedStreamingBuffer);
+      activeStreamingBuffer.insert(kafkaSinkRecord);
+      this.processedOffset.set(kafkaSinkRecord.kafkaOffset());
+      // # of records or size based flushing
+      if (this.streamingBufferThreshold.isFlushBufferedBytesBased(
+              activeStreamingBuffer.getBufferSizeBytes())
+          || this.streamingBufferThreshold.isFlushBufferedRecordCountBased(
+              activeStreamingBuffer.getNumOfRecords())) {
+        LOGGER.debug(
+            "Flush based on buffered bytes or buffered number of records for"
+                + " channel:{},currentBufferSizeInBytes:{}, currentBufferedRecordCount:{},"
+                + " connectorBufferThresholds:{}",
+            this.getChannelName(),
+            activeStreamingBuffer.getBufferSizeBytes(),
+            activeStreamingBuffer.getSinkRecords().size(),
+            this.streamingBufferThreshold);
+        return activeStreamingBuffer;
       }
     } else {
       LOGGER.debug(
@@ -329,6 +541,7 @@ public class TopicPartitionChannel {
           currentOffsetPersistedInSnowflake,
           currentProcessedOffset);
     }
+    return null;
   }
 
   /**
@@ -385,7 +598,8 @@ public class TopicPartitionChannel {
   }
 
   private boolean isContentBroken(final Object content) {
-    return content != null && ((SnowflakeRecordContent) content).isBroken();
+    return content instanceof SnowflakeRecordContent
+        && ((SnowflakeRecordContent) content).isBroken();
   }
 
   private SinkRecord handleNativeRecord(SinkRecord record, boolean isKey) {
@@ -433,7 +647,7 @@ public class TopicPartitionChannel {
    * If difference between current time and previous flush time is more than threshold, insert the
    * buffered Rows.
    *
-   * <p>Note: We acquire buffer lock since we copy the buffer.
+   * <p>Note: The active buffer is swapped for an empty one, see {@link #flushBufferedRecords()}.
    *
    * <p>Threshold is config parameter: {@link
    * com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig#BUFFER_FLUSH_TIME_SEC}
@@ -441,6 +655,7 @@ public class TopicPartitionChannel {
    * <p>Previous flush time here means last time we called insertRows API with rows present in
    */
   protected void insertBufferedRecordsIfFlushTimeThresholdReached() {
+    checkInFlightBuffersAndResetOffsetInKafka();
     if (this.streamingBufferThreshold.isFlushTimeBased(this.previousFlushTimeStampMs)) {
       LOGGER.debug(
           "Time based flush for channel:{}, CurrentTimeMs:{}, previousFlushTimeMs:{},"
@@ -449,16 +664,216 @@ public class TopicPartitionChannel {
           System.currentTimeMillis(),
           this.previousFlushTimeStampMs,
           this.streamingBufferThreshold.getFlushTimeThresholdSeconds());
-      StreamingBuffer copiedStreamingBuffer;
-      bufferLock.lock();
+      flushBufferedRecords();
+    }
+  }
+
+  /**
+   * Insert the buffered rows regardless of the buffer thresholds, e.g. when the memory budget of
+   * the task is exceeded.
+   *
+   * <p>Note: The active buffer is swapped for an empty one, records can still be added meanwhile.
+   */
+  protected void flushBufferedRecords() {
+    flushStreamingBuffer(null);
+  }
+
+  /**
+   * Swaps the active buffer for an empty one and hands it over to insertRows API.
+   *
+   * @param expectedStreamingBuffer buffer which reached a threshold, nothing is flushed if it was
+   *     already swapped out by another flush or by an offset reset. Null to flush the active buffer
+   */
+  private void flushStreamingBuffer(StreamingBuffer expectedStreamingBuffer) {
+    flushLock.lock();
+    try {
+      final StreamingBuffer sealedStreamingBuffer = sealActiveBuffer(expectedStreamingBuffer);
+      if (sealedStreamingBuffer != null) {
+        this.streamingBuffer.set(new StreamingBuffer());
+        submitBufferedRecords(sealedStreamingBuffer);
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Takes the writer slot of the active buffer. Waits if the active buffer is sealed, until the
+   * flush or the offset reset which sealed it sets the next one.
+   *
+   * @return the active buffer, its writer slot must be released once the record is added
+   */
+  private StreamingBuffer acquireActiveBuffer() {
+    while (true) {
+      final StreamingBuffer activeStreamingBuffer = this.streamingBuffer.get();
+      if (activeStreamingBuffer.tryAcquireWriter()) {
+        return activeStreamingBuffer;
+      }
+      Thread.yield();
+    }
+  }
+
+  /**
+   * Seals the active buffer so that no more records are added to it and waits for the record being
+   * added, if any. The caller must then set the next active buffer, until then records wait in
+   * {@link #acquireActiveBuffer()} and other flushes or resets wait here.
+   *
+   * @param expectedStreamingBuffer buffer to seal, null to seal whichever buffer is active
+   * @return the sealed buffer, null if the active buffer is not the expected one
+   */
+  private StreamingBuffer sealActiveBuffer(StreamingBuffer expectedStreamingBuffer) {
+    while (true) {
+      final StreamingBuffer activeStreamingBuffer = this.streamingBuffer.get();
+      if (expectedStreamingBuffer != null && activeStreamingBuffer != expectedStreamingBuffer) {
+        return null;
+      }
+      if (activeStreamingBuffer.trySeal()) {
+        activeStreamingBuffer.awaitWriters();
+        return activeStreamingBuffer;
+      }
+      Thread.yield();
+    }
+  }
+
+  /**
+   * Hands the buffer over to insertRows API.
+   *
+   * <p>If pipelined insert is disabled, insertRows is invoked right away on the calling thread.
+   *
+   * <p>Otherwise the buffer is added to the bounded in flight queue and inserted by {@link
+   * #insertRowsExecutor}. This blocks if the queue is full, which gives back pressure to the task
+   * thread when insertRows can't keep up. The flush time is updated once the buffer is handed
+   * over, else every time based check would swap out another buffer until the insert completes.
+   *
+   * @param streamingBufferToInsert buffer which was swapped out of this channel
+   */
+  private void submitBufferedRecords(StreamingBuffer streamingBufferToInsert) {
+    if (this.insertRowsExecutor == null || streamingBufferToInsert.isEmpty()) {
+      insertBufferedRecords(streamingBufferToInsert);
+      return;
+    }
+
+    try {
+      this.inFlightBuffers.put(streamingBufferToInsert);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ConnectException(
+          String.format(
+              "Interrupted while waiting for in flight buffers of channel:%s",
+              this.getChannelName()),
+          e);
+    }
+    this.previousFlushTimeStampMs = System.currentTimeMillis();
+    if (this.isInFlightBufferDrainScheduled.compareAndSet(false, true)) {
+      this.inFlightBufferDrainFuture = this.insertRowsExecutor.submit(this::drainInFlightBuffers);
+    }
+  }
+
+  /**
+   * Inserts all in flight buffers of this channel in the order they were added, hence in offset
+   * order. Only one drain runs at a time for a channel.
+   *
+   * <p>A buffer stays at the head of the queue while it is being inserted so that the queue size
+   * reflects everything which is not yet handed to Snowflake.
+   *
+   * <p>Buffers created before the offset was reset in kafka are skipped, kafka sends their records
+   * again. Once insertRows has failed, the failure is kept and rethrown on the task thread by
+   * {@link #checkInFlightBuffersAndResetOffsetInKafka()}.
+   */
+  private void drainInFlightBuffers() {
+    while (true) {
+      StreamingBuffer inFlightBuffer = this.inFlightBuffers.peek();
+      if (inFlightBuffer == null) {
+        this.isInFlightBufferDrainScheduled.set(false);
+        // A buffer might have been added after peek, continue only if nobody else scheduled a drain
+        if (this.inFlightBuffers.isEmpty()
+            || !this.isInFlightBufferDrainScheduled.compareAndSet(false, true)) {
+          return;
+        }
+        continue;
+      }
+
       try {
-        copiedStreamingBuffer = this.streamingBuffer;
-        this.streamingBuffer = new StreamingBuffer();
+        if (this.inFlightBufferInsertFailure.get() != null
+            || inFlightBuffer.getGeneration() != this.bufferGeneration.get()) {
+          LOGGER.debug(
+              "Discarding in flight buffer:{} for channel:{}",
+              inFlightBuffer,
+              this.getChannelName());
+        } else {
+          insertBufferedRecords(inFlightBuffer);
+        }
+      } catch (RuntimeException ex) {
+        LOGGER.error(
+            String.format(
+                "[PIPELINED_INSERT] Failure inserting buffer:%s for channel:%s",
+                inFlightBuffer, this.getChannelName()),
+            ex);
+        this.inFlightBufferInsertFailure.compareAndSet(null, ex);
       } finally {
-        bufferLock.unlock();
+        this.inFlightBuffers.poll();
       }
-      if (copiedStreamingBuffer != null) {
-        insertBufferedRecords(copiedStreamingBuffer);
+    }
+  }
+
+  /**
+   * Only invoked on the task thread. Rethrows the failure of insertRows in background, recovers the
+   * channel if the committed offset poller failed and resets the offset in kafka if an offset was
+   * recovered from Snowflake in background.
+   *
+   * <p>When buffers are in flight, the channel is recovered before the next one is inserted
+   * instead, since no insertRows is running in background only once they are all inserted.
+   */
+  private void checkInFlightBuffersAndResetOffsetInKafka() {
+    if (this.insertRowsExecutor != null) {
+      final RuntimeException failure = this.inFlightBufferInsertFailure.get();
+      if (failure != null) {
+        throw failure;
+      }
+    }
+    if (this.insertRowsExecutor == null || this.inFlightBuffers.isEmpty()) {
+      recoverChannelIfNeeded();
+    }
+    final long offsetToResetInKafka =
+        this.pendingOffsetToResetInKafka.getAndSet(NO_OFFSET_TOKEN_REGISTERED_IN_SNOWFLAKE);
+    if (offsetToResetInKafka != NO_OFFSET_TOKEN_REGISTERED_IN_SNOWFLAKE) {
+      this.sinkTaskContext.offset(this.topicPartition, offsetToResetInKafka);
+    }
+  }
+
+  /**
+   * Resets the offset in kafka. When pipelined insert is enabled, this can be called from a
+   * background thread, so the reset is deferred to the task thread.
+   */
+  private void resetOffsetInKafka(final long offsetToResetInKafka) {
+    if (this.insertRowsExecutor == null) {
+      this.sinkTaskContext.offset(this.topicPartition, offsetToResetInKafka);
+    } else {
+      this.pendingOffsetToResetInKafka.set(offsetToResetInKafka);
+    }
+  }
+
+  /**
+   * Discards all in flight buffers and waits for the one being inserted, if any. Also invoked on
+   * channels which are dropped without closing them, so that no insertRows of a stale buffer runs
+   * after the channel is opened again.
+   */
+  void discardInFlightBuffers() {
+    if (this.insertRowsExecutor == null) {
+      return;
+    }
+    this.bufferGeneration.incrementAndGet();
+    final Future<?> drainFuture = this.inFlightBufferDrainFuture;
+    if (drainFuture != null) {
+      try {
+        drainFuture.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        LOGGER.warn(
+            "In flight buffers of channel:{} failed with msg:{}",
+            this.getChannelName(),
+            e.getMessage());
       }
     }
   }
@@ -477,9 +892,17 @@ public class TopicPartitionChannel {
     }
     InsertRowsResponse response = null;
     try {
+      recoverChannelIfNeeded();
+      if (!reopenChannelIfTableEvolved(streamingBufferToInsert)) {
+        return null;
+      }
       response = insertRowsWithFallback(streamingBufferToInsert);
-      // Updates the flush time (last time we called insertRows API)
-      this.previousFlushTimeStampMs = System.currentTimeMillis();
+      this.hasInsertedRowsSinceOpen = true;
+      // Updates the flush time (last time we called insertRows API), buffers handed over to
+      // pipelined insert update it in submitBufferedRecords
+      if (this.insertRowsExecutor == null) {
+        this.previousFlushTimeStampMs = System.currentTimeMillis();
+      }
 
       LOGGER.info(
           "Successfully called insertRows for channel:{}, buffer:{}, insertResponseHasErrors:{},"
@@ -493,6 +916,12 @@ public class TopicPartitionChannel {
             response.getInsertErrors(), streamingBufferToInsert.getSinkRecords());
       }
 
+      // Table was evolved for rows which were rejected by the batch insertRows
+      if (!response.getRowIndexesToRetryAfterSchemaEvolution().isEmpty()) {
+        insertRowsAfterSchemaEvolution(
+            streamingBufferToInsert, response.getRowIndexesToRetryAfterSchemaEvolution());
+      }
+
       // Due to schema evolution, we may need to reopen the channel and reset the offset in kafka
       // since it's possible that not all rows are ingested
       if (response.needToResetOffset()) {
@@ -516,6 +945,123 @@ public class TopicPartitionChannel {
     return response;
   }
 
+  /**
+   * Re-submits the rows which were rejected by the batch insertRows because the table schema didn't
+   * match, once the table was evolved.
+   *
+   * <p>The channel is reopened to pick up the evolved schema, which drops the rows which are not
+   * committed yet. If the accepted rows are committed in Snowflake by then, only the rejected rows
+   * are inserted again. Else we reset the offset in kafka like schema evolution does when inserting
+   * row by row.
+   *
+   * <p>Invoked by the thread inserting the buffers of this channel, which holds {@link #flushLock}
+   * or drains the in flight buffers, so no other insertRows runs on the channel meanwhile.
+   *
+   * @param insertedBuffer buffer which was inserted using batch insertRows
+   * @param rowIndexesToRetry indexes of rows in insertedBuffer which needed schema evolution
+   */
+  private void insertRowsAfterSchemaEvolution(
+      StreamingBuffer insertedBuffer, List<Integer> rowIndexesToRetry) {
+    final long offsetTokenOfAcceptedRows = insertedBuffer.getLastOffset();
+    waitForOffsetTokenCommitted(offsetTokenOfAcceptedRows);
+    final long offsetRecoveredFromSnowflake =
+        getRecoveredOffsetFromSnowflake(
+            StreamingApiFallbackInvoker.INSERT_ROWS_SCHEMA_EVOLUTION_FALLBACK);
+    if (offsetRecoveredFromSnowflake < offsetTokenOfAcceptedRows) {
+      resetChannelMetadataAfterRecovery(
+          StreamingApiFallbackInvoker.INSERT_ROWS_SCHEMA_EVOLUTION_FALLBACK,
+          offsetRecoveredFromSnowflake);
+      // If there is no valid offset token at server side even after the reset, retry it again
+      if (offsetRecoveredFromSnowflake == NO_OFFSET_TOKEN_REGISTERED_IN_SNOWFLAKE) {
+        insertBufferedRecords(insertedBuffer);
+      }
+      return;
+    }
+
+    final StreamingBuffer bufferToRetry = insertedBuffer.getRowsToRetry(rowIndexesToRetry);
+    LOGGER.info(
+        "{} Re-inserting {} rows after schema evolution for channel:{}, buffer:{}",
+        StreamingApiFallbackInvoker.INSERT_ROWS_SCHEMA_EVOLUTION_FALLBACK,
+        rowIndexesToRetry.size(),
+        this.getChannelName(),
+        bufferToRetry);
+    insertBufferedRecords(bufferToRetry);
+  }
+
+  /**
+   * Reopens the channel if the table was altered by another channel of the task since this channel
+   * was opened, so that the buffer is inserted with the evolved schema instead of having its rows
+   * rejected and evolving the table again. (Check {@link
+   * SchemaEvolutionCoordinator#getSchemaVersion})
+   *
+   * <p>Reopening drops the rows which are not committed yet, so the rows inserted before this
+   * buffer are waited for. If they are still not committed, the offset in kafka is reset to the
+   * offset committed in Snowflake and this buffer is not inserted.
+   *
+   * @param bufferToInsert buffer which is about to be inserted
+   * @return false if the buffer must not be inserted since kafka will send its records again
+   */
+  private boolean reopenChannelIfTableEvolved(StreamingBuffer bufferToInsert) {
+    if (!this.enableSchemaEvolution
+        || this.schemaEvolutionCoordinator.getSchemaVersion(this.tableName)
+            <= this.openedSchemaVersion) {
+      return true;
+    }
+    if (!this.hasInsertedRowsSinceOpen) {
+      LOGGER.info(
+          "{} Re-opening channel:{}",
+          StreamingApiFallbackInvoker.TABLE_EVOLVED_FALLBACK,
+          this.getChannelName());
+      this.channel = Preconditions.checkNotNull(openChannelForTable());
+      return true;
+    }
+
+    final long offsetTokenBeforeBuffer = bufferToInsert.getFirstOffset() - 1;
+    waitForOffsetTokenCommitted(offsetTokenBeforeBuffer);
+    final long offsetRecoveredFromSnowflake =
+        getRecoveredOffsetFromSnowflake(StreamingApiFallbackInvoker.TABLE_EVOLVED_FALLBACK);
+    if (offsetRecoveredFromSnowflake == NO_OFFSET_TOKEN_REGISTERED_IN_SNOWFLAKE
+        || offsetRecoveredFromSnowflake >= offsetTokenBeforeBuffer) {
+      return true;
+    }
+    resetChannelMetadataAfterRecovery(
+        StreamingApiFallbackInvoker.TABLE_EVOLVED_FALLBACK, offsetRecoveredFromSnowflake);
+    return false;
+  }
+
+  /**
+   * Waits until Snowflake committed the offset token on the current channel, so that the rows
+   * inserted with it are not dropped when the channel is reopened. Gives up after {@link
+   * StreamingUtils#MAX_COMMITTED_OFFSET_CHECKS} checks, the caller then relies on kafka to send
+   * the rows again.
+   *
+   * @param offsetToken offset token of the last rows inserted into the current channel
+   */
+  private void waitForOffsetTokenCommitted(long offsetToken) {
+    for (int check = 0; check < MAX_COMMITTED_OFFSET_CHECKS; check++) {
+      try {
+        final String committedOffsetToken = this.channel.getLatestCommittedOffsetToken();
+        if (committedOffsetToken != null && Long.parseLong(committedOffsetToken) >= offsetToken) {
+          return;
+        }
+        Thread.sleep(DURATION_BETWEEN_COMMITTED_OFFSET_CHECK.toMillis());
+      } catch (SFException | NumberFormatException e) {
+        LOGGER.warn(
+            "Failure checking committed offset token for channel:{}, msg:{}",
+            this.getChannelName(),
+            e.getMessage());
+        return;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    LOGGER.warn(
+        "Offset token:{} is not committed yet for channel:{}, kafka will send its rows again",
+        offsetToken,
+        this.getChannelName());
+  }
+
   /**
    * Uses {@link Fallback} API to reopen the channel if insertRows throws {@link SFException}.
    *
@@ -558,7 +1104,11 @@ public class TopicPartitionChannel {
     return Failsafe.with(reopenChannelFallbackExecutorForInsertRows)
         .get(
             new InsertRowsApiResponseSupplier(
-                this.channel, buffer, this.enableSchemaEvolution, this.conn));
+                this.channel,
+                buffer,
+                this.enableSchemaEvolution,
+                this.enableSchemaEvolutionBatchInsert,
+                this.schemaEvolutionCoordinator));
   }
 
   /** Invokes the API given the channel and streaming Buffer. */
@@ -574,18 +1124,23 @@ public class TopicPartitionChannel {
     // Whether the schema evolution is enabled
     private final boolean enableSchemaEvolution;
 
-    // Connection service which will be used to do the ALTER TABLE command for schema evolution
-    private final SnowflakeConnectionService conn;
+    // Whether rows are inserted in batch when schema evolution is enabled
+    private final boolean enableSchemaEvolutionBatchInsert;
+
+    // Coordinator which will be used to do the ALTER TABLE command for schema evolution
+    private final SchemaEvolutionCoordinator schemaEvolutionCoordinator;
 
     private InsertRowsApiResponseSupplier(
         SnowflakeStreamingIngestChannel channelForInsertRows,
         StreamingBuffer insertRowsStreamingBuffer,
         boolean enableSchemaEvolution,
-        SnowflakeConnectionService conn) {
+        boolean enableSchemaEvolutionBatchInsert,
+        SchemaEvolutionCoordinator schemaEvolutionCoordinator) {
       this.channel = channelForInsertRows;
       this.insertRowsStreamingBuffer = insertRowsStreamingBuffer;
       this.enableSchemaEvolution = enableSchemaEvolution;
-      this.conn = conn;
+      this.enableSchemaEvolutionBatchInsert = enableSchemaEvolutionBatchInsert;
+      this.schemaEvolutionCoordinator = schemaEvolutionCoordinator;
     }
 
     @Override
@@ -604,6 +1159,8 @@ public class TopicPartitionChannel {
         finalResponse =
             this.channel.insertRows(
                 records, Long.toString(this.insertRowsStreamingBuffer.getLastOffset()));
+      } else if (enableSchemaEvolutionBatchInsert) {
+        return insertRowsAndEvolveSchema(records);
       } else {
         for (int idx = 0; idx < records.size(); idx++) {
           // For schema evolution, we need to call the insertRows API row by row in order to
@@ -615,8 +1172,8 @@ public class TopicPartitionChannel {
             InsertValidationResponse.InsertError insertError = response.getInsertErrors().get(0);
             List<String> extraColNames = insertError.getExtraColNames();
             List<String> nonNullableColumns = insertError.getMissingNotNullColNames();
-            long originalSinkRecordIdx =
-                offsets.get(idx) - this.insertRowsStreamingBuffer.getFirstOffset();
+            // Rows and sink records are stored at the same index inside the buffer
+            long originalSinkRecordIdx = idx;
             if (extraColNames == null && nonNullableColumns == null) {
               InsertValidationResponse.InsertError newInsertError =
                   new InsertValidationResponse.InsertError(
@@ -625,10 +1182,9 @@ public class TopicPartitionChannel {
               newInsertError.setExtraColNames(insertError.getExtraColNames());
               newInsertError.setMissingNotNullColNames(insertError.getMissingNotNullColNames());
               // Simply added to the final response if it's not schema related errors
-              finalResponse.addError(insertError);
+              finalResponse.addError(newInsertError);
             } else {
-              SchematizationUtils.evolveSchemaIfNeeded(
-                  this.conn,
+              this.schemaEvolutionCoordinator.evolveSchemaIfNeeded(
                   this.channel.getTableName(),
                   nonNullableColumns,
                   extraColNames,
@@ -639,12 +1195,68 @@ public class TopicPartitionChannel {
             }
           }
         }
-        // TODO SNOW-758492: for schematization, sleep a few seconds after the insert to avoid
-        // combining channels with different schemas
-        Thread.sleep(2000);
       }
       return new InsertRowsResponse(finalResponse, needToResetOffset);
     }
+
+    /**
+     * Inserts all rows in one insertRows call. Rows rejected because of extra columns or missing
+     * non-nullable columns are collected, and the table is evolved once for the union of those
+     * columns. These rows are inserted again by the caller, other errors are returned as is.
+     *
+     * <p>Rows are inserted with the last offset of the buffer, so that the batch takes a single
+     * insertRows call when no row is rejected. Rows accepted by insertRows are committed with this
+     * offset token even if rows before them were rejected, the rejected rows are only kept in the
+     * buffer until they are inserted again. If the task stops before that while the accepted rows
+     * are committed, kafka doesn't send the rejected rows again.
+     */
+    private InsertRowsResponse insertRowsAndEvolveSchema(List<Map<String, Object>> records) {
+      InsertValidationResponse response =
+          this.channel.insertRows(
+              records, Long.toString(this.insertRowsStreamingBuffer.getLastOffset()));
+      InsertValidationResponse finalResponse = new InsertValidationResponse();
+      List<Integer> rowIndexesToRetry = new ArrayList<>();
+      Set<String> nonNullableColumns = new LinkedHashSet<>();
+      Map<String, String> extraColumnsToType = new LinkedHashMap<>();
+      for (InsertValidationResponse.InsertError insertError : response.getInsertErrors()) {
+        List<String> extraColNames = insertError.getExtraColNames();
+        List<String> missingNotNullColNames = insertError.getMissingNotNullColNames();
+        if (extraColNames == null && missingNotNullColNames == null) {
+          // Simply added to the final response if it's not schema related errors
+          finalResponse.addError(insertError);
+          continue;
+        }
+        // Rows and sink records are stored at the same index inside the buffer
+        final int rowIndex = (int) insertError.getRowIndex();
+        rowIndexesToRetry.add(rowIndex);
+        if (missingNotNullColNames != null) {
+          nonNullableColumns.addAll(missingNotNullColNames);
+        }
+        if (extraColNames != null) {
+          List<String> newColNames = new ArrayList<>();
+          for (String extraColName : extraColNames) {
+            if (!extraColumnsToType.containsKey(extraColName)) {
+              newColNames.add(extraColName);
+            }
+          }
+          extraColumnsToType.putAll(
+              SchematizationUtils.getColumnTypes(
+                  this.insertRowsStreamingBuffer.getSinkRecord(rowIndex), newColNames));
+        }
+      }
+
+      if (rowIndexesToRetry.isEmpty()) {
+        return new InsertRowsResponse(finalResponse, false);
+      }
+
+      Collections.sort(rowIndexesToRetry);
+      // Returns once the evolved columns are visible, the caller then reopens the channel
+      this.schemaEvolutionCoordinator.evolveSchemaIfNeeded(
+          this.channel.getTableName(),
+          nonNullableColumns.isEmpty() ? null : new ArrayList<>(nonNullableColumns),
+          extraColumnsToType.isEmpty() ? null : extraColumnsToType);
+      return new InsertRowsResponse(finalResponse, false, rowIndexesToRetry);
+    }
   }
 
   // A class that wraps around the InsertValidationResponse from Ingest SDK plus some additional
@@ -653,9 +1265,20 @@ public class TopicPartitionChannel {
     private final InsertValidationResponse response;
     private final boolean needToResetOffset;
 
+    // Index of rows in the inserted buffer which need to be inserted again after schema evolution
+    private final List<Integer> rowIndexesToRetryAfterSchemaEvolution;
+
     InsertRowsResponse(InsertValidationResponse response, boolean needToResetOffset) {
+      this(response, needToResetOffset, Collections.emptyList());
+    }
+
+    InsertRowsResponse(
+        InsertValidationResponse response,
+        boolean needToResetOffset,
+        List<Integer> rowIndexesToRetryAfterSchemaEvolution) {
       this.response = response;
       this.needToResetOffset = needToResetOffset;
+      this.rowIndexesToRetryAfterSchemaEvolution = rowIndexesToRetryAfterSchemaEvolution;
     }
 
     boolean hasErrors() {
@@ -669,6 +1292,10 @@ public class TopicPartitionChannel {
     boolean needToResetOffset() {
       return this.needToResetOffset;
     }
+
+    List<Integer> getRowIndexesToRetryAfterSchemaEvolution() {
+      return this.rowIndexesToRetryAfterSchemaEvolution;
+    }
   }
 
   /**
@@ -733,11 +1360,10 @@ public class TopicPartitionChannel {
     }
   }
 
-  // TODO: SNOW-529755 POLL committed offsets in backgraound thread
-
   /**
    * Get committed offset from Snowflake. It does an HTTP call internally to find out what was the
-   * last offset inserted.
+   * last offset inserted, unless committed offset polling is enabled and the offset cached by the
+   * poller is recent enough. (Check {@link #getCommittedOffsetToken()})
    *
    * <p>If committedOffset fetched from Snowflake is null, we would return -1(default value of
    * committedOffset) back to original call. (-1) would return an empty Map of partition and offset
@@ -756,7 +1382,7 @@ public class TopicPartitionChannel {
    * @return (offsetToken present in Snowflake + 1), else -1
    */
   public long getOffsetSafeToCommitToKafka() {
-    final long committedOffsetInSnowflake = fetchOffsetTokenWithRetry();
+    final long committedOffsetInSnowflake = getCommittedOffsetToken();
     if (committedOffsetInSnowflake == NO_OFFSET_TOKEN_REGISTERED_IN_SNOWFLAKE) {
       return NO_OFFSET_TOKEN_REGISTERED_IN_SNOWFLAKE;
     } else {
@@ -767,6 +1393,88 @@ public class TopicPartitionChannel {
     }
   }
 
+  /**
+   * Returns the committed offset token cached by the background poller if it was fetched within
+   * {@link #MAX_COMMITTED_OFFSET_STALENESS_POLL_INTERVALS} poll intervals, else fetches it from
+   * Snowflake.
+   *
+   * <p>A stale offset token is never ahead of what is committed in Snowflake, hence it is always
+   * safe to commit in Kafka.
+   */
+  private long getCommittedOffsetToken() {
+    if (this.committedOffsetPollIntervalMs <= 0) {
+      return fetchOffsetTokenWithRetry();
+    }
+    final CommittedOffsetToken cachedOffsetToken = this.cachedCommittedOffsetToken.get();
+    if (cachedOffsetToken != null
+        && cachedOffsetToken.getStalenessMs()
+            <= this.committedOffsetPollIntervalMs * MAX_COMMITTED_OFFSET_STALENESS_POLL_INTERVALS) {
+      return cachedOffsetToken.getOffsetToken();
+    }
+    LOGGER.warn(
+        "Cached committed offset token for channel:{} is stale:{}, fetching it from Snowflake",
+        this.getChannelName(),
+        cachedOffsetToken);
+    final long committedOffsetToken = fetchOffsetTokenWithRetry();
+    cacheCommittedOffsetToken(committedOffsetToken);
+    return committedOffsetToken;
+  }
+
+  /**
+   * Fetches the committed offset token from Snowflake and caches it. Invoked by the background
+   * poller in {@link SnowflakeSinkServiceV2}, does nothing once the channel is being closed.
+   *
+   * <p>The poller only reads the offset token. If it can't be fetched even after retries, the
+   * channel is reopened and the offset in kafka is reset by the thread inserting rows. (Check
+   * {@link #recoverChannelIfNeeded()})
+   */
+  public void refreshCommittedOffsetToken() {
+    synchronized (this.committedOffsetRefreshLock) {
+      if (this.isChannelClosing) {
+        return;
+      }
+      try {
+        cacheCommittedOffsetToken(
+            Failsafe.with(buildOffsetTokenRetryPolicy())
+                .get(this::fetchLatestCommittedOffsetFromSnowflake));
+      } catch (SFException e) {
+        LOGGER.warn(
+            "Failure fetching committed offset token in background for channel:{}, it will be"
+                + " recovered before the next insert, msg:{}",
+            this.getChannelName(),
+            e.getMessage());
+        this.isChannelRecoveryNeeded.set(true);
+      }
+    }
+  }
+
+  /**
+   * Recovers the channel if the committed offset poller failed to fetch the offset token. Only
+   * invoked by the thread inserting rows into this channel, fetches the offset token with retries
+   * and falls back to reopening the channel and resetting the offset in kafka.
+   */
+  private void recoverChannelIfNeeded() {
+    if (this.isChannelRecoveryNeeded.getAndSet(false)) {
+      LOGGER.warn(
+          "Recovering channel:{} after the committed offset poller failed", this.getChannelName());
+      cacheCommittedOffsetToken(fetchOffsetTokenWithRetry());
+    }
+  }
+
+  private void cacheCommittedOffsetToken(final long committedOffsetToken) {
+    this.cachedCommittedOffsetToken.set(
+        new CommittedOffsetToken(committedOffsetToken, System.currentTimeMillis()));
+  }
+
+  /**
+   * @return milliseconds since the committed offset token was last fetched from Snowflake, -1 if
+   *     it was never fetched
+   */
+  public long getCommittedOffsetStalenessMs() {
+    final CommittedOffsetToken cachedOffsetToken = this.cachedCommittedOffsetToken.get();
+    return cachedOffsetToken == null ? -1 : cachedOffsetToken.getStalenessMs();
+  }
+
   /**
    * Fetches the offset token from Snowflake.
    *
@@ -792,19 +1500,7 @@ public class TopicPartitionChannel {
    */
   @VisibleForTesting
   protected long fetchOffsetTokenWithRetry() {
-    final RetryPolicy<Long> offsetTokenRetryPolicy =
-        RetryPolicy.<Long>builder()
-            .handle(SFException.class)
-            .withDelay(DURATION_BETWEEN_GET_OFFSET_TOKEN_RETRY)
-            .withMaxAttempts(MAX_GET_OFFSET_TOKEN_RETRIES)
-            .onRetry(
-                event ->
-                    LOGGER.warn(
-                        "[OFFSET_TOKEN_RETRY_POLICY] retry for getLatestCommittedOffsetToken. Retry"
-                            + " no:{}, message:{}",
-                        event.getAttemptCount(),
-                        event.getLastException().getMessage()))
-            .build();
+    final RetryPolicy<Long> offsetTokenRetryPolicy = buildOffsetTokenRetryPolicy();
 
     /*
      * The fallback function to execute when all retries from getOffsetToken have exhausted.
@@ -839,6 +1535,22 @@ public class TopicPartitionChannel {
         .get(this::fetchLatestCommittedOffsetFromSnowflake);
   }
 
+  /** Retries getLatestCommittedOffsetToken on {@link SFException} */
+  private RetryPolicy<Long> buildOffsetTokenRetryPolicy() {
+    return RetryPolicy.<Long>builder()
+        .handle(SFException.class)
+        .withDelay(DURATION_BETWEEN_GET_OFFSET_TOKEN_RETRY)
+        .withMaxAttempts(MAX_GET_OFFSET_TOKEN_RETRIES)
+        .onRetry(
+            event ->
+                LOGGER.warn(
+                    "[OFFSET_TOKEN_RETRY_POLICY] retry for getLatestCommittedOffsetToken. Retry"
+                        + " no:{}, message:{}",
+                    event.getAttemptCount(),
+                    event.getLastException().getMessage()))
+        .build();
+  }
+
   /**
    * Fallback function to be executed when either of insertRows API or getOffsetToken sends
    * SFException.
@@ -853,7 +1565,7 @@ public class TopicPartitionChannel {
    *     for logging mainly.
    * @return offset which was last present in Snowflake
    */
-  private long streamingApiFallbackSupplier(
+  private synchronized long streamingApiFallbackSupplier(
       final StreamingApiFallbackInvoker streamingApiFallbackInvoker) {
     final long offsetRecoveredFromSnowflake =
         getRecoveredOffsetFromSnowflake(streamingApiFallbackInvoker);
@@ -891,18 +1603,19 @@ public class TopicPartitionChannel {
     }
 
     final long offsetToResetInKafka = offsetRecoveredFromSnowflake + 1L;
-    // reset the buffer
-    this.bufferLock.lock();
+    // reset the buffer, no record is added until the next buffer is set
+    final StreamingBuffer discardedStreamingBuffer = sealActiveBuffer(null);
     try {
       LOGGER.warn(
           "[RESET_PARTITION] Emptying current buffer:{} for Channel:{} due to reset of offsets in"
               + " kafka",
-          this.streamingBuffer,
+          discardedStreamingBuffer,
           this.getChannelName());
-      this.streamingBuffer = new StreamingBuffer();
+      // Buffers which are in flight belong to the older generation and won't be inserted
+      this.bufferGeneration.incrementAndGet();
 
       // Reset Offset in kafka for this topic partition.
-      this.sinkTaskContext.offset(this.topicPartition, offsetToResetInKafka);
+      resetOffsetInKafka(offsetToResetInKafka);
 
       // Need to update the in memory processed offset otherwise if same offset is send again, it
       // might get rejected.
@@ -913,7 +1626,8 @@ public class TopicPartitionChannel {
       // starting from offsetRecoveredFromSnowflake
       isOffsetResetInKafka = true;
     } finally {
-      this.bufferLock.unlock();
+      // created after the generation is incremented
+      this.streamingBuffer.set(new StreamingBuffer());
     }
     LOGGER.warn(
         "{} Channel:{}, OffsetRecoveredFromSnowflake:{}, Reset kafka offset to:{}",
@@ -997,6 +1711,12 @@ public class TopicPartitionChannel {
    * @return new channel which was fetched after open/reopen
    */
   private SnowflakeStreamingIngestChannel openChannelForTable() {
+    // Read before opening, the channel might miss an ALTER TABLE which is in progress
+    this.openedSchemaVersion =
+        this.schemaEvolutionCoordinator == null
+            ? 0
+            : this.schemaEvolutionCoordinator.getSchemaVersion(this.tableName);
+    this.hasInsertedRowsSinceOpen = false;
     OpenChannelRequest channelRequest =
         OpenChannelRequest.builder(this.channelName)
             .setDBName(this.sfConnectorConfig.get(Utils.SF_DATABASE))
@@ -1014,6 +1734,13 @@ public class TopicPartitionChannel {
    * connector will stop. Channel will eventually be reopened.
    */
   public void closeChannel() {
+    // Waits for the background poller if it is fetching the offset token
+    synchronized (this.committedOffsetRefreshLock) {
+      this.isChannelClosing = true;
+    }
+    // Records which are not inserted yet will be sent again by kafka since their offsets are not
+    // committed
+    discardInFlightBuffers();
     try {
       this.channel.close().get();
     } catch (InterruptedException | ExecutionException e) {
@@ -1034,13 +1761,47 @@ public class TopicPartitionChannel {
   // ------ GETTERS ------ //
 
   public StreamingBuffer getStreamingBuffer() {
-    return streamingBuffer;
+    return streamingBuffer.get();
   }
 
   public long getPreviousFlushTimeStampMs() {
     return previousFlushTimeStampMs;
   }
 
+  /** @return time at which the buffer is flushed by time unless it is flushed earlier */
+  public long getTimeBasedFlushDeadlineMs() {
+    return this.streamingBufferThreshold.getFlushTimeDeadlineMs(this.previousFlushTimeStampMs);
+  }
+
+  /**
+   * @return bytes of the rows in the buffer which is not handed over to insertRows API yet, might
+   *     miss the last record if records are added on another thread
+   */
+  public long getBufferSizeBytes() {
+    return this.streamingBuffer.get().getBufferSizeBytes();
+  }
+
+  /**
+   * @return bytes of the rows held in memory by this channel, i.e. the buffer which is not handed
+   *     over yet and the buffers waiting for or being inserted by insertRows API in background
+   */
+  public long getBufferedBytesIncludingInFlight() {
+    long bufferedBytes = getBufferSizeBytes();
+    for (StreamingBuffer inFlightBuffer : this.inFlightBuffers) {
+      bufferedBytes += inFlightBuffer.getBufferSizeBytes();
+    }
+    return bufferedBytes;
+  }
+
+  public TopicPartition getTopicPartition() {
+    return topicPartition;
+  }
+
+  /** @return number of buffers waiting for insertRows API in background */
+  public int getInFlightBufferCount() {
+    return this.inFlightBuffers.size();
+  }
+
   public String getChannelName() {
     return this.channel.getFullyQualifiedName();
   }
@@ -1062,7 +1823,7 @@ public class TopicPartitionChannel {
 
   @VisibleForTesting
   protected boolean isPartitionBufferEmpty() {
-    return streamingBuffer.isEmpty();
+    return streamingBuffer.get().isEmpty();
   }
 
   @VisibleForTesting
@@ -1079,12 +1840,15 @@ public class TopicPartitionChannel {
    * Converts the original kafka sink record into a Json Record. i.e key and values are converted
    * into Json so that it can be used to insert into variant column of Snowflake Table.
    *
-   * <p>TODO: SNOW-630885 - When schematization is enabled, we should create the map directly from
-   * the SinkRecord instead of first turning it into json
+   * <p>When schematization is enabled, Struct and Map values are kept as is since {@link
+   * RecordService#getProcessedRecordForStreamingIngest(SinkRecord)} creates the row directly from
+   * them instead of first turning them into json.
    */
   private SinkRecord getSnowflakeSinkRecordFromKafkaRecord(final SinkRecord kafkaSinkRecord) {
     SinkRecord snowflakeRecord = kafkaSinkRecord;
-    if (shouldConvertContent(kafkaSinkRecord.value())) {
+    if (shouldConvertContent(kafkaSinkRecord.value())
+        && !(this.enableSchematization
+            && RecordService.isNativeRowValue(kafkaSinkRecord.value()))) {
       snowflakeRecord = handleNativeRecord(kafkaSinkRecord, false);
     }
     if (shouldConvertContent(kafkaSinkRecord.key())) {
@@ -1095,68 +1859,105 @@ public class TopicPartitionChannel {
   }
 
   /**
-   * Get Approximate size of Sink Record which we get from Kafka. This is useful to find out how
-   * much data(records) we have buffered per channel/partition.
-   *
-   * <p>This is an approximate size since there is no API available to find out size of record.
-   *
-   * <p>We first serialize the incoming kafka record into a Json format and find estimate size.
-   *
-   * <p>Please note, the size we calculate here is not accurate and doesnt match with actual size of
-   * Kafka record which we buffer in memory. (Kafka Sink Record has lot of other metadata
-   * information which is discarded when we calculate the size of Json Record)
+   * Get the size of a row which was converted from a Kafka Sink Record. This is useful to find out
+   * how much data(records) we have buffered per channel/partition.
    *
-   * <p>We also do the same processing just before calling insertRows API for the buffered rows.
+   * <p>The row passed in here is the same row which is later handed to insertRows API, so the
+   * conversion of a record only happens once.
    *
-   * <p>Downside of this calculation is we might try to buffer more records but we could be close to
-   * JVM memory getting full
+   * <p>Please note, the size we calculate here doesnt match with actual size of Kafka record which
+   * we buffer in memory. (Kafka Sink Record has lot of other metadata information which is
+   * discarded when we calculate the size of Json Record)
    *
-   * @param kafkaSinkRecord sink record received as is from Kafka (With connector specific converter
-   *     being invoked)
-   * @return Approximate long size of record in bytes. 0 if record is broken
+   * @param tableRow row converted by {@link RecordService#getProcessedRecordForStreamingIngest}
+   * @return long size of row in bytes
    */
-  protected long getApproxSizeOfRecordInBytes(SinkRecord kafkaSinkRecord) {
-    long sinkRecordBufferSizeInBytes = 0L;
+  protected long getSizeOfRowInBytes(Map<String, Object> tableRow) {
+    long rowBufferSizeInBytes = 0L;
+    // need to loop through the map and get the object node
+    for (Map.Entry<String, Object> entry : tableRow.entrySet()) {
+      rowBufferSizeInBytes += entry.getKey().length() * 2L;
+      rowBufferSizeInBytes += getSizeOfValueInBytes(entry.getValue());
+    }
 
-    SinkRecord snowflakeRecord = getSnowflakeSinkRecordFromKafkaRecord(kafkaSinkRecord);
+    rowBufferSizeInBytes += StreamingUtils.MAX_RECORD_OVERHEAD_BYTES;
+    return rowBufferSizeInBytes;
+  }
 
-    if (isRecordBroken(snowflakeRecord)) {
-      // we won't be able to find accurate size of serialized record since serialization itself
-      // failed
-      // But this will not happen in streaming ingest since we deprecated custom converters.
+  /**
+   * Get the approximate size of a column value. Values are strings and lists of strings when the
+   * record content is JSON, and java objects when Struct or Map values are converted directly.
+   * (Check {@link RecordService#getProcessedRecordForStreamingIngest})
+   *
+   * @param value value of a column, or an element of a nested value
+   * @return size of the value in bytes
+   */
+  private static long getSizeOfValueInBytes(Object value) {
+    if (value == null) {
       return 0L;
     }
-
-    try {
-      // get the row that we want to insert into Snowflake.
-      Map<String, Object> tableRow =
-          recordService.getProcessedRecordForStreamingIngest(snowflakeRecord);
-      // need to loop through the map and get the object node
-      for (Map.Entry<String, Object> entry : tableRow.entrySet()) {
-        sinkRecordBufferSizeInBytes += entry.getKey().length() * 2L;
-        // Can Typecast into string because value is JSON
-        Object value = entry.getValue();
-        if (value != null) {
-          if (value instanceof String) {
-            sinkRecordBufferSizeInBytes += ((String) value).length() * 2L; // 1 char = 2 bytes
-          } else {
-            // for now it could only be a list of string
-            for (String s : (List<String>) value) {
-              sinkRecordBufferSizeInBytes += s.length() * 2L;
-            }
-          }
-        }
+    if (value instanceof CharSequence) {
+      return ((CharSequence) value).length() * 2L; // 1 char = 2 bytes
+    }
+    if (value instanceof byte[]) {
+      return ((byte[]) value).length;
+    }
+    if (value instanceof BigDecimal || value instanceof BigInteger) {
+      return value.toString().length() * 2L;
+    }
+    if (value instanceof Number || value instanceof Boolean) {
+      return Long.BYTES;
+    }
+    if (value instanceof Map) {
+      long mapSizeInBytes = 0L;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        mapSizeInBytes += getSizeOfValueInBytes(entry.getKey());
+        mapSizeInBytes += getSizeOfValueInBytes(entry.getValue());
       }
-    } catch (JsonProcessingException e) {
-      // We ignore any errors here because this is just calculating the record size
+      return mapSizeInBytes;
     }
-
-    sinkRecordBufferSizeInBytes += StreamingUtils.MAX_RECORD_OVERHEAD_BYTES;
-    return sinkRecordBufferSizeInBytes;
+    if (value instanceof Collection) {
+      long collectionSizeInBytes = 0L;
+      for (Object element : (Collection<?>) value) {
+        collectionSizeInBytes += getSizeOfValueInBytes(element);
+      }
+      return collectionSizeInBytes;
+    }
+    return value.toString().length() * 2L;
   }
 
   // ------ INNER CLASS ------ //
 
+  /** Offset token fetched from Snowflake along with the time it was fetched at */
+  private static class CommittedOffsetToken {
+    private final long offsetToken;
+
+    private final long fetchedAtMs;
+
+    CommittedOffsetToken(long offsetToken, long fetchedAtMs) {
+      this.offsetToken = offsetToken;
+      this.fetchedAtMs = fetchedAtMs;
+    }
+
+    long getOffsetToken() {
+      return offsetToken;
+    }
+
+    long getStalenessMs() {
+      return System.currentTimeMillis() - fetchedAtMs;
+    }
+
+    @Override
+    public String toString() {
+      return "CommittedOffsetToken{"
+          + "offsetToken="
+          + offsetToken
+          + ", stalenessMs="
+          + getStalenessMs()
+          + '}';
+    }
+  }
+
   /**
    * A buffer which holds the rows before calling insertRows API. It implements the PartitionBuffer
    * class which has all common fields about a buffer.
@@ -1165,92 +1966,133 @@ public class TopicPartitionChannel {
    * records from Kafka and once threshold has reached, we would call insertRows API to insert into
    * Snowflake.
    *
-   * <p>We would transform kafka records to Snowflake understood records (In JSON format) just
-   * before calling insertRows API.
+   * <p>We transform kafka records to Snowflake understood records (In JSON format) once, while
+   * inserting them into this buffer. The converted rows, their offsets and the original sink
+   * records are kept at the same index so that insertRows API and error reporting can use them
+   * without converting the record again.
    */
   @VisibleForTesting
   protected class StreamingBuffer
       extends PartitionBuffer<Pair<List<Map<String, Object>>, List<Long>>> {
-    // Records coming from Kafka
+    // Records coming from Kafka, only the ones which were successfully converted into rows
     private final List<SinkRecord> sinkRecords;
 
+    // Rows converted from sinkRecords, ready to be sent to insertRows API
+    private final List<Map<String, Object>> rows;
+
+    // Kafka offsets of rows
+    private final List<Long> offsets;
+
+    // Value of bufferGeneration when this buffer was created
+    private final long generation;
+
+    // Number of threads adding a record to this buffer, the SEALED bit is set once the buffer is
+    // swapped out of the channel. Records of a partition are added by one thread at a time, so this
+    // is only contended for the short moment a flush or an offset reset swaps the buffer
+    private final AtomicInteger writerState = new AtomicInteger(0);
+
     StreamingBuffer() {
       super();
+      generation = bufferGeneration.get();
       sinkRecords = new ArrayList<>();
+      rows = new ArrayList<>();
+      offsets = new ArrayList<>();
     }
 
+    /**
+     * Converts the kafka record into a row and adds it to this buffer. Broken records and records
+     * which can not be converted are sent to DLQ and are not buffered.
+     *
+     * <p>This goes over through the kafka record and transforms into JsonSchema and JsonNode Check
+     * {@link #handleNativeRecord(SinkRecord, boolean)}
+     *
+     * @param kafkaSinkRecord sink record received as is from Kafka (With connector specific
+     *     converter being invoked)
+     */
     @Override
     public void insert(SinkRecord kafkaSinkRecord) {
-      if (sinkRecords.isEmpty()) {
+      if (getNumOfRecords() == 0) {
         setFirstOffset(kafkaSinkRecord.kafkaOffset());
       }
-      sinkRecords.add(kafkaSinkRecord);
-
       setNumOfRecords(getNumOfRecords() + 1);
       setLastOffset(kafkaSinkRecord.kafkaOffset());
 
-      final long currentKafkaRecordSizeInBytes = getApproxSizeOfRecordInBytes(kafkaSinkRecord);
-      // update size of buffer
-      setBufferSizeBytes(getBufferSizeBytes() + currentKafkaRecordSizeInBytes);
+      SinkRecord snowflakeRecord = getSnowflakeSinkRecordFromKafkaRecord(kafkaSinkRecord);
+
+      // broken record
+      if (isRecordBroken(snowflakeRecord)) {
+        // check for error tolerance and log tolerance values
+        // errors.log.enable and errors.tolerance
+        LOGGER.debug(
+            "Broken record offset:{}, topic:{}",
+            kafkaSinkRecord.kafkaOffset(),
+            kafkaSinkRecord.topic());
+        kafkaRecordErrorReporter.reportError(kafkaSinkRecord, new DataException("Broken Record"));
+        return;
+      }
+
+      // lag telemetry, note that sink record timestamp might be null
+      if (snowflakeRecord.timestamp() != null
+          && snowflakeRecord.timestampType() != NO_TIMESTAMP_TYPE) {
+        // TODO:SNOW-529751 telemetry
+      }
+
+      // Convert this records into Json Schema which has content and metadata, add it to DLQ if
+      // there is an exception
+      try {
+        Map<String, Object> tableRow =
+            recordService.getProcessedRecordForStreamingIngest(snowflakeRecord);
+        sinkRecords.add(kafkaSinkRecord);
+        rows.add(tableRow);
+        offsets.add(snowflakeRecord.kafkaOffset());
+
+        // update size of buffer
+        setBufferSizeBytes(getBufferSizeBytes() + getSizeOfRowInBytes(tableRow));
+      } catch (JsonProcessingException e) {
+        LOGGER.warn(
+            "Record has JsonProcessingException offset:{}, topic:{}",
+            kafkaSinkRecord.kafkaOffset(),
+            kafkaSinkRecord.topic());
+        kafkaRecordErrorReporter.reportError(kafkaSinkRecord, e);
+      } catch (SnowflakeKafkaConnectorException e) {
+        // Struct and Map values are converted here instead of in handleNativeRecord, report them
+        // the same way as broken records
+        if (!RecordService.isNativeRowValue(snowflakeRecord.value())) {
+          throw e;
+        }
+        LOGGER.warn(
+            "Record could not be converted offset:{}, topic:{}, msg:{}",
+            kafkaSinkRecord.kafkaOffset(),
+            kafkaSinkRecord.topic(),
+            e.getMessage());
+        kafkaRecordErrorReporter.reportError(kafkaSinkRecord, e);
+      }
     }
 
     /**
      * Get all rows and their offsets. Each map corresponds to one row whose keys are column names
      * and values are corresponding data in that column.
      *
-     * <p>This goes over through all buffered kafka records and transforms into JsonSchema and
-     * JsonNode Check {@link #handleNativeRecord(SinkRecord, boolean)}
+     * <p>Rows were already converted in {@link #insert(SinkRecord)}, so this is cheap and can be
+     * invoked more than once for the same buffer.
      *
      * @return A pair that contains the records and their corresponding offsets
      */
     @Override
     public Pair<List<Map<String, Object>>, List<Long>> getData() {
-      final List<Map<String, Object>> records = new ArrayList<>();
-      final List<Long> offsets = new ArrayList<>();
-      for (SinkRecord kafkaSinkRecord : sinkRecords) {
-        SinkRecord snowflakeRecord = getSnowflakeSinkRecordFromKafkaRecord(kafkaSinkRecord);
-
-        // broken record
-        if (isRecordBroken(snowflakeRecord)) {
-          // check for error tolerance and log tolerance values
-          // errors.log.enable and errors.tolerance
-          LOGGER.debug(
-              "Broken record offset:{}, topic:{}",
-              kafkaSinkRecord.kafkaOffset(),
-              kafkaSinkRecord.topic());
-          kafkaRecordErrorReporter.reportError(kafkaSinkRecord, new DataException("Broken Record"));
-        } else {
-          // lag telemetry, note that sink record timestamp might be null
-          if (snowflakeRecord.timestamp() != null
-              && snowflakeRecord.timestampType() != NO_TIMESTAMP_TYPE) {
-            // TODO:SNOW-529751 telemetry
-          }
-
-          // Convert this records into Json Schema which has content and metadata, add it to DLQ if
-          // there is an exception
-          try {
-            Map<String, Object> tableRow =
-                recordService.getProcessedRecordForStreamingIngest(snowflakeRecord);
-            records.add(tableRow);
-            offsets.add(snowflakeRecord.kafkaOffset());
-          } catch (JsonProcessingException e) {
-            LOGGER.warn(
-                "Record has JsonProcessingException offset:{}, topic:{}",
-                kafkaSinkRecord.kafkaOffset(),
-                kafkaSinkRecord.topic());
-            kafkaRecordErrorReporter.reportError(kafkaSinkRecord, e);
-          }
-        }
-      }
       LOGGER.debug(
           "Get rows for streaming ingest. {} records, {} bytes, offset {} - {}",
           getNumOfRecords(),
           getBufferSizeBytes(),
           getFirstOffset(),
           getLastOffset());
-      return new Pair<>(records, offsets);
+      return new Pair<>(rows, offsets);
     }
 
+    /**
+     * @return the sink records which were converted into rows, the index of a sink record matches
+     *     the index of its row in {@link #getData()}
+     */
     @Override
     public List<SinkRecord> getSinkRecords() {
       return sinkRecords;
@@ -1259,6 +2101,71 @@ public class TopicPartitionChannel {
     public SinkRecord getSinkRecord(long idx) {
       return sinkRecords.get((int) idx);
     }
+
+    long getGeneration() {
+      return generation;
+    }
+
+    /** @return true if a record can be added to this buffer, false if it is sealed */
+    boolean tryAcquireWriter() {
+      while (true) {
+        final int state = writerState.get();
+        if ((state & SEALED) != 0) {
+          return false;
+        }
+        if (writerState.compareAndSet(state, state + 1)) {
+          return true;
+        }
+      }
+    }
+
+    void releaseWriter() {
+      writerState.decrementAndGet();
+    }
+
+    /** @return true if this call sealed the buffer, false if it was already sealed */
+    boolean trySeal() {
+      while (true) {
+        final int state = writerState.get();
+        if ((state & SEALED) != 0) {
+          return false;
+        }
+        if (writerState.compareAndSet(state, state | SEALED)) {
+          return true;
+        }
+      }
+    }
+
+    /** Waits for the records being added once the buffer is sealed, this doesn't take long */
+    void awaitWriters() {
+      while (writerState.get() != SEALED) {
+        Thread.yield();
+      }
+    }
+
+    /**
+     * Returns a buffer with the already converted rows at given indexes. Last offset of the
+     * returned buffer stays the last offset of this buffer, so that the offset token in Snowflake
+     * doesn't move backwards when these rows are inserted again.
+     *
+     * @param rowIndexes indexes of rows in this buffer, in increasing order
+     */
+    StreamingBuffer getRowsToRetry(List<Integer> rowIndexes) {
+      StreamingBuffer bufferToRetry = new StreamingBuffer();
+      for (int rowIndex : rowIndexes) {
+        bufferToRetry.sinkRecords.add(sinkRecords.get(rowIndex));
+        bufferToRetry.rows.add(rows.get(rowIndex));
+        bufferToRetry.offsets.add(offsets.get(rowIndex));
+        bufferToRetry.setBufferSizeBytes(
+            bufferToRetry.getBufferSizeBytes() + getSizeOfRowInBytes(rows.get(rowIndex)));
+      }
+      if (!rowIndexes.isEmpty()) {
+        bufferToRetry.setFirstOffset(offsets.get(rowIndexes.get(0)));
+      }
+      bufferToRetry.setNumOfRecords(rowIndexes.size());
+      bufferToRetry.setLastOffset(getLastOffset());
+      return bufferToRetry;
+    }
   }
 
   /**
@@ -1283,6 +2190,9 @@ public class TopicPartitionChannel {
 
     /** Fallback invoked when schema evolution kicks in during insert rows */
     INSERT_ROWS_SCHEMA_EVOLUTION_FALLBACK,
+
+    /** Fallback invoked when another channel evolved the table before insert rows */
+    TABLE_EVOLVED_FALLBACK,
     ;
 
     /** @return Used to LOG which API tried to invoke fallback function. */
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2023 Snowflake Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.snowflake.kafka.connector.records;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import net.snowflake.client.jdbc.internal.fasterxml.jackson.databind.JsonNode;
+import net.snowflake.client.jdbc.internal.fasterxml.jackson.databind.ObjectMapper;
+import net.snowflake.client.jdbc.internal.fasterxml.jackson.databind.node.ArrayNode;
+import net.snowflake.client.jdbc.internal.fasterxml.jackson.databind.node.JsonNodeFactory;
+import net.snowflake.client.jdbc.internal.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericEnumSymbol;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.IndexedRecord;
+
+/**
+ * Encodes decoded Avro data (e.g. a {@link org.apache.avro.generic.GenericRecord}) into a JsonNode
+ * directly.
+ *
+ * <p>The result is the same as parsing the output of {@link
+ * org.apache.avro.generic.GenericData#toString(Object)} with an {@link ObjectMapper}, which is how
+ * Avro records used to be converted, without building and parsing the intermediate Json string:
+ *
+ * <ul>
+ *   <li>Unions are not wrapped, only the value of the resolved branch is encoded
+ *   <li>Bytes without logical type are encoded as the ISO_8859_1 decoded string
+ *   <li>Fixed are encoded as an array of the signed values of their bytes
+ *   <li>Decimals are encoded as numbers, other logical types as their underlying type
+ *   <li>NaN and infinite floating point values are encoded as strings
+ * </ul>
+ */
+final class AvroJsonNodeEncoder {
+  private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+
+  private static final BigInteger MIN_LONG = BigInteger.valueOf(Long.MIN_VALUE);
+  private static final BigInteger MAX_LONG = BigInteger.valueOf(Long.MAX_VALUE);
+
+  private AvroJsonNodeEncoder() {}
+
+  /**
+   * Encode an Avro datum into a JsonNode
+   *
+   * @param datum decoded avro data, usually a GenericRecord
+   * @param mapper mapper used for the values of types which are not known by Avro
+   * @return JsonNode
+   * @throws IOException if a value of unknown type can not be converted
+   */
+  static JsonNode encode(final Object datum, final ObjectMapper mapper) throws IOException {
+    if (datum == null) {
+      return FACTORY.nullNode();
+    } else if (datum instanceof IndexedRecord) {
+      IndexedRecord record = (IndexedRecord) datum;
+      ObjectNode node = FACTORY.objectNode();
+      for (Schema.Field field : record.getSchema().getFields()) {
+        node.set(field.name(), encode(record.get(field.pos()), mapper));
+      }
+      return node;
+    } else if (datum instanceof Collection) {
+      ArrayNode node = FACTORY.arrayNode();
+      for (Object element : (Collection<?>) datum) {
+        node.add(encode(element, mapper));
+      }
+      return node;
+    } else if (datum instanceof Map) {
+      ObjectNode node = FACTORY.objectNode();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) datum).entrySet()) {
+        node.set(String.valueOf(entry.getKey()), encode(entry.getValue(), mapper));
+      }
+      return node;
+    } else if (datum instanceof CharSequence || datum instanceof GenericEnumSymbol) {
+      return FACTORY.textNode(datum.toString());
+    } else if (datum instanceof ByteBuffer) {
+      return FACTORY.textNode(
+          StandardCharsets.ISO_8859_1.decode(((ByteBuffer) datum).duplicate()).toString());
+    } else if (datum instanceof GenericFixed) {
+      ArrayNode node = FACTORY.arrayNode();
+      for (byte b : ((GenericFixed) datum).bytes()) {
+        node.add(b);
+      }
+      return node;
+    } else if (datum instanceof Boolean) {
+      return FACTORY.booleanNode((Boolean) datum);
+    } else if (datum instanceof Integer) {
+      return FACTORY.numberNode((Integer) datum);
+    } else if (datum instanceof Long) {
+      long value = (Long) datum;
+      return value == (int) value ? FACTORY.numberNode((int) value) : FACTORY.numberNode(value);
+    } else if (datum instanceof Float || datum instanceof Double) {
+      double value = ((Number) datum).doubleValue();
+      if (Double.isNaN(value) || Double.isInfinite(value)) {
+        return FACTORY.textNode(datum.toString());
+      }
+      if (datum instanceof Float) {
+        // Float is widened through its decimal representation, the same way it was parsed before
+        return FACTORY.numberNode(Double.parseDouble(datum.toString()));
+      }
+      return FACTORY.numberNode(value);
+    } else if (datum instanceof BigDecimal) {
+      BigDecimal value = (BigDecimal) datum;
+      // Json parser reads a number without fraction and exponent as an integer
+      if (value.scale() == 0) {
+        return integralNode(value.unscaledValue());
+      }
+      return FACTORY.numberNode(Double.parseDouble(value.toString()));
+    }
+    return mapper.readTree(datum.toString());
+  }
+
+  /** Smallest integral node that can hold the value, as the Json parser does */
+  private static JsonNode integralNode(final BigInteger value) {
+    if (value.bitLength() < Integer.SIZE) {
+      return FACTORY.numberNode(value.intValue());
+    } else if (value.compareTo(MIN_LONG) >= 0 && value.compareTo(MAX_LONG) <= 0) {
+      return FACTORY.numberNode(value.longValue());
+    }
+    return FACTORY.numberNode(value);
+  }
+}
@@ -165,6 +165,17 @@ public class RecordService {
 
     SnowflakeRecordContent valueContent = (SnowflakeRecordContent) record.value();
 
+    return new SnowflakeTableRow(valueContent, getMetadata(record, valueContent.getSchemaID()));
+  }
+
+  /**
+   * Build the metadata of a record, which goes into RECORD_METADATA column
+   *
+   * @param record SinkRecord
+   * @param schemaID schema id of the value if using avro with schema registry
+   * @return metadata as a Json object
+   */
+  private ObjectNode getMetadata(SinkRecord record, int schemaID) {
     ObjectNode meta = MAPPER.createObjectNode();
     if (metadataConfig.topicFlag) {
       meta.put(TOPIC, record.topic());
@@ -181,8 +192,8 @@ public class RecordService {
     }
 
     // include schema id if using avro with schema registry
-    if (valueContent.getSchemaID() != SnowflakeRecordContent.NON_AVRO_SCHEMA) {
-      meta.put(SCHEMA_ID, valueContent.getSchemaID());
+    if (schemaID != SnowflakeRecordContent.NON_AVRO_SCHEMA) {
+      meta.put(SCHEMA_ID, schemaID);
     }
 
     putKey(record, meta);
@@ -191,7 +202,7 @@ public class RecordService {
       meta.set(HEADERS, parseHeaders(record.headers()));
     }
 
-    return new SnowflakeTableRow(valueContent, meta);
+    return meta;
   }
 
   /**
@@ -206,6 +217,14 @@ public class RecordService {
   public String getProcessedRecordForSnowpipe(SinkRecord record) {
     SnowflakeTableRow row = processRecord(record);
     StringBuilder buffer = new StringBuilder();
+    if (row.content.hasRawJson()) {
+      // Same as the Json object below, with the original Json written as is
+      buffer.append("{\"").append(CONTENT).append("\":").append(row.content.getRawJson());
+      if (metadataConfig.allFlag) {
+        buffer.append(",\"").append(META).append("\":").append(row.metadata.toString());
+      }
+      return buffer.append('}').toString();
+    }
     for (JsonNode node : row.content.getData()) {
       ObjectNode data = MAPPER.createObjectNode();
       data.set(CONTENT, node);
@@ -234,8 +253,19 @@ public class RecordService {
    */
   public Map<String, Object> getProcessedRecordForStreamingIngest(SinkRecord record)
       throws JsonProcessingException {
+    if (enableSchematization && isNativeRowValue(record.value())) {
+      return getProcessedNativeRecordForStreamingIngest(record);
+    }
     SnowflakeTableRow row = processRecord(record);
     final Map<String, Object> streamingIngestRow = new HashMap<>();
+    if (!enableSchematization && row.content.hasRawJson()) {
+      // The original Json is already a valid Json string, no need to serialize it again
+      streamingIngestRow.put(TABLE_COLUMN_CONTENT, row.content.getRawJson());
+      if (metadataConfig.allFlag) {
+        streamingIngestRow.put(TABLE_COLUMN_METADATA, MAPPER.writeValueAsString(row.metadata));
+      }
+      return streamingIngestRow;
+    }
     for (JsonNode node : row.content.getData()) {
       if (enableSchematization) {
         streamingIngestRow.putAll(getMapFromJsonNodeForStreamingIngest(node));
@@ -250,6 +280,46 @@ public class RecordService {
     return streamingIngestRow;
   }
 
+  /**
+   * Returns true if the value was produced by a community converter (Struct, or Map when schemas
+   * are disabled) and can be converted into a row directly when schematization is enabled. Such
+   * values are not wrapped into {@link SnowflakeRecordContent}.
+   *
+   * @param value value of the record
+   */
+  public static boolean isNativeRowValue(Object value) {
+    return value instanceof Struct || value instanceof Map;
+  }
+
+  /**
+   * Converts a record whose value is a Struct or a Map into a row, without building a Json tree
+   * first. Each field becomes a column and its value is a java object accepted by the Streaming
+   * Ingest SDK, nested structs and maps become maps and arrays become lists.
+   *
+   * <p>Logical types are converted the same way as {@link #convertToJson(Schema, Object)}.
+   *
+   * @param record record from Kafka whose value is a Struct or a Map
+   * @return row to insert, including the metadata column if enabled
+   */
+  private Map<String, Object> getProcessedNativeRecordForStreamingIngest(SinkRecord record)
+      throws JsonProcessingException {
+    final Object nativeRow = convertToNative(record.valueSchema(), record.value());
+    if (!(nativeRow instanceof Map) || ((Map<?, ?>) nativeRow).isEmpty()) {
+      // Thrown an exception if the input value is not in the expected format
+      throw SnowflakeErrors.ERROR_0010.getException(
+          "Not able to convert record value to Snowpipe Streaming input format");
+    }
+    @SuppressWarnings("unchecked")
+    final Map<String, Object> streamingIngestRow = (Map<String, Object>) nativeRow;
+    if (metadataConfig.allFlag) {
+      streamingIngestRow.put(
+          TABLE_COLUMN_METADATA,
+          MAPPER.writeValueAsString(
+              getMetadata(record, SnowflakeRecordContent.NON_AVRO_SCHEMA)));
+    }
+    return streamingIngestRow;
+  }
+
   private Map<String, Object> getMapFromJsonNodeForStreamingIngest(JsonNode node)
       throws JsonProcessingException {
     final Map<String, Object> streamingIngestRow = new HashMap<>();
@@ -505,6 +575,138 @@ public class RecordService {
     }
   }
 
+  /**
+   * Convert this object, in the org.apache.kafka.connect.data format, into plain java objects which
+   * can be given to the Streaming Ingest SDK. Structs and maps with string keys become maps, arrays
+   * become lists, maps with non string keys become lists of key value pairs and primitives are kept
+   * as is. Logical types are converted the same way as {@link #convertToJson(Schema, Object)}.
+   *
+   * @param schema schema of the object
+   * @param logicalValue object to be converted
+   * @return a java object which can be serialized into Json
+   */
+  static Object convertToNative(Schema schema, Object logicalValue) {
+    if (logicalValue == null) {
+      if (schema == null) return null;
+      if (schema.defaultValue() != null) return convertToNative(schema, schema.defaultValue());
+      if (schema.isOptional()) return null;
+      throw SnowflakeErrors.ERROR_5015.getException(
+          "Conversion error: null value for field that is required and has no default value");
+    }
+
+    Object value = logicalValue;
+    try {
+      final Schema.Type schemaType;
+      if (schema == null) {
+        Schema.Type primitiveType = ConnectSchema.schemaType(value.getClass());
+        if (primitiveType != null) {
+          schemaType = primitiveType;
+        } else {
+          if (value instanceof java.util.Date) {
+            schema = Timestamp.SCHEMA;
+            schemaType = Schema.Type.INT64;
+          } else {
+            throw SnowflakeErrors.ERROR_5015.getException(
+                "Java class " + value.getClass() + " does not have corresponding schema type.");
+          }
+        }
+      } else {
+        schemaType = schema.type();
+      }
+      switch (schemaType) {
+        case INT8:
+        case INT16:
+        case FLOAT32:
+        case FLOAT64:
+        case BOOLEAN:
+          return value;
+        case INT32:
+          if (schema != null && Date.LOGICAL_NAME.equals(schema.name())) {
+            return ISO_DATE_TIME_FORMAT.get().format((java.util.Date) value);
+          }
+          if (schema != null && Time.LOGICAL_NAME.equals(schema.name())) {
+            return TIME_FORMAT.get().format((java.util.Date) value);
+          }
+          return (Integer) value;
+        case INT64:
+          if (schema != null && Timestamp.LOGICAL_NAME.equals(schema.name())) {
+            return Timestamp.fromLogical(schema, (java.util.Date) value);
+          }
+          return (Long) value;
+        case STRING:
+          return ((CharSequence) value).toString();
+        case BYTES:
+          if (schema != null && Decimal.LOGICAL_NAME.equals(schema.name())) {
+            BigDecimal bigDecimalValue = (BigDecimal) value;
+            if (bigDecimalValue.precision() > MAX_SNOWFLAKE_NUMBER_PRECISION) {
+              // in order to prevent losing precision, convert this value to text
+              return bigDecimalValue.toString();
+            }
+            return bigDecimalValue;
+          }
+          // Same bytes as the binary Json node, jackson writes them in base64
+          return convertToJson(schema, value).binaryValue();
+        case ARRAY:
+          {
+            Collection<?> collection = (Collection<?>) value;
+            List<Object> list = new ArrayList<>(collection.size());
+            Schema valueSchema = schema == null ? null : schema.valueSchema();
+            for (Object elem : collection) {
+              list.add(convertToNative(valueSchema, elem));
+            }
+            return list;
+          }
+        case MAP:
+          {
+            Map<?, ?> map = (Map<?, ?>) value;
+            // If true, using string keys and a map; if false, using non-string keys and
+            // list of key value pairs
+            boolean objectMode;
+            if (schema == null) {
+              objectMode = true;
+              for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!(entry.getKey() instanceof String)) {
+                  objectMode = false;
+                  break;
+                }
+              }
+            } else {
+              objectMode =
+                  (schema.keySchema() != null && schema.keySchema().type() == Schema.Type.STRING);
+            }
+            Schema keySchema = schema == null ? null : schema.keySchema();
+            Schema valueSchema = schema == null ? null : schema.valueSchema();
+            Map<String, Object> obj = objectMode ? new HashMap<>() : null;
+            List<Object> list = objectMode ? null : new ArrayList<>(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+              Object mapKey = convertToNative(keySchema, entry.getKey());
+              Object mapValue = convertToNative(valueSchema, entry.getValue());
+
+              if (objectMode) obj.put(String.valueOf(mapKey), mapValue);
+              else list.add(Arrays.asList(mapKey, mapValue));
+            }
+            return objectMode ? obj : list;
+          }
+        case STRUCT:
+          {
+            Struct struct = (Struct) value;
+            if (struct.schema() != schema)
+              throw SnowflakeErrors.ERROR_5015.getException("Mismatching schema.");
+            Map<String, Object> obj = new HashMap<>();
+            for (Field field : schema.fields()) {
+              obj.put(field.name(), convertToNative(field.schema(), struct.get(field)));
+            }
+            return obj;
+          }
+      }
+
+      throw SnowflakeErrors.ERROR_5015.getException("Couldn't convert " + value + " to JSON.");
+    } catch (ClassCastException | java.io.IOException e) {
+      throw SnowflakeErrors.ERROR_5015.getException(
+          "Invalid type for " + schema.type() + ": " + value.getClass());
+    }
+  }
+
   /**
    * Returns true if we want to skip this record since the value is null or it is an empty json
    * string.
@@ -19,11 +19,12 @@ package com.snowflake.kafka.connector.records;
 import com.snowflake.kafka.connector.internal.SnowflakeErrors;
 import io.confluent.kafka.schemaregistry.client.CachedSchemaRegistryClient;
 import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 import net.snowflake.client.jdbc.internal.fasterxml.jackson.databind.JsonNode;
 import org.apache.avro.Conversions;
 import org.apache.avro.Schema;
@@ -31,8 +32,8 @@ import org.apache.avro.SchemaParseException;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DatumReader;
-import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.kafka.connect.data.SchemaAndValue;
 
@@ -48,6 +49,33 @@ public class SnowflakeAvroConverter extends SnowflakeConverter {
   as the reader schema. See https://avro.apache.org/docs/1.9.2/spec.html#Schema+Resolution */
   private Schema readerSchema = null;
 
+  // Maximum number of resolved datum readers kept by a converter, least recently used ones are
+  // evicted first
+  static final int MAX_CACHED_DATUM_READERS = 1000;
+
+  // Conversion for logical type Decimal. There are conversions for other logical types as well.
+  private static final GenericData GENERIC_DATA = new GenericData();
+
+  static {
+    GENERIC_DATA.addLogicalTypeConversion(new Conversions.DecimalConversion());
+  }
+
+  // Decoder of each thread, reused for every record instead of allocating a new one
+  private static final ThreadLocal<BinaryDecoder> DECODER = new ThreadLocal<>();
+
+  /* Datum readers resolve the writer schema against the reader schema when they are created, cache
+  them so that this happens once per schema instead of once per record. Key is the schema id and
+  the reader schema. */
+  private final Map<DatumReaderKey, DatumReader<GenericRecord>> datumReaders =
+      Collections.synchronizedMap(
+          new LinkedHashMap<DatumReaderKey, DatumReader<GenericRecord>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                Map.Entry<DatumReaderKey, DatumReader<GenericRecord>> eldest) {
+              return size() > MAX_CACHED_DATUM_READERS;
+            }
+          });
+
   @Override
   public void configure(final Map<String, ?> configs, final boolean isKey) {
     readBreakOnSchemaRegistryError(configs);
@@ -139,30 +167,35 @@ public class SnowflakeAvroConverter extends SnowflakeConverter {
       return logErrorAndReturnBrokenRecord(e, bytes);
     }
 
-    // If there is any error while getting writer schema from schema registry,
-    // throw error and break the connector
-    Schema writerSchema;
-    try {
-      writerSchema = schemaRegistry.getById(id);
-    } catch (Exception e) {
-      if (breakOnSchemaRegistryError) {
-        throw SnowflakeErrors.ERROR_0011.getException(e);
-      } else {
-        return logErrorAndReturnBrokenRecord(e, bytes);
+    final DatumReaderKey readerKey = new DatumReaderKey(id, readerSchema);
+    DatumReader<GenericRecord> reader = datumReaders.get(readerKey);
+    if (reader == null) {
+      // If there is any error while getting writer schema from schema registry,
+      // throw error and break the connector
+      Schema writerSchema;
+      try {
+        writerSchema = schemaRegistry.getById(id);
+      } catch (Exception e) {
+        if (breakOnSchemaRegistryError) {
+          throw SnowflakeErrors.ERROR_0011.getException(e);
+        } else {
+          return logErrorAndReturnBrokenRecord(e, bytes);
+        }
       }
+      reader =
+          new GenericDatumReader<>(
+              writerSchema, readerSchema == null ? writerSchema : readerSchema, GENERIC_DATA);
+      datumReaders.put(readerKey, reader);
     }
 
     try {
-      int length = buffer.limit() - 1 - 4;
-      byte[] data = new byte[length];
-      buffer.get(data, 0, length);
+      // Avro data starts after the magic byte and the schema id
+      int offset = buffer.position();
+      int length = buffer.limit() - offset;
 
       return new SchemaAndValue(
           new SnowflakeJsonSchema(),
-          new SnowflakeRecordContent(
-              parseAvroWithSchema(
-                  data, writerSchema, readerSchema == null ? writerSchema : readerSchema),
-              id));
+          new SnowflakeRecordContent(parseAvroWithSchema(bytes, offset, length, reader), id));
     } catch (Exception e) {
       if (breakOnSchemaRegistryError) {
         throw SnowflakeErrors.ERROR_0010.getException(
@@ -180,29 +213,59 @@ public class SnowflakeAvroConverter extends SnowflakeConverter {
   }
 
   /**
-   * Parse Avro record with a writer schema and a reader schema. The writer and the reader schema
-   * have to be compatible as described in
+   * Parse Avro record with a datum reader created from a writer schema and a reader schema. The
+   * writer and the reader schema have to be compatible as described in
    * https://avro.apache.org/docs/1.9.2/spec.html#Schema+Resolution
    *
-   * @param data avro data
-   * @param writerSchema avro schema with which data got serialized
-   * @param readerSchema avro schema that describes the shape of the returned JsonNode
+   * @param data bytes containing the avro data, read in place without copying
+   * @param offset offset of the avro data in the bytes
+   * @param length length of the avro data
+   * @param reader datum reader which reads data serialized with the writer schema into the shape of
+   *     the reader schema
    * @return JsonNode array
    */
-  private JsonNode parseAvroWithSchema(final byte[] data, Schema writerSchema, Schema readerSchema)
+  private JsonNode parseAvroWithSchema(
+      final byte[] data, int offset, int length, DatumReader<GenericRecord> reader)
       throws IOException {
-    final GenericData genericData = new GenericData();
-    // Conversion for logical type Decimal. There are conversions for other logical types as well.
-    genericData.addLogicalTypeConversion(new Conversions.DecimalConversion());
-
-    InputStream is = new ByteArrayInputStream(data);
-    Decoder decoder = DecoderFactory.get().binaryDecoder(is, null);
-    DatumReader<GenericRecord> reader =
-        new GenericDatumReader<>(writerSchema, readerSchema, genericData);
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(data, offset, length, DECODER.get());
+    DECODER.set(decoder);
     GenericRecord datum = reader.read(null, decoder);
-    // For byte data without logical type, this toString method handles it this way:
-    // writeEscapedString(StandardCharsets.ISO_8859_1.decode(bytes), buffer);
-    // The generated string is escaped ISO_8859_1 decoded string.
-    return mapper.readTree(datum.toString());
+    // Same output as parsing datum.toString(), without the intermediate Json string. Byte data
+    // without logical type becomes the ISO_8859_1 decoded string.
+    return AvroJsonNodeEncoder.encode(datum, mapper);
+  }
+
+  // for testing only
+  int getCachedDatumReaderCount() {
+    return datumReaders.size();
+  }
+
+  /** Key of a cached datum reader */
+  private static final class DatumReaderKey {
+    private final int schemaId;
+    // null if the writer schema is also used as the reader schema
+    private final Schema readerSchema;
+
+    private DatumReaderKey(int schemaId, Schema readerSchema) {
+      this.schemaId = schemaId;
+      this.readerSchema = readerSchema;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof DatumReaderKey)) {
+        return false;
+      }
+      DatumReaderKey that = (DatumReaderKey) o;
+      return schemaId == that.schemaId && Objects.equals(readerSchema, that.readerSchema);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(schemaId, readerSchema);
+    }
   }
 }
@@ -54,15 +54,15 @@ public class SnowflakeAvroConverterWithoutSchemaRegistry extends SnowflakeConver
 
       ArrayList<JsonNode> buffer = new ArrayList<>();
       while (dataFileReader.hasNext()) {
-        String jsonString = dataFileReader.next().toString();
+        GenericRecord datum = dataFileReader.next();
         try {
-          buffer.add(mapper.readTree(jsonString));
+          buffer.add(AvroJsonNodeEncoder.encode(datum, mapper));
         } catch (IOException e) {
           throw SnowflakeErrors.ERROR_0010.getException(
               "Failed to parse JSON"
                   + " "
                   + "record\nInput String: "
-                  + jsonString
+                  + datum
                   + "\n"
                   + e.getMessage());
         }
@@ -16,10 +16,43 @@
  */
 package com.snowflake.kafka.connector.records;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import net.snowflake.client.jdbc.internal.fasterxml.jackson.core.JsonParser;
+import net.snowflake.client.jdbc.internal.fasterxml.jackson.core.JsonToken;
 import org.apache.kafka.connect.data.SchemaAndValue;
 
 public class SnowflakeJsonConverter extends SnowflakeConverter {
 
+  /**
+   * When set to true, each record is only validated with a streaming scan and its original Json is
+   * kept as is, instead of building a JsonNode tree which is serialized back into a string later.
+   * Only supported for records that contain a single UTF-8 encoded Json value, other records are
+   * parsed as before.
+   */
+  public static final String RAW_JSON_PASSTHROUGH = "raw.json.passthrough";
+
+  // By default, records are parsed into a JsonNode tree
+  private boolean rawJsonPassthrough = false;
+
+  @Override
+  public void configure(final Map<String, ?> configs, final boolean isKey) {
+    Object passthrough = configs.get(RAW_JSON_PASSTHROUGH);
+    if (passthrough instanceof String) {
+      rawJsonPassthrough = ((String) passthrough).trim().equalsIgnoreCase("true");
+    } else if (passthrough instanceof Boolean) {
+      rawJsonPassthrough = (Boolean) passthrough;
+    }
+  }
+
+  // for testing only
+  boolean getRawJsonPassthrough() {
+    return rawJsonPassthrough;
+  }
+
   /**
    * cast bytes array to Json array
    *
@@ -32,6 +65,13 @@ public class SnowflakeJsonConverter extends SnowflakeConverter {
     if (bytes == null) {
       return new SchemaAndValue(new SnowflakeJsonSchema(), new SnowflakeRecordContent());
     }
+    if (rawJsonPassthrough) {
+      String rawJson = getSingleJsonValue(bytes);
+      if (rawJson != null) {
+        return new SchemaAndValue(
+            new SnowflakeJsonSchema(), SnowflakeRecordContent.fromRawJson(rawJson));
+      }
+    }
     try {
       // always return an array of JsonNode because AVRO record may contains
       // multiple records
@@ -42,4 +82,40 @@ public class SnowflakeJsonConverter extends SnowflakeConverter {
       return new SchemaAndValue(new SnowflakeJsonSchema(), new SnowflakeRecordContent(bytes));
     }
   }
+
+  /**
+   * Validate the bytes with a streaming token scan, without building a tree.
+   *
+   * @param bytes input bytes array
+   * @return the bytes decoded as a Json string if they are valid UTF-8 and contain exactly one
+   *     valid Json value, null otherwise
+   */
+  private String getSingleJsonValue(final byte[] bytes) {
+    final String rawJson;
+    try {
+      rawJson =
+          StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes)).toString().trim();
+    } catch (CharacterCodingException e) {
+      return null;
+    }
+
+    try (JsonParser parser = mapper.getFactory().createParser(rawJson)) {
+      JsonToken token = parser.nextToken();
+      if (token == null) {
+        return null;
+      }
+      int depth = 0;
+      do {
+        if (token.isStructStart()) {
+          depth++;
+        } else if (token.isStructEnd()) {
+          depth--;
+        }
+      } while (depth > 0 && (token = parser.nextToken()) != null);
+      // trailing content after the value is not accepted
+      return depth == 0 && parser.nextToken() == null ? rawJson : null;
+    } catch (IOException e) {
+      return null;
+    }
+  }
 }
@@ -1,6 +1,7 @@
 package com.snowflake.kafka.connector.records;
 
 import com.snowflake.kafka.connector.internal.SnowflakeErrors;
+import java.io.IOException;
 import net.snowflake.client.jdbc.internal.fasterxml.jackson.databind.JsonNode;
 import net.snowflake.client.jdbc.internal.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.kafka.connect.data.Schema;
@@ -9,7 +10,10 @@ public class SnowflakeRecordContent {
 
   private static ObjectMapper MAPPER = new ObjectMapper();
   public static int NON_AVRO_SCHEMA = -1;
-  private final JsonNode[] content;
+  // Parsed lazily from rawJson if the content was kept as the original Json string
+  private JsonNode[] content;
+  // Original Json string of a passthrough record, null otherwise
+  private final String rawJson;
   private final byte[] brokenData;
   private int schemaID;
   private boolean isBroken;
@@ -32,6 +36,7 @@ public class SnowflakeRecordContent {
     content = new JsonNode[1];
     content[0] = MAPPER.createObjectNode();
     brokenData = null;
+    rawJson = null;
     isNullValueRecord = true;
   }
 
@@ -47,6 +52,7 @@ public class SnowflakeRecordContent {
     this.content[0] = RecordService.convertToJson(schema, data);
     this.isBroken = false;
     this.brokenData = null;
+    this.rawJson = null;
   }
 
   /**
@@ -60,6 +66,7 @@ public class SnowflakeRecordContent {
     this.isBroken = false;
     this.schemaID = NON_AVRO_SCHEMA;
     this.brokenData = null;
+    this.rawJson = null;
   }
 
   /**
@@ -72,6 +79,7 @@ public class SnowflakeRecordContent {
     this.isBroken = false;
     this.schemaID = NON_AVRO_SCHEMA;
     this.brokenData = null;
+    this.rawJson = null;
   }
 
   /**
@@ -84,6 +92,31 @@ public class SnowflakeRecordContent {
     this.isBroken = true;
     this.schemaID = NON_AVRO_SCHEMA;
     this.content = null;
+    this.rawJson = null;
+  }
+
+  /**
+   * constructor for json converter in passthrough mode
+   *
+   * @param rawJson a single valid Json value, which is written as is
+   */
+  private SnowflakeRecordContent(String rawJson) {
+    this.rawJson = rawJson;
+    this.isBroken = false;
+    this.schemaID = NON_AVRO_SCHEMA;
+    this.content = null;
+    this.brokenData = null;
+  }
+
+  /**
+   * Create a record content which keeps the original Json string instead of a JsonNode. The
+   * JsonNode is only built if {@link #getData()} is called, e.g. when schematization is enabled.
+   *
+   * @param rawJson a single valid Json value
+   * @return record content
+   */
+  static SnowflakeRecordContent fromRawJson(String rawJson) {
+    return new SnowflakeRecordContent(rawJson);
   }
 
   /**
@@ -120,10 +153,28 @@ public class SnowflakeRecordContent {
     if (isBroken) {
       throw SnowflakeErrors.ERROR_5012.getException();
     }
+    if (content == null && rawJson != null) {
+      try {
+        content = new JsonNode[] {MAPPER.readTree(rawJson)};
+      } catch (IOException e) {
+        throw SnowflakeErrors.ERROR_0010.getException(
+            "Failed to parse JSON record\n" + e.getMessage());
+      }
+    }
     assert content != null;
     return content.clone();
   }
 
+  /** @return true if the original Json string is kept and can be written as is */
+  boolean hasRawJson() {
+    return rawJson != null;
+  }
+
+  /** @return original Json string, null if the content is not a passthrough record */
+  String getRawJson() {
+    return rawJson;
+  }
+
   /**
    * Check if primary reason for this record content's value to be an empty json String, a null
    * value?
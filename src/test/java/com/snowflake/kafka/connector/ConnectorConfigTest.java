@@ -858,6 +858,244 @@ public class ConnectorConfigTest {
     }
   }
 
+  @Test
+  public void testEnablePipelinedInsertConfig() {
+    Map<String, String> config = getConfig();
+    config.put(
+        SnowflakeSinkConnectorConfig.INGESTION_METHOD_OPT,
+        IngestionMethodConfig.SNOWPIPE_STREAMING.toString());
+    config.put(Utils.SF_ROLE, "ACCOUNTADMIN");
+    config.put(SnowflakeSinkConnectorConfig.ENABLE_STREAMING_PIPELINED_INSERT_CONFIG, "true");
+    config.put(
+        SnowflakeSinkConnectorConfig.STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_CONFIG, "4");
+
+    Utils.validateConfig(config);
+  }
+
+  @Test
+  public void testInvalidEnablePipelinedInsertConfig() {
+    try {
+      Map<String, String> config = getConfig();
+      config.put(
+          SnowflakeSinkConnectorConfig.INGESTION_METHOD_OPT,
+          IngestionMethodConfig.SNOWPIPE.toString());
+      config.put(SnowflakeSinkConnectorConfig.ENABLE_STREAMING_PIPELINED_INSERT_CONFIG, "true");
+
+      Utils.validateConfig(config);
+    } catch (SnowflakeKafkaConnectorException exception) {
+      assert exception
+          .getMessage()
+          .contains(SnowflakeSinkConnectorConfig.ENABLE_STREAMING_PIPELINED_INSERT_CONFIG);
+    }
+  }
+
+  @Test
+  public void testInvalidPipelinedInsertMaxInFlightBuffersConfig() {
+    try {
+      Map<String, String> config = getConfig();
+      config.put(
+          SnowflakeSinkConnectorConfig.INGESTION_METHOD_OPT,
+          IngestionMethodConfig.SNOWPIPE_STREAMING.toString());
+      config.put(Utils.SF_ROLE, "ACCOUNTADMIN");
+      config.put(
+          SnowflakeSinkConnectorConfig.STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_CONFIG, "0");
+
+      Utils.validateConfig(config);
+    } catch (SnowflakeKafkaConnectorException exception) {
+      assert exception
+          .getMessage()
+          .contains(
+              SnowflakeSinkConnectorConfig.STREAMING_PIPELINED_INSERT_MAX_IN_FLIGHT_BUFFERS_CONFIG);
+    }
+  }
+
+  @Test
+  public void testSnowpipeMaxInFlightUploadsConfig() {
+    Map<String, String> config = getConfig();
+    config.put(
+        SnowflakeSinkConnectorConfig.INGESTION_METHOD_OPT,
+        IngestionMethodConfig.SNOWPIPE.toString());
+    config.put(
+        SnowflakeSinkConnectorConfig.SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_CONFIG, "2");
+    config.put(SnowflakeSinkConnectorConfig.SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_TASK_CONFIG, "16");
+
+    Utils.validateConfig(config);
+  }
+
+  @Test
+  public void testInvalidSnowpipeMaxInFlightUploadsConfig() {
+    try {
+      Map<String, String> config = getConfig();
+      config.put(
+          SnowflakeSinkConnectorConfig.INGESTION_METHOD_OPT,
+          IngestionMethodConfig.SNOWPIPE.toString());
+      config.put(
+          SnowflakeSinkConnectorConfig.SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_CONFIG, "-1");
+      config.put(SnowflakeSinkConnectorConfig.SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_TASK_CONFIG, "0");
+
+      Utils.validateConfig(config);
+    } catch (SnowflakeKafkaConnectorException exception) {
+      assert exception
+          .getMessage()
+          .contains(
+              SnowflakeSinkConnectorConfig.SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_CONFIG);
+      assert exception
+          .getMessage()
+          .contains(SnowflakeSinkConnectorConfig.SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_TASK_CONFIG);
+    }
+  }
+
+  @Test
+  public void testSnowpipeFileSizeTargetConfig() {
+    Map<String, String> config = getConfig();
+    config.put(
+        SnowflakeSinkConnectorConfig.INGESTION_METHOD_OPT,
+        IngestionMethodConfig.SNOWPIPE.toString());
+    config.put(
+        SnowflakeSinkConnectorConfig.SNOWPIPE_FILE_SIZE_TARGET_COMPRESSED_BYTES_CONFIG,
+        "104857600");
+
+    Utils.validateConfig(config);
+  }
+
+  @Test
+  public void testInvalidSnowpipeFileSizeTargetConfig() {
+    try {
+      Map<String, String> config = getConfig();
+      config.put(
+          SnowflakeSinkConnectorConfig.INGESTION_METHOD_OPT,
+          IngestionMethodConfig.SNOWPIPE.toString());
+      config.put(
+          SnowflakeSinkConnectorConfig.SNOWPIPE_FILE_SIZE_TARGET_COMPRESSED_BYTES_CONFIG, "-1");
+
+      Utils.validateConfig(config);
+    } catch (SnowflakeKafkaConnectorException exception) {
+      assert exception
+          .getMessage()
+          .contains(SnowflakeSinkConnectorConfig.SNOWPIPE_FILE_SIZE_TARGET_COMPRESSED_BYTES_CONFIG);
+    }
+  }
+
+  @Test
+  public void testInvalidSnowpipeSpillThresholdConfig() {
+    try {
+      Map<String, String> config = getConfig();
+      config.put(
+          SnowflakeSinkConnectorConfig.INGESTION_METHOD_OPT,
+          IngestionMethodConfig.SNOWPIPE.toString());
+      config.put(SnowflakeSinkConnectorConfig.SNOWPIPE_SPILL_THRESHOLD_BYTES_CONFIG, "abc");
+
+      Utils.validateConfig(config);
+    } catch (SnowflakeKafkaConnectorException exception) {
+      assert exception
+          .getMessage()
+          .contains(SnowflakeSinkConnectorConfig.SNOWPIPE_SPILL_THRESHOLD_BYTES_CONFIG);
+    }
+  }
+
+  @Test
+  public void testPartitionOpenParallelismConfig() {
+    Map<String, String> config = getConfig();
+    config.put(SnowflakeSinkConnectorConfig.PARTITION_OPEN_PARALLELISM_CONFIG, "8");
+
+    Utils.validateConfig(config);
+  }
+
+  @Test
+  public void testInvalidPartitionOpenParallelismConfig() {
+    try {
+      Map<String, String> config = getConfig();
+      config.put(SnowflakeSinkConnectorConfig.PARTITION_OPEN_PARALLELISM_CONFIG, "0");
+
+      Utils.validateConfig(config);
+    } catch (SnowflakeKafkaConnectorException exception) {
+      assert exception
+          .getMessage()
+          .contains(SnowflakeSinkConnectorConfig.PARTITION_OPEN_PARALLELISM_CONFIG);
+    }
+  }
+
+  @Test
+  public void testInvalidMetadataCacheTtlConfig() {
+    try {
+      Map<String, String> config = getConfig();
+      config.put(SnowflakeSinkConnectorConfig.METADATA_CACHE_TTL_MS_CONFIG, "-1");
+
+      Utils.validateConfig(config);
+    } catch (SnowflakeKafkaConnectorException exception) {
+      assert exception
+          .getMessage()
+          .contains(SnowflakeSinkConnectorConfig.METADATA_CACHE_TTL_MS_CONFIG);
+    }
+  }
+
+  @Test
+  public void testInvalidBufferMemoryLimitPerTaskConfig() {
+    try {
+      Map<String, String> config = getConfig();
+      config.put(SnowflakeSinkConnectorConfig.BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_CONFIG, "-1");
+
+      Utils.validateConfig(config);
+    } catch (SnowflakeKafkaConnectorException exception) {
+      assert exception
+          .getMessage()
+          .contains(SnowflakeSinkConnectorConfig.BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_CONFIG);
+    }
+  }
+
+  @Test
+  public void testPartitionInsertParallelismConfig() {
+    Map<String, String> config = getConfig();
+    config.put(SnowflakeSinkConnectorConfig.PARTITION_INSERT_PARALLELISM_CONFIG, "4");
+
+    Utils.validateConfig(config);
+  }
+
+  @Test
+  public void testInvalidPartitionInsertParallelismConfig() {
+    try {
+      Map<String, String> config = getConfig();
+      config.put(SnowflakeSinkConnectorConfig.PARTITION_INSERT_PARALLELISM_CONFIG, "0");
+
+      Utils.validateConfig(config);
+    } catch (SnowflakeKafkaConnectorException exception) {
+      assert exception
+          .getMessage()
+          .contains(SnowflakeSinkConnectorConfig.PARTITION_INSERT_PARALLELISM_CONFIG);
+    }
+  }
+
+  @Test
+  public void testCommittedOffsetPollIntervalConfig() {
+    Map<String, String> config = getConfig();
+    config.put(
+        SnowflakeSinkConnectorConfig.INGESTION_METHOD_OPT,
+        IngestionMethodConfig.SNOWPIPE_STREAMING.toString());
+    config.put(Utils.SF_ROLE, "ACCOUNTADMIN");
+    config.put(
+        SnowflakeSinkConnectorConfig.STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG, "1000");
+
+    Utils.validateConfig(config);
+  }
+
+  @Test
+  public void testInvalidCommittedOffsetPollIntervalConfig() {
+    try {
+      Map<String, String> config = getConfig();
+      config.put(
+          SnowflakeSinkConnectorConfig.INGESTION_METHOD_OPT,
+          IngestionMethodConfig.SNOWPIPE.toString());
+      config.put(
+          SnowflakeSinkConnectorConfig.STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG, "1000");
+
+      Utils.validateConfig(config);
+    } catch (SnowflakeKafkaConnectorException exception) {
+      assert exception
+          .getMessage()
+          .contains(SnowflakeSinkConnectorConfig.STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG);
+    }
+  }
+
   @Test
   public void testInvalidEmptyConfig() {
     try {
@@ -4,7 +4,6 @@ import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.BUFFER_
 import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.ERRORS_DEAD_LETTER_QUEUE_TOPIC_NAME_CONFIG;
 import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.ERRORS_TOLERANCE_CONFIG;
 import static com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig.INGESTION_METHOD_OPT;
-import static com.snowflake.kafka.connector.internal.streaming.SnowflakeSinkServiceV2.partitionChannelKey;
 
 import com.snowflake.kafka.connector.dlq.InMemoryKafkaRecordErrorReporter;
 import com.snowflake.kafka.connector.internal.SnowflakeConnectionService;
@@ -18,9 +17,14 @@ import com.snowflake.kafka.connector.internal.streaming.TopicPartitionChannel;
 import com.snowflake.kafka.connector.internal.telemetry.SnowflakeTelemetryService;
 import com.snowflake.kafka.connector.records.RecordService;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import net.snowflake.ingest.streaming.InsertValidationResponse;
 import net.snowflake.ingest.streaming.OpenChannelRequest;
 import net.snowflake.ingest.streaming.SnowflakeStreamingIngestChannel;
@@ -32,6 +36,7 @@ import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaAndValue;
 import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -93,8 +98,7 @@ public class SnowflakeSinkTaskStreamingTest {
             errorReporter,
             inMemorySinkTaskContext);
 
-    Map topicPartitionChannelMap =
-        Collections.singletonMap(partitionChannelKey(topicName, partition), topicPartitionChannel);
+    Map topicPartitionChannelMap = Collections.singletonMap(topicPartition, topicPartitionChannel);
 
     SnowflakeSinkServiceV2 mockSinkService =
         new SnowflakeSinkServiceV2(
@@ -141,4 +145,233 @@ public class SnowflakeSinkTaskStreamingTest {
 
     Assert.assertEquals(1, errorReporter.getReportedRecords().size());
   }
+
+  @Test
+  public void testCloseReleasesMemoryBudgetOfDroppedChannels() {
+    Map<String, String> config = TestUtils.getConfForStreaming();
+    SnowflakeSinkConnectorConfig.setDefaultValues(config);
+    config.put(SnowflakeSinkConnectorConfig.BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_CONFIG, "1000");
+    SinkTaskContext mockSinkTaskContext = Mockito.mock(SinkTaskContext.class);
+
+    TopicPartition topicPartition1 = new TopicPartition(topicName, 1);
+    Map<TopicPartition, TopicPartitionChannel> topicPartitionChannelMap = new HashMap<>();
+    topicPartitionChannelMap.put(topicPartition, mockPartitionChannel(topicPartition, 700));
+    topicPartitionChannelMap.put(topicPartition1, mockPartitionChannel(topicPartition1, 200));
+
+    SnowflakeSinkServiceV2 sinkService =
+        new SnowflakeSinkServiceV2(
+            1,
+            10 * 1024 * 1024,
+            1,
+            Mockito.mock(SnowflakeConnectionServiceV1.class),
+            new RecordService(),
+            Mockito.mock(SnowflakeTelemetryService.class),
+            null,
+            SnowflakeSinkConnectorConfig.BehaviorOnNullValues.DEFAULT,
+            false,
+            new InMemoryKafkaRecordErrorReporter(),
+            mockSinkTaskContext,
+            Mockito.mock(SnowflakeStreamingIngestClient.class),
+            config,
+            "0",
+            "TEST_CLIENT",
+            false,
+            topicPartitionChannelMap);
+
+    // Partition above its share of the budget is paused
+    sinkService.insert(
+        Arrays.asList(
+            new SinkRecord(topicName, partition, null, null, Schema.STRING_SCHEMA, "a", 0),
+            new SinkRecord(topicName, 1, null, null, Schema.STRING_SCHEMA, "b", 0)));
+    Mockito.verify(mockSinkTaskContext, Mockito.times(1)).pause(topicPartition);
+
+    // Only the other partition is revoked, the buffers of both channels are dropped
+    sinkService.close(Collections.singletonList(topicPartition1));
+    sinkService.insert(Collections.emptyList());
+    Mockito.verify(mockSinkTaskContext, Mockito.times(1)).resume(topicPartition);
+  }
+
+  @Test
+  public void testCloseDiscardsInFlightBuffersOfDroppedChannels() throws Exception {
+    Map<String, String> config = TestUtils.getConfForStreaming();
+    SnowflakeSinkConnectorConfig.setDefaultValues(config);
+    SinkTaskContext mockSinkTaskContext = Mockito.mock(SinkTaskContext.class);
+    SnowflakeStreamingIngestClient mockStreamingClient =
+        Mockito.mock(SnowflakeStreamingIngestClient.class);
+    SnowflakeStreamingIngestChannel mockStreamingChannel =
+        Mockito.mock(SnowflakeStreamingIngestChannel.class);
+    Mockito.when(mockStreamingClient.openChannel(ArgumentMatchers.any(OpenChannelRequest.class)))
+        .thenReturn(mockStreamingChannel);
+    final CountDownLatch insertRowsLatch = new CountDownLatch(1);
+    Mockito.when(
+            mockStreamingChannel.insertRows(
+                ArgumentMatchers.any(Iterable.class), ArgumentMatchers.any(String.class)))
+        .thenAnswer(
+            invocation -> {
+              insertRowsLatch.await();
+              return new InsertValidationResponse();
+            });
+
+    ExecutorService insertRowsExecutor = Executors.newSingleThreadExecutor();
+    TopicPartitionChannel topicPartitionChannel =
+        new TopicPartitionChannel(
+            mockStreamingClient,
+            topicPartition,
+            SnowflakeSinkServiceV2.partitionChannelKey(topicName, partition),
+            topicName,
+            new StreamingBufferThreshold(10, 10_000, 1),
+            config,
+            new InMemoryKafkaRecordErrorReporter(),
+            mockSinkTaskContext,
+            null,
+            new RecordService(),
+            Mockito.mock(SnowflakeTelemetryService.class),
+            insertRowsExecutor,
+            2,
+            null);
+    TopicPartition topicPartition1 = new TopicPartition(topicName, 1);
+    TopicPartitionChannel revokedChannel = mockPartitionChannel(topicPartition1, 0);
+    Map<TopicPartition, TopicPartitionChannel> topicPartitionChannelMap = new HashMap<>();
+    topicPartitionChannelMap.put(topicPartition, topicPartitionChannel);
+    topicPartitionChannelMap.put(topicPartition1, revokedChannel);
+
+    SnowflakeSinkServiceV2 sinkService =
+        new SnowflakeSinkServiceV2(
+            1,
+            10 * 1024 * 1024,
+            1,
+            Mockito.mock(SnowflakeConnectionServiceV1.class),
+            new RecordService(),
+            Mockito.mock(SnowflakeTelemetryService.class),
+            null,
+            SnowflakeSinkConnectorConfig.BehaviorOnNullValues.DEFAULT,
+            false,
+            new InMemoryKafkaRecordErrorReporter(),
+            mockSinkTaskContext,
+            mockStreamingClient,
+            config,
+            "0",
+            "TEST_CLIENT",
+            false,
+            topicPartitionChannelMap);
+
+    // First buffer is being inserted, second one waits in flight
+    topicPartitionChannel.insertRecordsToBuffer(
+        TestUtils.createNativeJsonSinkRecords(0, 2, topicName, partition));
+    Assert.assertEquals(2, topicPartitionChannel.getInFlightBufferCount());
+
+    // Only the other partition is revoked, the channel of this partition is dropped
+    Thread closeThread =
+        new Thread(() -> sinkService.close(Collections.singletonList(topicPartition1)));
+    closeThread.start();
+    while (closeThread.isAlive() && closeThread.getState() != Thread.State.WAITING) {
+      Thread.yield();
+    }
+    insertRowsLatch.countDown();
+    closeThread.join();
+
+    // The buffer waiting in flight is discarded and nothing is inserted after close
+    Mockito.verify(revokedChannel, Mockito.times(1)).closeChannel();
+    Assert.assertEquals(0, topicPartitionChannel.getInFlightBufferCount());
+    insertRowsExecutor.shutdown();
+    Assert.assertTrue(insertRowsExecutor.awaitTermination(30, TimeUnit.SECONDS));
+    Mockito.verify(mockStreamingChannel, Mockito.times(1))
+        .insertRows(ArgumentMatchers.any(Iterable.class), ArgumentMatchers.any(String.class));
+  }
+
+  @Test
+  public void testMemoryBudgetCountsInFlightBuffers() throws Exception {
+    Map<String, String> config = TestUtils.getConfForStreaming();
+    SnowflakeSinkConnectorConfig.setDefaultValues(config);
+    config.put(SnowflakeSinkConnectorConfig.BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_CONFIG, "1");
+    SinkTaskContext mockSinkTaskContext = Mockito.mock(SinkTaskContext.class);
+    SnowflakeStreamingIngestClient mockStreamingClient =
+        Mockito.mock(SnowflakeStreamingIngestClient.class);
+    SnowflakeStreamingIngestChannel mockStreamingChannel =
+        Mockito.mock(SnowflakeStreamingIngestChannel.class);
+    Mockito.when(mockStreamingClient.openChannel(ArgumentMatchers.any(OpenChannelRequest.class)))
+        .thenReturn(mockStreamingChannel);
+    final CountDownLatch insertRowsLatch = new CountDownLatch(1);
+    Mockito.when(
+            mockStreamingChannel.insertRows(
+                ArgumentMatchers.any(Iterable.class), ArgumentMatchers.any(String.class)))
+        .thenAnswer(
+            invocation -> {
+              insertRowsLatch.await();
+              return new InsertValidationResponse();
+            });
+
+    ExecutorService insertRowsExecutor = Executors.newSingleThreadExecutor();
+    TopicPartitionChannel topicPartitionChannel =
+        new TopicPartitionChannel(
+            mockStreamingClient,
+            topicPartition,
+            SnowflakeSinkServiceV2.partitionChannelKey(topicName, partition),
+            topicName,
+            new StreamingBufferThreshold(10, 10_000, 1),
+            config,
+            new InMemoryKafkaRecordErrorReporter(),
+            mockSinkTaskContext,
+            null,
+            new RecordService(),
+            Mockito.mock(SnowflakeTelemetryService.class),
+            insertRowsExecutor,
+            2,
+            null);
+    Map<TopicPartition, TopicPartitionChannel> topicPartitionChannelMap = new HashMap<>();
+    topicPartitionChannelMap.put(topicPartition, topicPartitionChannel);
+
+    SnowflakeSinkServiceV2 sinkService =
+        new SnowflakeSinkServiceV2(
+            1,
+            10 * 1024 * 1024,
+            1,
+            Mockito.mock(SnowflakeConnectionServiceV1.class),
+            new RecordService(),
+            Mockito.mock(SnowflakeTelemetryService.class),
+            null,
+            SnowflakeSinkConnectorConfig.BehaviorOnNullValues.DEFAULT,
+            false,
+            new InMemoryKafkaRecordErrorReporter(),
+            mockSinkTaskContext,
+            mockStreamingClient,
+            config,
+            "0",
+            "TEST_CLIENT",
+            false,
+            topicPartitionChannelMap);
+
+    // The buffer is handed over right away, its rows are still held in memory while in flight
+    sinkService.insert(TestUtils.createNativeJsonSinkRecords(0, 1, topicName, partition));
+    Assert.assertEquals(0, topicPartitionChannel.getBufferSizeBytes());
+    Assert.assertEquals(1, topicPartitionChannel.getInFlightBufferCount());
+    Mockito.verify(mockSinkTaskContext, Mockito.times(1)).pause(topicPartition);
+
+    sinkService.insert(Collections.emptyList());
+    Mockito.verify(mockSinkTaskContext, Mockito.never()).resume(topicPartition);
+
+    // Paused partition is resumed once its buffer is inserted
+    insertRowsLatch.countDown();
+    while (topicPartitionChannel.getInFlightBufferCount() > 0) {
+      Thread.yield();
+    }
+    sinkService.insert(Collections.emptyList());
+    Mockito.verify(mockSinkTaskContext, Mockito.times(1)).resume(topicPartition);
+
+    insertRowsExecutor.shutdown();
+    Assert.assertTrue(insertRowsExecutor.awaitTermination(30, TimeUnit.SECONDS));
+  }
+
+  private static TopicPartitionChannel mockPartitionChannel(
+      TopicPartition topicPartition, long bufferSizeBytes) {
+    TopicPartitionChannel channel = Mockito.mock(TopicPartitionChannel.class);
+    Mockito.when(channel.getTopicPartition()).thenReturn(topicPartition);
+    Mockito.when(channel.getBufferedBytesIncludingInFlight()).thenReturn(bufferSizeBytes);
+    Mockito.when(channel.getChannelName())
+        .thenReturn(
+            SnowflakeSinkServiceV2.partitionChannelKey(
+                topicPartition.topic(), topicPartition.partition()));
+    Mockito.when(channel.getTimeBasedFlushDeadlineMs()).thenReturn(Long.MAX_VALUE);
+    return channel;
+  }
 }
@@ -2,8 +2,14 @@ package com.snowflake.kafka.connector;
 
 import com.snowflake.kafka.connector.internal.SnowflakeErrors;
 import com.snowflake.kafka.connector.internal.TestUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.SinkRecord;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.contrib.java.lang.system.EnvironmentVariables;
@@ -185,4 +191,35 @@ public class UtilsTest {
             "{} test message\n{} test message\n{} test " + "message\n{} test message", 1, 2, 3, 4)
         .equals(expected);
   }
+
+  @Test
+  public void testGroupByPartition() {
+    List<SinkRecord> records =
+        Arrays.asList(
+            new SinkRecord("topic", 0, null, null, null, "a", 0),
+            new SinkRecord("topic", 0, null, null, null, "b", 1),
+            new SinkRecord("topic", 1, null, null, null, "c", 0),
+            new SinkRecord("other", 0, null, null, null, null, 0),
+            new SinkRecord("topic", 0, null, null, null, "d", 2),
+            new SinkRecord("other", 0, null, null, null, "e", 1));
+
+    Map<TopicPartition, List<SinkRecord>> partitionRecords =
+        Utils.groupByPartition(records, record -> record.value() != null);
+    assert partitionRecords.size() == 3;
+    List<TopicPartition> partitions = new ArrayList<>(partitionRecords.keySet());
+    assert partitions.get(0).equals(new TopicPartition("topic", 0));
+    assert partitions.get(1).equals(new TopicPartition("topic", 1));
+    assert partitions.get(2).equals(new TopicPartition("other", 0));
+
+    // records of a partition keep their order
+    List<SinkRecord> topic0Records = partitionRecords.get(new TopicPartition("topic", 0));
+    assert topic0Records.size() == 3;
+    assert topic0Records.get(0).kafkaOffset() == 0;
+    assert topic0Records.get(1).kafkaOffset() == 1;
+    assert topic0Records.get(2).kafkaOffset() == 2;
+    // filtered records are dropped
+    assert partitionRecords.get(new TopicPartition("other", 0)).size() == 1;
+
+    assert Utils.groupByPartition(Collections.emptyList(), record -> true).isEmpty();
+  }
 }
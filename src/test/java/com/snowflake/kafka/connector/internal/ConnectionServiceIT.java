@@ -341,6 +341,50 @@ public class ConnectionServiceIT {
     assert files.size() == 0;
   }
 
+  @Test
+  public void testStagePurgeOnlyGivenFiles() {
+    conn.createStage(stageName);
+    List<String> purged = new ArrayList<>();
+    List<String> kept = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      String fileName =
+          FileNameUtils.fileName(TestUtils.TEST_CONNECTOR_NAME, tableName, i % 2, i, i + 1);
+      conn.put(stageName, fileName, "test");
+      (i % 3 == 0 ? kept : purged).add(fileName);
+    }
+    conn.purgeStage(stageName, purged);
+
+    List<String> files = conn.listStage(stageName, TestUtils.TEST_CONNECTOR_NAME);
+    assert files.size() == kept.size();
+    assert files.containsAll(kept);
+  }
+
+  @Test
+  public void testRemovePattern() {
+    String fileName1 = FileNameUtils.fileName("app", "table", 1, 1, 3);
+    String fileName2 = FileNameUtils.fileName("app", "table", 1, 4, 6);
+    String fileName3 = FileNameUtils.fileName("app", "table", 2, 4, 6);
+    List<String> files = new ArrayList<>();
+    files.add(fileName1);
+    files.add(fileName2);
+
+    assert SnowflakeConnectionServiceV1.commonDirectory(files).equals("app/table/1");
+    String pattern = SnowflakeConnectionServiceV1.removePattern(files);
+    assert !pattern.contains("\\");
+    assert fileName1.matches(pattern);
+    assert ("stage/" + fileName2).matches(pattern);
+    assert !fileName3.matches(pattern);
+    assert !fileName1.replace('.', 'x').matches(pattern);
+
+    files.add(fileName3);
+    assert SnowflakeConnectionServiceV1.commonDirectory(files).equals("app/table");
+    files.add("other/file");
+    assert SnowflakeConnectionServiceV1.commonDirectory(files).equals("");
+
+    assert SnowflakeConnectionServiceV1.canBeRemovedByPattern(fileName1);
+    assert !SnowflakeConnectionServiceV1.canBeRemovedByPattern("app/it's");
+  }
+
   @Test
   public void testPipeFunctions() {
     conn.createStage(stageName);
@@ -22,6 +22,10 @@ public class FileNameUtilsTest {
     assert FileNameUtils.fileNameToStartOffset(fileName) == startOffset;
     assert FileNameUtils.fileNameToEndOffset(fileName) == endOffset;
     assert FileNameUtils.fileNameToPartition(fileName) == partition;
+    assert fileName.startsWith(FileNameUtils.tablePrefix(TestUtils.TEST_CONNECTOR_NAME, topic));
+    // files of a partition are grouped by their prefix when the table prefix is listed
+    assert (FileNameUtils.getPrefixFromFileName(fileName) + "/")
+        .equals(FileNameUtils.filePrefix(TestUtils.TEST_CONNECTOR_NAME, topic, partition));
 
     long createTime = FileNameUtils.fileNameToTimeIngested(fileName);
     assert (createTime > time1) && (createTime < time2);
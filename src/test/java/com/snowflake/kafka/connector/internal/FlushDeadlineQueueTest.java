@@ -0,0 +1,60 @@
+package com.snowflake.kafka.connector.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class FlushDeadlineQueueTest {
+  @Test
+  public void testPollDue() {
+    FlushDeadlineQueue<String> deadlines = new FlushDeadlineQueue<>();
+    deadlines.schedule("p2", 300);
+    deadlines.schedule("p0", 100);
+    deadlines.schedule("p1", 200);
+    assert deadlines.size() == 3;
+
+    assert deadlines.pollDue(99).isEmpty();
+    assert deadlines.pollDue(200).equals(Arrays.asList("p0", "p1"));
+    assert deadlines.size() == 1;
+    // polled keys are only due again once scheduled
+    assert deadlines.pollDue(250).isEmpty();
+
+    deadlines.schedule("p0", 250);
+    assert deadlines.pollDue(1000).equals(Arrays.asList("p0", "p2"));
+    assert deadlines.size() == 0;
+  }
+
+  @Test
+  public void testReschedule() {
+    FlushDeadlineQueue<String> deadlines = new FlushDeadlineQueue<>();
+    deadlines.schedule("p0", 100);
+    deadlines.schedule("p0", 500);
+    assert deadlines.size() == 1;
+
+    // the earlier deadline is stale
+    assert deadlines.pollDue(100).isEmpty();
+    assert deadlines.pollDue(500).equals(Collections.singletonList("p0"));
+    assert deadlines.pollDue(1000).isEmpty();
+  }
+
+  @Test
+  public void testRemove() {
+    FlushDeadlineQueue<String> deadlines = new FlushDeadlineQueue<>();
+    deadlines.schedule("p0", 100);
+    deadlines.schedule("p1", 100);
+    deadlines.remove("p0");
+    assert deadlines.size() == 1;
+    assert deadlines.pollDue(100).equals(Collections.singletonList("p1"));
+
+    // reopened partition
+    deadlines.schedule("p0", 200);
+    deadlines.remove("p0");
+    deadlines.schedule("p0", 200);
+    assert deadlines.pollDue(200).equals(Collections.singletonList("p0"));
+
+    deadlines.schedule("p1", 300);
+    deadlines.clear();
+    assert deadlines.size() == 0;
+    assert deadlines.pollDue(300).isEmpty();
+  }
+}
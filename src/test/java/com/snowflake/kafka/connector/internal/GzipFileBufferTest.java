@@ -0,0 +1,133 @@
+package com.snowflake.kafka.connector.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.junit.Test;
+
+public class GzipFileBufferTest {
+  @Test
+  public void testCompressedContent() throws IOException {
+    GzipFileBuffer buffer = new GzipFileBuffer();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      String record = "{\"content\":{\"name\":\"ünicode\",\"id\":" + i + "},\"meta\":{}}";
+      buffer.write(record);
+      expected.append(record);
+    }
+    buffer.finish();
+
+    byte[] expectedBytes = expected.toString().getBytes(StandardCharsets.UTF_8);
+    assert buffer.getUncompressedSize() == expectedBytes.length;
+    assert buffer.getCompressedSize() < expectedBytes.length;
+    assert buffer.getAllocatedSize() == GzipFileBuffer.CHUNK_SIZE;
+    assert decompress(buffer.getInputStream()).equals(expected.toString());
+    // content can be read again, e.g. when an upload is retried
+    assert decompress(buffer.getInputStream()).equals(expected.toString());
+
+    buffer.release();
+    assert buffer.getAllocatedSize() == 0;
+  }
+
+  @Test
+  public void testMultipleChunks() throws IOException {
+    Random random = new Random(42);
+    GzipFileBuffer buffer = new GzipFileBuffer();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      StringBuilder record = new StringBuilder();
+      for (int j = 0; j < 1000; j++) {
+        record.append((char) ('a' + random.nextInt(26)));
+      }
+      buffer.write(record.toString());
+      expected.append(record);
+    }
+    buffer.finish();
+
+    assert buffer.getCompressedSize() > GzipFileBuffer.CHUNK_SIZE;
+    assert buffer.getAllocatedSize() >= buffer.getCompressedSize();
+    assert decompress(buffer.getInputStream()).equals(expected.toString());
+    buffer.release();
+
+    // released chunks are reused
+    GzipFileBuffer empty = new GzipFileBuffer();
+    empty.finish();
+    assert decompress(empty.getInputStream()).isEmpty();
+    empty.release();
+  }
+
+  @Test
+  public void testSpillToDisk() throws IOException {
+    Path directory = Files.createTempDirectory("spill_test");
+    GzipFileBuffer buffer = new GzipFileBuffer(directory, 100);
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      String record = "{\"id\":" + i + ",\"value\":\"" + (i * 31L) % 977 + "\"}";
+      buffer.write(record);
+      expected.append(record);
+    }
+    buffer.finish();
+
+    assert buffer.isSpilled();
+    assert buffer.getAllocatedSize() == 0;
+    assert countFiles(directory) == 1;
+    assert decompress(buffer.getInputStream()).equals(expected.toString());
+    assert decompress(buffer.getInputStream()).equals(expected.toString());
+
+    buffer.release();
+    assert !buffer.isSpilled();
+    assert countFiles(directory) == 0;
+    Files.delete(directory);
+  }
+
+  @Test
+  public void testDeleteLeftoverSpillFiles() throws IOException {
+    Path directory = Files.createTempDirectory("spill_test");
+    GzipFileBuffer buffer = new GzipFileBuffer(directory, 0);
+    buffer.write("abc");
+    assert buffer.isSpilled();
+    Path otherFile = Files.createFile(directory.resolve("other.txt"));
+    assert countFiles(directory) == 2;
+
+    // e.g. a task crashed before uploading its buffer
+    GzipFileBuffer.deleteSpillFiles(directory);
+    assert countFiles(directory) == 1;
+    buffer.release();
+
+    Files.delete(otherFile);
+    Files.delete(directory);
+  }
+
+  @Test
+  public void testInvalidState() {
+    GzipFileBuffer buffer = new GzipFileBuffer();
+    assert TestUtils.assertError(SnowflakeErrors.ERROR_5023, buffer::getInputStream);
+    buffer.finish();
+    assert TestUtils.assertError(SnowflakeErrors.ERROR_5023, () -> buffer.write("abc"));
+    buffer.release();
+  }
+
+  private static long countFiles(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+
+  private static String decompress(InputStream input) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (GZIPInputStream gzip = new GZIPInputStream(input)) {
+      byte[] bytes = new byte[4096];
+      int length;
+      while ((length = gzip.read(bytes)) > 0) {
+        output.write(bytes, 0, length);
+      }
+    }
+    return new String(output.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
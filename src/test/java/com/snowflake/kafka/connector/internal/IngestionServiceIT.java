@@ -61,6 +61,12 @@ public class IngestionServiceIT {
         },
         15,
         4);
+    // served from the load history cache, only the last minutes are scanned again
+    assert ingestService
+        .readOneHourHistory(names, System.currentTimeMillis() - 3600 * 1000)
+        .get(fileName)
+        .equals(InternalUtils.IngestedFileStatus.LOADED);
+    assert ((SnowflakeIngestionServiceV1) ingestService).getLoadHistoryCacheSize() >= 1;
 
     assert ingestService.getStageName().equals(stage);
   }
@@ -0,0 +1,74 @@
+package com.snowflake.kafka.connector.internal;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class MetadataCacheTest {
+  @Test
+  public void testCachedUntilExpired() {
+    AtomicLong time = new AtomicLong(0);
+    AtomicInteger queries = new AtomicInteger(0);
+    MetadataCache cache = new MetadataCache(1000, time::get);
+
+    for (int i = 0; i < 100; i++) {
+      assert cache.get(
+          MetadataCache.Lookup.TABLE_EXISTS,
+          "table",
+          () -> {
+            queries.incrementAndGet();
+            return true;
+          });
+    }
+    assert queries.get() == 1;
+
+    // other lookups of the same object are cached separately
+    assert !cache.get(MetadataCache.Lookup.TABLE_COMPATIBLE, "table", () -> false);
+    assert cache.size() == 2;
+
+    time.set(999);
+    assert cache.get(MetadataCache.Lookup.TABLE_EXISTS, "table", () -> false);
+    time.set(1000);
+    assert !cache.get(MetadataCache.Lookup.TABLE_EXISTS, "table", () -> false);
+  }
+
+  @Test
+  public void testInvalidate() {
+    MetadataCache cache = new MetadataCache(1000, () -> 0);
+    assert !cache.get(MetadataCache.Lookup.STAGE_EXISTS, "stage", () -> false);
+    assert cache.get(MetadataCache.Lookup.STAGE_COMPATIBLE, "stage", () -> true);
+    assert !cache.get(MetadataCache.Lookup.PIPE_EXISTS, "pipe", () -> false);
+
+    // e.g. the connector created the stage
+    cache.invalidate("stage");
+    assert cache.size() == 1;
+    assert cache.get(MetadataCache.Lookup.STAGE_EXISTS, "stage", () -> true);
+    assert !cache.get(MetadataCache.Lookup.PIPE_EXISTS, "pipe", () -> true);
+  }
+
+  @Test
+  public void testInvalidatedWhileQueried() {
+    MetadataCache cache = new MetadataCache(1000, () -> 0);
+    assert !cache.get(
+        MetadataCache.Lookup.TABLE_EXISTS,
+        "table",
+        () -> {
+          // the table is created by another partition before the query returns
+          cache.invalidate("table");
+          return false;
+        });
+    assert cache.size() == 0;
+    assert cache.get(MetadataCache.Lookup.TABLE_EXISTS, "table", () -> true);
+  }
+
+  @Test
+  public void testDisabled() {
+    AtomicInteger queries = new AtomicInteger(0);
+    MetadataCache cache = new MetadataCache(0);
+    for (int i = 0; i < 3; i++) {
+      cache.get(MetadataCache.Lookup.PIPE_EXISTS, "pipe", () -> queries.incrementAndGet() > 0);
+    }
+    assert queries.get() == 3;
+    assert cache.size() == 0;
+  }
+}
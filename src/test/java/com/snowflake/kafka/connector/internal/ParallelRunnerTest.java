@@ -0,0 +1,104 @@
+package com.snowflake.kafka.connector.internal;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class ParallelRunnerTest {
+  @Test
+  public void testBoundedParallelism() {
+    List<Integer> items = Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+    Set<Integer> processed = ConcurrentHashMap.newKeySet();
+    AtomicInteger running = new AtomicInteger(0);
+    AtomicInteger maxRunning = new AtomicInteger(0);
+
+    ParallelRunner.runAll(
+        items,
+        3,
+        item -> {
+          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          try {
+            Thread.sleep(20);
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          running.decrementAndGet();
+          processed.add(item);
+        });
+
+    assert processed.size() == items.size();
+    assert maxRunning.get() > 1;
+    assert maxRunning.get() <= 3;
+  }
+
+  @Test
+  public void testSerial() {
+    Thread caller = Thread.currentThread();
+    AtomicInteger count = new AtomicInteger(0);
+    ParallelRunner.runAll(
+        Arrays.asList(1, 2, 3),
+        1,
+        item -> {
+          assert Thread.currentThread() == caller;
+          count.incrementAndGet();
+        });
+    assert count.get() == 3;
+  }
+
+  @Test
+  public void testFailure() {
+    Set<Integer> processed = ConcurrentHashMap.newKeySet();
+    assert TestUtils.assertError(
+        SnowflakeErrors.ERROR_5010,
+        () ->
+            ParallelRunner.runAll(
+                Arrays.asList(1, 2, 3, 4),
+                2,
+                item -> {
+                  if (item == 1) {
+                    throw SnowflakeErrors.ERROR_5010.getException();
+                  }
+                  processed.add(item);
+                }));
+    // other items are still processed
+    assert processed.size() == 3;
+  }
+
+  @Test
+  public void testSharedExecutor() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      // the executor is reused by several calls and stays open
+      for (int i = 0; i < 3; i++) {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        AtomicInteger count = new AtomicInteger(0);
+        ParallelRunner.runAll(
+            Arrays.asList(1, 2, 3, 4),
+            executor,
+            item -> {
+              threads.add(Thread.currentThread().getName());
+              count.incrementAndGet();
+            });
+        assert count.get() == 4;
+        assert !threads.contains(Thread.currentThread().getName());
+        assert !executor.isShutdown();
+      }
+
+      // a single item runs on the calling thread
+      Thread caller = Thread.currentThread();
+      ParallelRunner.runAll(
+          Arrays.asList(1),
+          executor,
+          item -> {
+            assert Thread.currentThread() == caller;
+          });
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
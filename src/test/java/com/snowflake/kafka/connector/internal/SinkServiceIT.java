@@ -6,6 +6,7 @@ import static org.mockito.Mockito.*;
 
 import com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig;
 import com.snowflake.kafka.connector.Utils;
+import com.snowflake.kafka.connector.internal.streaming.IngestionMethodConfig;
 import com.snowflake.kafka.connector.records.SnowflakeConverter;
 import com.snowflake.kafka.connector.records.SnowflakeJsonConverter;
 import io.confluent.connect.avro.AvroConverter;
@@ -146,6 +147,84 @@ public class SinkServiceIT {
     //    assert !conn.pipeExist(pipe);
   }
 
+  @Test
+  public void testIngestionWithBackgroundUploads() throws Exception {
+    conn.createTable(table);
+    conn.createStage(stage);
+    Map<String, String> config = new HashMap<>();
+    config.put(
+        SnowflakeSinkConnectorConfig.SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_PARTITION_CONFIG, "2");
+    config.put(SnowflakeSinkConnectorConfig.SNOWPIPE_MAX_IN_FLIGHT_UPLOADS_PER_TASK_CONFIG, "4");
+    SnowflakeSinkService service =
+        SnowflakeSinkServiceFactory.builder(conn, IngestionMethodConfig.SNOWPIPE, config)
+            .setRecordNumber(1)
+            .addTask(table, new TopicPartition(topic, partition))
+            .build();
+
+    SnowflakeConverter converter = new SnowflakeJsonConverter();
+    SchemaAndValue input =
+        converter.toConnectData(topic, "{\"name\":\"test\"}".getBytes(StandardCharsets.UTF_8));
+    final int recordCount = 10;
+    List<SinkRecord> records = new ArrayList<>();
+    for (int offset = 0; offset < recordCount; offset++) {
+      records.add(
+          new SinkRecord(
+              topic,
+              partition,
+              Schema.STRING_SCHEMA,
+              "test",
+              input.schema(),
+              input.value(),
+              offset));
+    }
+    // one file per record, uploaded in background
+    service.insert(records);
+
+    // offsets are committed once all files are uploaded and ingested in order
+    TestUtils.assertWithRetry(
+        () -> service.getOffset(new TopicPartition(topic, partition)) == recordCount, 5, 4);
+    TestUtils.assertWithRetry(() -> TestUtils.tableSize(table) == recordCount, 30, 20);
+
+    service.closeAll();
+  }
+
+  @Test
+  public void testIngestionWithCompressedFileSizeTarget() throws Exception {
+    conn.createTable(table);
+    conn.createStage(stage);
+    Map<String, String> config = new HashMap<>();
+    // the gzip header alone reaches the target, every record is flushed in its own file
+    config.put(
+        SnowflakeSinkConnectorConfig.SNOWPIPE_FILE_SIZE_TARGET_COMPRESSED_BYTES_CONFIG, "1");
+    SnowflakeSinkService service =
+        SnowflakeSinkServiceFactory.builder(conn, IngestionMethodConfig.SNOWPIPE, config)
+            .addTask(table, new TopicPartition(topic, partition))
+            .build();
+
+    SnowflakeConverter converter = new SnowflakeJsonConverter();
+    SchemaAndValue input =
+        converter.toConnectData(topic, "{\"name\":\"test\"}".getBytes(StandardCharsets.UTF_8));
+    final int recordCount = 5;
+    List<SinkRecord> records = new ArrayList<>();
+    for (int offset = 0; offset < recordCount; offset++) {
+      records.add(
+          new SinkRecord(
+              topic,
+              partition,
+              Schema.STRING_SCHEMA,
+              "test",
+              input.schema(),
+              input.value(),
+              offset));
+    }
+    service.insert(records);
+
+    assert service.getOffset(new TopicPartition(topic, partition)) == recordCount;
+    TestUtils.assertWithRetry(() -> TestUtils.tableSize(table) == recordCount, 30, 20);
+
+    service.closeAll();
+  }
+
   @Test
   public void testTombstoneRecords_DEFAULT_behavior_ingestion_SFJsonConverter() throws Exception {
     conn.createTable(table);
@@ -240,7 +319,7 @@ public class SinkServiceIT {
     service.insert(Collections.singletonList(record1));
     Assert.assertTrue(
         ((SnowflakeSinkServiceV1) service)
-            .isPartitionBufferEmpty(SnowflakeSinkServiceV1.getNameIndex(topic, partition)));
+            .isPartitionBufferEmpty(new TopicPartition(topic, partition)));
     TestUtils.assertWithRetry(
         () ->
             conn.listStage(
@@ -292,7 +371,7 @@ public class SinkServiceIT {
     service.insert(Collections.singletonList(record1));
     Assert.assertTrue(
         ((SnowflakeSinkServiceV1) service)
-            .isPartitionBufferEmpty(SnowflakeSinkServiceV1.getNameIndex(topic, partition)));
+            .isPartitionBufferEmpty(new TopicPartition(topic, partition)));
     TestUtils.assertWithRetry(
         () ->
             conn.listStage(
@@ -953,6 +1032,52 @@ public class SinkServiceIT {
     service.closeAll();
   }
 
+  @Test
+  public void testStartTasksRecoverFiles() throws Exception {
+    String data =
+        "{\"content\":{\"name\":\"test\"},\"meta\":{\"offset\":0,"
+            + "\"topic\":\"test\",\"partition\":0}}";
+    long time = System.currentTimeMillis() - 2 * 60 * 60 * 1000L;
+    String fileName =
+        FileNameUtils.fileName(TestUtils.TEST_CONNECTOR_NAME, table, partition, 4, 5, time);
+    String fileName1 =
+        FileNameUtils.fileName(TestUtils.TEST_CONNECTOR_NAME, table, partition1, 4, 5, time);
+
+    conn.createStage(stage);
+    conn.createTable(table);
+    conn.put(stage, fileName, data);
+    conn.put(stage, fileName1, data);
+
+    SnowflakeSinkService service =
+        SnowflakeSinkServiceFactory.builder(conn)
+            .setRecordNumber(1) // immediate flush
+            .build();
+    Map<TopicPartition, String> partitionsToTable = new LinkedHashMap<>();
+    partitionsToTable.put(new TopicPartition(topic, partition), table);
+    partitionsToTable.put(new TopicPartition(topic, partition1), table);
+    // stage is listed once for both partitions
+    service.startTasks(partitionsToTable);
+    assert service.getPartitionCount() == 2;
+    // pipes are created before the first insert
+    assert conn.pipeExist(pipe);
+    assert conn.pipeExist(pipe1);
+
+    SnowflakeConverter converter = new SnowflakeJsonConverter();
+    SchemaAndValue result =
+        converter.toConnectData(topic, "12321".getBytes(StandardCharsets.UTF_8));
+    service.insert(
+        new SinkRecord(
+            topic, partition, Schema.STRING_SCHEMA, "test", result.schema(), result.value(), 4));
+    TestUtils.assertWithRetry(() -> getStageSize(stage, table, partition) == 2, 5, 10);
+    service.callAllGetOffset();
+    // the file listed at start is reprocessed and purged, the new file is ingested and purged
+    TestUtils.assertWithRetry(() -> getStageSize(stage, table, partition) == 0, 30, 10);
+    // partition 1 didn't receive any record, its cleaner is not started
+    assert getStageSize(stage, table, partition1) == 1;
+
+    service.closeAll();
+  }
+
   @Test
   public void testBrokenRecord() {
     conn.createTable(table);
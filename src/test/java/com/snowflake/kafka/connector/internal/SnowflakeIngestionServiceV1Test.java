@@ -0,0 +1,85 @@
+package com.snowflake.kafka.connector.internal;
+
+import static com.snowflake.kafka.connector.internal.InternalUtils.timestampToDate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import net.snowflake.ingest.SimpleIngestManager;
+import net.snowflake.ingest.connection.HistoryRangeResponse;
+import net.snowflake.ingest.connection.HistoryResponse;
+import net.snowflake.ingest.connection.IngestStatus;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+public class SnowflakeIngestionServiceV1Test {
+  private static final long ONE_MINUTE = 60 * 1000;
+
+  @Test
+  public void testReadOneHourHistory_LateReportFoundNearExpiry() throws Exception {
+    long now = System.currentTimeMillis();
+    String fileName = FileNameUtils.fileName("app", "table", 0, 0, 10, now - 40 * ONE_MINUTE);
+
+    Assert.assertEquals(
+        InternalUtils.IngestedFileStatus.LOADED,
+        readLateReportedFile(fileName, now - 30 * ONE_MINUTE));
+  }
+
+  @Test
+  public void testReadOneHourHistory_LateReportNotSearchedBeforeExpiry() throws Exception {
+    long now = System.currentTimeMillis();
+    String fileName = FileNameUtils.fileName("app", "table", 0, 0, 10, now - 20 * ONE_MINUTE);
+
+    // the file stays in the scanned hour long enough, so the whole hour is not scanned again yet
+    Assert.assertEquals(
+        InternalUtils.IngestedFileStatus.NOT_FOUND,
+        readLateReportedFile(fileName, now - 15 * ONE_MINUTE));
+  }
+
+  /**
+   * Read the load history of the file twice, its load is reported between both reads with a load
+   * time older than the overlap of the incremental scan.
+   *
+   * @return status of the file found by the second read
+   */
+  private InternalUtils.IngestedFileStatus readLateReportedFile(String fileName, long loadTime)
+      throws Exception {
+    SimpleIngestManager ingestManager = Mockito.mock(SimpleIngestManager.class);
+    List<HistoryResponse.FileEntry> reportedFiles = new ArrayList<>();
+    Mockito.when(
+            ingestManager.getHistoryRange(
+                ArgumentMatchers.isNull(),
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyString()))
+        .thenAnswer(
+            invocation -> {
+              String start = invocation.getArgument(1);
+              String end = invocation.getArgument(2);
+              HistoryRangeResponse response = Mockito.mock(HistoryRangeResponse.class);
+              response.files = new ArrayList<>();
+              if (start.compareTo(timestampToDate(loadTime)) <= 0) {
+                response.files.addAll(reportedFiles);
+              }
+              Mockito.when(response.getEndTimeExclusive()).thenReturn(end);
+              return response;
+            });
+    SnowflakeIngestionServiceV1 ingestionService =
+        new SnowflakeIngestionServiceV1("stage", ingestManager);
+    List<String> files = Collections.singletonList(fileName);
+    long now = System.currentTimeMillis();
+
+    Map<String, InternalUtils.IngestedFileStatus> result =
+        ingestionService.readOneHourHistory(files, now - 60 * ONE_MINUTE);
+    Assert.assertEquals(InternalUtils.IngestedFileStatus.NOT_FOUND, result.get(fileName));
+
+    HistoryResponse.FileEntry entry = Mockito.mock(HistoryResponse.FileEntry.class);
+    Mockito.when(entry.getPath()).thenReturn(fileName);
+    Mockito.when(entry.getStatus()).thenReturn(IngestStatus.LOADED);
+    reportedFiles.add(entry);
+
+    return ingestionService.readOneHourHistory(files, now - 45 * ONE_MINUTE).get(fileName);
+  }
+}
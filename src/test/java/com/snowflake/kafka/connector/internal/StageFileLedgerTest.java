@@ -0,0 +1,65 @@
+package com.snowflake.kafka.connector.internal;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class StageFileLedgerTest {
+  private static final String PREFIX = "app/table/0/";
+
+  @Test
+  public void testAddAndRemove() {
+    StageFileLedger ledger = new StageFileLedger();
+    assert ledger.isEmpty();
+
+    String fileName1 = PREFIX + "1_10_1000.json.gz";
+    String fileName2 = PREFIX + "11_20_2000.json.gz";
+    ledger.addAll(Arrays.asList(fileName2, fileName1, fileName2));
+    assert ledger.size() == 2;
+    // ordered by ingestion time
+    assert ledger.getFileNames().equals(Arrays.asList(fileName1, fileName2));
+    assert !ledger.add(StageFileLedger.StageFile.of(fileName1));
+
+    StageFileLedger.StageFile file = ledger.remove(fileName1);
+    assert file.getName().equals(fileName1);
+    assert file.getStartOffset() == 1;
+    assert file.getEndOffset() == 10;
+    assert file.getTimeIngested() == 1000;
+    assert ledger.remove(fileName1) == null;
+    assert ledger.getFileNames().equals(Arrays.asList(fileName2));
+
+    StageFileLedger other = new StageFileLedger();
+    other.addAll(Arrays.asList(fileName1, fileName2));
+    ledger.addAll(other);
+    assert ledger.size() == 2;
+  }
+
+  @Test
+  public void testIngestedBefore() {
+    StageFileLedger ledger = new StageFileLedger();
+    assert !ledger.hasIngestedBefore(Long.MAX_VALUE);
+    assert ledger.removeIngestedBefore(Long.MAX_VALUE).isEmpty();
+
+    String fileName1 = PREFIX + "1_10_1000.json.gz";
+    String fileName2 = PREFIX + "11_20_2000.json.gz";
+    String fileName3 = PREFIX + "21_30_2000.json.gz";
+    String fileName4 = PREFIX + "31_40_3000.json.gz";
+    ledger.addAll(Arrays.asList(fileName4, fileName3, fileName2, fileName1));
+
+    assert !ledger.hasIngestedBefore(1000);
+    assert ledger.hasIngestedBefore(1001);
+
+    List<StageFileLedger.StageFile> removed = ledger.removeIngestedBefore(3000);
+    assert removed.size() == 3;
+    assert removed.get(0).getName().equals(fileName1);
+    assert removed.get(2).getTimeIngested() == 2000;
+    assert ledger.getFileNames().equals(Arrays.asList(fileName4));
+    assert ledger.remove(fileName2) == null;
+    assert !ledger.hasIngestedBefore(3000);
+  }
+
+  @Test(expected = SnowflakeKafkaConnectorException.class)
+  public void testInvalidFileName() {
+    new StageFileLedger().addAll(Arrays.asList("app/table/file.json.gz"));
+  }
+}
@@ -0,0 +1,61 @@
+package com.snowflake.kafka.connector.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+public class SynchronizedSinkTaskContextTest {
+  private static final TopicPartition PARTITION_0 = new TopicPartition("TEST", 0);
+  private static final TopicPartition PARTITION_1 = new TopicPartition("TEST", 1);
+
+  @Test
+  public void testWrap() {
+    SinkTaskContext context = Mockito.mock(SinkTaskContext.class);
+    SynchronizedSinkTaskContext synchronizedContext = SynchronizedSinkTaskContext.wrap(context);
+
+    Assert.assertSame(synchronizedContext, SynchronizedSinkTaskContext.wrap(synchronizedContext));
+    Assert.assertNull(SynchronizedSinkTaskContext.wrap(null));
+
+    synchronizedContext.offset(PARTITION_0, 10L);
+    Mockito.verify(context, Mockito.times(1)).offset(PARTITION_0, 10L);
+  }
+
+  @Test
+  public void testDeferOffsets() throws Exception {
+    SinkTaskContext context = Mockito.mock(SinkTaskContext.class);
+    SynchronizedSinkTaskContext synchronizedContext = SynchronizedSinkTaskContext.wrap(context);
+
+    synchronizedContext.deferOffsets();
+    Thread offsetThread =
+        new Thread(
+            () -> {
+              synchronizedContext.offset(PARTITION_0, 10L);
+              synchronizedContext.offset(PARTITION_1, 20L);
+              synchronizedContext.offset(PARTITION_0, 11L);
+            });
+    offsetThread.start();
+    offsetThread.join();
+
+    // Nothing reaches Kafka Connect until the offsets are applied
+    Mockito.verify(context, Mockito.never())
+        .offset(ArgumentMatchers.any(TopicPartition.class), ArgumentMatchers.anyLong());
+    Mockito.verify(context, Mockito.never()).offset(ArgumentMatchers.anyMap());
+
+    synchronizedContext.applyDeferredOffsets();
+    Map<TopicPartition, Long> expectedOffsets = new HashMap<>();
+    expectedOffsets.put(PARTITION_0, 11L);
+    expectedOffsets.put(PARTITION_1, 20L);
+    Mockito.verify(context, Mockito.times(1)).offset(expectedOffsets);
+
+    // Offsets are passed right away once applied
+    synchronizedContext.offset(PARTITION_1, 21L);
+    Mockito.verify(context, Mockito.times(1)).offset(PARTITION_1, 21L);
+    synchronizedContext.applyDeferredOffsets();
+    Mockito.verify(context, Mockito.times(1)).offset(ArgumentMatchers.anyMap());
+  }
+}
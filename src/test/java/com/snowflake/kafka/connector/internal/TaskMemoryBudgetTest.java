@@ -0,0 +1,130 @@
+package com.snowflake.kafka.connector.internal;
+
+import com.snowflake.kafka.connector.SnowflakeSinkConnectorConfig;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TaskMemoryBudgetTest {
+  private final TopicPartition tp0 = new TopicPartition("topic", 0);
+  private final TopicPartition tp1 = new TopicPartition("topic", 1);
+  private final TopicPartition tp2 = new TopicPartition("topic", 2);
+
+  @Test
+  public void testFlushLargestBuffers() {
+    TaskMemoryBudget budget = new TaskMemoryBudget(1000);
+    List<TopicPartition> flushed = new ArrayList<>();
+
+    budget.update(tp0, 500);
+    budget.update(tp1, 100);
+    budget.updateAndEnforce(
+        tp2,
+        300,
+        tp -> {
+          flushed.add(tp);
+          return 0;
+        });
+    assert flushed.isEmpty();
+    assert budget.getTotalBytes() == 900;
+
+    // 1200 bytes, flushing the largest buffer is enough to go under 800 bytes
+    budget.updateAndEnforce(
+        tp2,
+        600,
+        tp -> {
+          flushed.add(tp);
+          return 0;
+        });
+    assert flushed.equals(Collections.singletonList(tp2));
+    assert budget.getTotalBytes() == 600;
+  }
+
+  @Test
+  public void testPauseAndResume() {
+    TaskMemoryBudget budget = new TaskMemoryBudget(900);
+    SinkTaskContext context = Mockito.mock(SinkTaskContext.class);
+
+    budget.update(tp0, 100);
+    budget.update(tp1, 100);
+    budget.update(tp2, 500);
+    budget.applyBackpressure(context);
+    Mockito.verify(context, Mockito.never()).pause(Mockito.any());
+
+    // share of each partition is 300 bytes
+    budget.update(tp2, 600);
+    budget.applyBackpressure(context);
+    Mockito.verify(context, Mockito.times(1)).pause(tp2);
+    assert budget.getPausedPartitions().equals(Collections.singleton(tp2));
+
+    // already paused
+    budget.applyBackpressure(context);
+    Mockito.verify(context, Mockito.times(1)).pause(Mockito.any());
+
+    // between the resume and pause thresholds
+    budget.update(tp2, 300);
+    budget.applyBackpressure(context);
+    Mockito.verify(context, Mockito.never()).resume(Mockito.any());
+
+    budget.update(tp2, 0);
+    budget.applyBackpressure(context);
+    Mockito.verify(context, Mockito.times(1)).resume(tp2);
+    assert budget.getPausedPartitions().isEmpty();
+  }
+
+  @Test
+  public void testRemoveClosedPartitions() {
+    TaskMemoryBudget budget = new TaskMemoryBudget(100);
+    SinkTaskContext context = Mockito.mock(SinkTaskContext.class);
+
+    budget.update(tp0, 90);
+    budget.update(tp1, 10);
+    budget.applyBackpressure(context);
+    assert budget.getPausedPartitions().equals(Collections.singleton(tp0));
+
+    budget.remove(Collections.singletonList(tp0));
+    assert budget.getTotalBytes() == 10;
+    assert budget.getPausedPartitions().isEmpty();
+
+    // closed partitions are not resumed
+    budget.applyBackpressure(context);
+    Mockito.verify(context, Mockito.never()).resume(Mockito.any());
+  }
+
+  @Test
+  public void testReleaseDroppedPartitions() {
+    TaskMemoryBudget budget = new TaskMemoryBudget(100);
+    SinkTaskContext context = Mockito.mock(SinkTaskContext.class);
+
+    budget.update(tp0, 90);
+    budget.update(tp1, 10);
+    budget.applyBackpressure(context);
+    assert budget.getPausedPartitions().equals(Collections.singleton(tp0));
+
+    // buffers are dropped but the partition is still assigned, it is resumed
+    budget.release(Collections.singletonList(tp0));
+    assert budget.getTotalBytes() == 10;
+    budget.applyBackpressure(context);
+    Mockito.verify(context, Mockito.times(1)).resume(tp0);
+    assert budget.getPausedPartitions().isEmpty();
+  }
+
+  @Test
+  public void testFromConfig() {
+    assert TaskMemoryBudget.fromConfig(null) == null;
+
+    Map<String, String> config = new HashMap<>();
+    assert TaskMemoryBudget.fromConfig(config) == null;
+
+    config.put(SnowflakeSinkConnectorConfig.BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_CONFIG, "0");
+    assert TaskMemoryBudget.fromConfig(config) == null;
+
+    config.put(SnowflakeSinkConnectorConfig.BUFFER_MEMORY_LIMIT_BYTES_PER_TASK_CONFIG, "1024");
+    assert TaskMemoryBudget.fromConfig(config) != null;
+  }
+}
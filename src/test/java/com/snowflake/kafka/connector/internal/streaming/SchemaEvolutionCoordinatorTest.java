@@ -0,0 +1,153 @@
+package com.snowflake.kafka.connector.internal.streaming;
+
+import com.snowflake.kafka.connector.internal.SnowflakeConnectionService;
+import com.snowflake.kafka.connector.internal.SnowflakeErrors;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+public class SchemaEvolutionCoordinatorTest {
+  private static final String TABLE_NAME = "TEST_TABLE";
+
+  @Test
+  public void testEvolveSchema_ColumnsAlreadyPresent() {
+    SnowflakeConnectionService conn = Mockito.mock(SnowflakeConnectionService.class);
+    Map<String, Boolean> columns = new HashMap<>();
+    columns.put("GENDER", true);
+    columns.put("REGIONID", false);
+    Mockito.when(conn.describeTableColumns(TABLE_NAME)).thenAnswer(invocation -> columns);
+    Mockito.doAnswer(
+            invocation -> {
+              columns.put("REGIONID", true);
+              return null;
+            })
+        .when(conn)
+        .alterNonNullableColumns(ArgumentMatchers.eq(TABLE_NAME), ArgumentMatchers.any());
+
+    SchemaEvolutionCoordinator coordinator = new SchemaEvolutionCoordinator(conn);
+    coordinator.evolveSchemaIfNeeded(
+        TABLE_NAME,
+        Collections.singletonList("gender"),
+        Collections.singletonMap("gender", "VARCHAR"));
+
+    Mockito.verify(conn, Mockito.never())
+        .appendColumnsToTable(ArgumentMatchers.any(), ArgumentMatchers.any());
+    Mockito.verify(conn, Mockito.never())
+        .alterNonNullableColumns(ArgumentMatchers.any(), ArgumentMatchers.any());
+
+    // Only the column which is still NOT NULL is altered
+    coordinator.evolveSchemaIfNeeded(TABLE_NAME, Arrays.asList("gender", "regionid"), null);
+    Mockito.verify(conn, Mockito.times(1))
+        .alterNonNullableColumns(TABLE_NAME, Collections.singletonList("regionid"));
+  }
+
+  @Test
+  public void testEvolveSchema_AlterOnceForConcurrentRequests() throws Exception {
+    SnowflakeConnectionService conn = Mockito.mock(SnowflakeConnectionService.class);
+    Map<String, Boolean> columns = new HashMap<>();
+    Mockito.when(conn.describeTableColumns(TABLE_NAME)).thenAnswer(invocation -> columns);
+    Mockito.doAnswer(
+            invocation -> {
+              columns.put("AGE", true);
+              return null;
+            })
+        .when(conn)
+        .appendColumnsToTable(ArgumentMatchers.eq(TABLE_NAME), ArgumentMatchers.any());
+
+    SchemaEvolutionCoordinator coordinator = new SchemaEvolutionCoordinator(conn);
+    final int noOfChannels = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(noOfChannels);
+    CountDownLatch start = new CountDownLatch(1);
+    for (int i = 0; i < noOfChannels; i++) {
+      executor.submit(
+          () -> {
+            start.await();
+            coordinator.evolveSchemaIfNeeded(
+                TABLE_NAME, null, Collections.singletonMap("age", "INT"));
+            return null;
+          });
+    }
+    start.countDown();
+    executor.shutdown();
+    Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+    Mockito.verify(conn, Mockito.times(1))
+        .appendColumnsToTable(ArgumentMatchers.eq(TABLE_NAME), ArgumentMatchers.any());
+  }
+
+  @Test
+  public void testEvolveSchema_DescribeFailure() {
+    SnowflakeConnectionService conn = Mockito.mock(SnowflakeConnectionService.class);
+    Mockito.when(conn.describeTableColumns(TABLE_NAME))
+        .thenThrow(SnowflakeErrors.ERROR_2014.getException());
+
+    SchemaEvolutionCoordinator coordinator = new SchemaEvolutionCoordinator(conn);
+    coordinator.evolveSchemaIfNeeded(TABLE_NAME, null, Collections.singletonMap("age", "INT"));
+
+    // Table is altered without checking the columns
+    Mockito.verify(conn, Mockito.times(1))
+        .appendColumnsToTable(TABLE_NAME, Collections.singletonMap("age", "INT"));
+  }
+
+  @Test
+  public void testEvolveSchema_WaitForAlterToBeVisible() {
+    SnowflakeConnectionService conn = Mockito.mock(SnowflakeConnectionService.class);
+    Map<String, Boolean> evolvedColumns = Collections.singletonMap("AGE", true);
+    // The added column only shows up in the second describe after the ALTER TABLE
+    Mockito.when(conn.describeTableColumns(TABLE_NAME))
+        .thenReturn(new HashMap<>())
+        .thenReturn(new HashMap<>())
+        .thenReturn(evolvedColumns);
+
+    SchemaEvolutionCoordinator coordinator = new SchemaEvolutionCoordinator(conn);
+    coordinator.evolveSchemaIfNeeded(TABLE_NAME, null, Collections.singletonMap("age", "INT"));
+
+    Mockito.verify(conn, Mockito.times(1))
+        .appendColumnsToTable(TABLE_NAME, Collections.singletonMap("age", "INT"));
+    Mockito.verify(conn, Mockito.times(3)).describeTableColumns(TABLE_NAME);
+
+    // The cached columns are loaded again before deciding there is nothing to do
+    coordinator.evolveSchemaIfNeeded(TABLE_NAME, null, Collections.singletonMap("age", "INT"));
+    Mockito.verify(conn, Mockito.times(1))
+        .appendColumnsToTable(ArgumentMatchers.any(), ArgumentMatchers.any());
+    Mockito.verify(conn, Mockito.times(4)).describeTableColumns(TABLE_NAME);
+    Assert.assertEquals(1, coordinator.getSchemaVersion(TABLE_NAME));
+  }
+
+  @Test
+  public void testEvolveSchema_ColumnDroppedOutsideOfConnector() {
+    SnowflakeConnectionService conn = Mockito.mock(SnowflakeConnectionService.class);
+    Map<String, Boolean> columns = new HashMap<>();
+    columns.put("AGE", true);
+    Mockito.when(conn.describeTableColumns(TABLE_NAME)).thenAnswer(invocation -> columns);
+    Mockito.doAnswer(
+            invocation -> {
+              columns.put("AGE", true);
+              return null;
+            })
+        .when(conn)
+        .appendColumnsToTable(ArgumentMatchers.eq(TABLE_NAME), ArgumentMatchers.any());
+
+    SchemaEvolutionCoordinator coordinator = new SchemaEvolutionCoordinator(conn);
+    coordinator.evolveSchemaIfNeeded(TABLE_NAME, null, Collections.singletonMap("age", "INT"));
+    Mockito.verify(conn, Mockito.never())
+        .appendColumnsToTable(ArgumentMatchers.any(), ArgumentMatchers.any());
+    Assert.assertEquals(0, coordinator.getSchemaVersion(TABLE_NAME));
+
+    // The cached columns still have the column which was dropped
+    columns.remove("AGE");
+    coordinator.evolveSchemaIfNeeded(TABLE_NAME, null, Collections.singletonMap("age", "INT"));
+    Mockito.verify(conn, Mockito.times(1))
+        .appendColumnsToTable(TABLE_NAME, Collections.singletonMap("age", "INT"));
+    Assert.assertEquals(1, coordinator.getSchemaVersion(TABLE_NAME));
+  }
+}
@@ -135,7 +135,7 @@ public class TopicPartitionChannelIT {
     SnowflakeSinkServiceV2 snowflakeSinkServiceV2 = (SnowflakeSinkServiceV2) service;
 
     TopicPartitionChannel topicPartitionChannel =
-        snowflakeSinkServiceV2.getTopicPartitionChannelFromCacheKey(testChannelName).get();
+        snowflakeSinkServiceV2.getTopicPartitionChannelFromCacheKey(topicPartition).get();
 
     Assert.assertNotNull(topicPartitionChannel);
 
@@ -199,7 +199,7 @@ public class TopicPartitionChannelIT {
 
     // Closing the channel for mimicking SFException in insertRows
     TopicPartitionChannel topicPartitionChannel =
-        snowflakeSinkServiceV2.getTopicPartitionChannelFromCacheKey(testChannelName).get();
+        snowflakeSinkServiceV2.getTopicPartitionChannelFromCacheKey(topicPartition).get();
 
     Assert.assertNotNull(topicPartitionChannel);
 
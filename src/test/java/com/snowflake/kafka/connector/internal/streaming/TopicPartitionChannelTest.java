@@ -16,6 +16,7 @@ import com.snowflake.kafka.connector.internal.TestUtils;
 import com.snowflake.kafka.connector.internal.telemetry.SnowflakeTelemetryService;
 import com.snowflake.kafka.connector.records.RecordService;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -23,6 +24,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import net.snowflake.ingest.streaming.InsertValidationResponse;
 import net.snowflake.ingest.streaming.OpenChannelRequest;
 import net.snowflake.ingest.streaming.SnowflakeStreamingIngestChannel;
@@ -32,6 +37,8 @@ import net.snowflake.ingest.utils.SFException;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
 import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.errors.DataException;
 import org.apache.kafka.connect.json.JsonConverter;
@@ -510,6 +517,251 @@ public class TopicPartitionChannelTest {
     }
   }
 
+  @Test
+  public void testInsertRowsWithSchemaEvolution_BatchInsert() throws Exception {
+    if (this.sfConnectorConfig
+        .get(SnowflakeSinkConnectorConfig.ENABLE_SCHEMATIZATION_CONFIG)
+        .equals("true")) {
+      // Row 1 has a non schema related error, row 2 needs schema evolution
+      InsertValidationResponse batchResponse = new InsertValidationResponse();
+      InsertValidationResponse.InsertError insertError1 =
+          new InsertValidationResponse.InsertError("CONTENT", 1);
+      insertError1.setException(SF_EXCEPTION);
+      batchResponse.addError(insertError1);
+      InsertValidationResponse.InsertError insertError2 =
+          new InsertValidationResponse.InsertError("CONTENT", 2);
+      insertError2.setException(SF_EXCEPTION);
+      insertError2.setExtraColNames(Collections.singletonList("gender"));
+      batchResponse.addError(insertError2);
+
+      Mockito.when(
+              mockStreamingChannel.insertRows(
+                  ArgumentMatchers.any(Iterable.class), ArgumentMatchers.any(String.class)))
+          .thenReturn(batchResponse)
+          .thenReturn(new InsertValidationResponse());
+
+      SnowflakeConnectionService conn = Mockito.mock(SnowflakeConnectionService.class);
+      Mockito.when(
+              conn.hasSchemaEvolutionPermission(ArgumentMatchers.any(), ArgumentMatchers.any()))
+          .thenReturn(true);
+      Map<String, Boolean> tableColumns = new HashMap<>();
+      Mockito.when(conn.describeTableColumns(ArgumentMatchers.any()))
+          .thenAnswer(invocation -> tableColumns);
+      Mockito.doAnswer(
+              invocation -> {
+                tableColumns.put("GENDER", true);
+                return null;
+              })
+          .when(conn)
+          .appendColumnsToTable(ArgumentMatchers.any(), ArgumentMatchers.any());
+
+      Map<String, String> sfConnectorConfigWithErrors = new HashMap<>(sfConnectorConfig);
+      sfConnectorConfigWithErrors.put(
+          ERRORS_TOLERANCE_CONFIG, SnowflakeSinkConnectorConfig.ErrorTolerance.ALL.toString());
+      sfConnectorConfigWithErrors.put(ERRORS_DEAD_LETTER_QUEUE_TOPIC_NAME_CONFIG, "test_DLQ");
+      sfConnectorConfigWithErrors.put(
+          SnowflakeSinkConnectorConfig.ENABLE_SCHEMA_EVOLUTION_BATCH_INSERT_CONFIG, "true");
+      InMemoryKafkaRecordErrorReporter kafkaRecordErrorReporter =
+          new InMemoryKafkaRecordErrorReporter();
+
+      TopicPartitionChannel topicPartitionChannel =
+          new TopicPartitionChannel(
+              mockStreamingClient,
+              topicPartition,
+              TEST_CHANNEL_NAME,
+              TEST_TABLE_NAME,
+              streamingBufferThreshold,
+              sfConnectorConfigWithErrors,
+              kafkaRecordErrorReporter,
+              mockSinkTaskContext,
+              conn,
+              new RecordService(),
+              mockTelemetryService);
+
+      // Rows which were accepted are committed by the time channel is reopened
+      Mockito.when(mockStreamingChannel.getLatestCommittedOffsetToken()).thenReturn("2");
+
+      final int noOfRecords = 3;
+      List<SinkRecord> records =
+          TestUtils.createNativeJsonSinkRecords(0, noOfRecords, TOPIC, PARTITION);
+      TopicPartitionChannel.StreamingBuffer streamingBuffer =
+          topicPartitionChannel.new StreamingBuffer();
+      records.forEach(streamingBuffer::insert);
+
+      topicPartitionChannel.insertBufferedRecords(streamingBuffer);
+
+      // Table is evolved once and only the row which needed schema evolution is inserted again
+      Mockito.verify(conn, Mockito.times(1))
+          .appendColumnsToTable(ArgumentMatchers.any(), ArgumentMatchers.any());
+      Mockito.verify(mockStreamingChannel, Mockito.never())
+          .insertRow(ArgumentMatchers.any(), ArgumentMatchers.any(String.class));
+      // Rows are inserted with the last offset of the buffer and the offset token never moves
+      // backwards when the rejected row is inserted again
+      Mockito.verify(mockStreamingChannel, Mockito.times(1))
+          .insertRows(
+              ArgumentMatchers.argThat(rows -> ((List<?>) rows).size() == 3),
+              ArgumentMatchers.eq("2"));
+      Mockito.verify(mockStreamingChannel, Mockito.times(1))
+          .insertRows(
+              ArgumentMatchers.argThat(rows -> ((List<?>) rows).size() == 1),
+              ArgumentMatchers.eq("2"));
+      Mockito.verify(mockStreamingChannel, Mockito.times(2))
+          .insertRows(ArgumentMatchers.any(Iterable.class), ArgumentMatchers.any(String.class));
+      Mockito.verify(mockSinkTaskContext, Mockito.never())
+          .offset(ArgumentMatchers.any(TopicPartition.class), ArgumentMatchers.anyLong());
+      Assert.assertEquals(1, kafkaRecordErrorReporter.getReportedRecords().size());
+    }
+  }
+
+  @Test
+  public void testInsertRowsWithSchemaEvolution_BatchInsertNotCommitted() throws Exception {
+    if (this.sfConnectorConfig
+        .get(SnowflakeSinkConnectorConfig.ENABLE_SCHEMATIZATION_CONFIG)
+        .equals("true")) {
+      // Row 2 needs schema evolution
+      InsertValidationResponse batchResponse = new InsertValidationResponse();
+      InsertValidationResponse.InsertError insertError =
+          new InsertValidationResponse.InsertError("CONTENT", 2);
+      insertError.setException(SF_EXCEPTION);
+      insertError.setExtraColNames(Collections.singletonList("gender"));
+      batchResponse.addError(insertError);
+
+      Mockito.when(
+              mockStreamingChannel.insertRows(
+                  ArgumentMatchers.any(Iterable.class), ArgumentMatchers.any(String.class)))
+          .thenReturn(batchResponse)
+          .thenReturn(new InsertValidationResponse());
+
+      SnowflakeConnectionService conn = Mockito.mock(SnowflakeConnectionService.class);
+      Mockito.when(
+              conn.hasSchemaEvolutionPermission(ArgumentMatchers.any(), ArgumentMatchers.any()))
+          .thenReturn(true);
+      Map<String, Boolean> tableColumns = new HashMap<>();
+      Mockito.when(conn.describeTableColumns(ArgumentMatchers.any()))
+          .thenAnswer(invocation -> tableColumns);
+      Mockito.doAnswer(
+              invocation -> {
+                tableColumns.put("GENDER", true);
+                return null;
+              })
+          .when(conn)
+          .appendColumnsToTable(ArgumentMatchers.any(), ArgumentMatchers.any());
+
+      Map<String, String> sfConnectorConfigWithBatchInsert = new HashMap<>(sfConnectorConfig);
+      sfConnectorConfigWithBatchInsert.put(
+          SnowflakeSinkConnectorConfig.ENABLE_SCHEMA_EVOLUTION_BATCH_INSERT_CONFIG, "true");
+
+      TopicPartitionChannel topicPartitionChannel =
+          new TopicPartitionChannel(
+              mockStreamingClient,
+              topicPartition,
+              TEST_CHANNEL_NAME,
+              TEST_TABLE_NAME,
+              streamingBufferThreshold,
+              sfConnectorConfigWithBatchInsert,
+              mockKafkaRecordErrorReporter,
+              mockSinkTaskContext,
+              conn,
+              new RecordService(),
+              mockTelemetryService);
+
+      // Rows which were accepted are not committed when the channel is reopened
+      Mockito.when(mockStreamingChannel.getLatestCommittedOffsetToken()).thenReturn("4");
+
+      final int noOfRecords = 3;
+      List<SinkRecord> records =
+          TestUtils.createNativeJsonSinkRecords(5, noOfRecords, TOPIC, PARTITION);
+      TopicPartitionChannel.StreamingBuffer streamingBuffer =
+          topicPartitionChannel.new StreamingBuffer();
+      records.forEach(streamingBuffer::insert);
+
+      topicPartitionChannel.insertBufferedRecords(streamingBuffer);
+
+      // Accepted rows were dropped by reopening the channel so kafka sends all rows after the
+      // committed one again
+      Mockito.verify(mockStreamingChannel, Mockito.times(1))
+          .insertRows(
+              ArgumentMatchers.argThat(rows -> ((List<?>) rows).size() == 3),
+              ArgumentMatchers.eq("7"));
+      Mockito.verify(mockStreamingChannel, Mockito.times(1))
+          .insertRows(ArgumentMatchers.any(Iterable.class), ArgumentMatchers.any(String.class));
+      Mockito.verify(mockSinkTaskContext, Mockito.times(1)).offset(topicPartition, 5L);
+    }
+  }
+
+  @Test
+  public void testInsertRows_ReopenChannelAfterTableEvolvedByOtherChannel() throws Exception {
+    if (this.sfConnectorConfig
+        .get(SnowflakeSinkConnectorConfig.ENABLE_SCHEMATIZATION_CONFIG)
+        .equals("true")) {
+      Mockito.when(
+              mockStreamingChannel.insertRow(
+                  ArgumentMatchers.any(), ArgumentMatchers.any(String.class)))
+          .thenReturn(new InsertValidationResponse());
+      Mockito.when(mockStreamingChannel.getLatestCommittedOffsetToken()).thenReturn("1");
+
+      SnowflakeConnectionService conn = Mockito.mock(SnowflakeConnectionService.class);
+      Mockito.when(
+              conn.hasSchemaEvolutionPermission(ArgumentMatchers.any(), ArgumentMatchers.any()))
+          .thenReturn(true);
+      Map<String, Boolean> tableColumns = new HashMap<>();
+      Mockito.when(conn.describeTableColumns(ArgumentMatchers.any()))
+          .thenAnswer(invocation -> tableColumns);
+      Mockito.doAnswer(
+              invocation -> {
+                tableColumns.put("AGE", true);
+                return null;
+              })
+          .when(conn)
+          .appendColumnsToTable(ArgumentMatchers.any(), ArgumentMatchers.any());
+      SchemaEvolutionCoordinator schemaEvolutionCoordinator = new SchemaEvolutionCoordinator(conn);
+
+      TopicPartitionChannel topicPartitionChannel =
+          new TopicPartitionChannel(
+              mockStreamingClient,
+              topicPartition,
+              TEST_CHANNEL_NAME,
+              TEST_TABLE_NAME,
+              streamingBufferThreshold,
+              sfConnectorConfig,
+              mockKafkaRecordErrorReporter,
+              mockSinkTaskContext,
+              conn,
+              new RecordService(),
+              mockTelemetryService,
+              null,
+              1,
+              schemaEvolutionCoordinator);
+
+      List<SinkRecord> records = createNativeJsonSinkRecords(0, 4, TOPIC, PARTITION);
+      TopicPartitionChannel.StreamingBuffer streamingBuffer =
+          topicPartitionChannel.new StreamingBuffer();
+      streamingBuffer.insert(records.get(0));
+      streamingBuffer.insert(records.get(1));
+      topicPartitionChannel.insertBufferedRecords(streamingBuffer);
+      Mockito.verify(mockStreamingClient, Mockito.times(1))
+          .openChannel(ArgumentMatchers.any(OpenChannelRequest.class));
+
+      // Another channel of the task evolves the table
+      schemaEvolutionCoordinator.evolveSchemaIfNeeded(
+          TEST_TABLE_NAME, null, Collections.singletonMap("age", "INT"));
+
+      // Rows inserted before are committed, the channel is reopened once before the next insert
+      for (int i = 2; i < records.size(); i++) {
+        streamingBuffer = topicPartitionChannel.new StreamingBuffer();
+        streamingBuffer.insert(records.get(i));
+        topicPartitionChannel.insertBufferedRecords(streamingBuffer);
+      }
+      Mockito.verify(mockStreamingClient, Mockito.times(2))
+          .openChannel(ArgumentMatchers.any(OpenChannelRequest.class));
+      Mockito.verify(mockStreamingChannel, Mockito.times(records.size()))
+          .insertRow(ArgumentMatchers.any(), ArgumentMatchers.any(String.class));
+      // Kafka offset is only reset when the channel is created
+      Mockito.verify(mockSinkTaskContext, Mockito.times(1))
+          .offset(ArgumentMatchers.any(TopicPartition.class), ArgumentMatchers.anyLong());
+    }
+  }
+
   /* SFExceptions is thrown in first attempt of insert rows. It is also thrown while refetching committed offset from snowflake after reopening the channel */
   @Test(expected = SFException.class)
   public void testInsertRows_GetOffsetTokenFailureAfterReopenChannel() throws Exception {
@@ -710,6 +962,372 @@ public class TopicPartitionChannelTest {
     assert kafkaRecordErrorReporter.getReportedRecords().size() == 1;
   }
 
+  /* Each record is converted once while buffering, insertRows reuses the converted rows. */
+  @Test
+  public void testInsertRows_RecordConvertedOnlyOnce() throws Exception {
+    Mockito.when(
+            mockStreamingChannel.insertRows(
+                ArgumentMatchers.any(Iterable.class), ArgumentMatchers.any(String.class)))
+        .thenReturn(new InsertValidationResponse());
+    Mockito.when(
+            mockStreamingChannel.insertRow(
+                ArgumentMatchers.any(), ArgumentMatchers.any(String.class)))
+        .thenReturn(new InsertValidationResponse());
+
+    RecordService recordService = Mockito.spy(new RecordService());
+    TopicPartitionChannel topicPartitionChannel =
+        new TopicPartitionChannel(
+            mockStreamingClient,
+            topicPartition,
+            TEST_CHANNEL_NAME,
+            TEST_TABLE_NAME,
+            new StreamingBufferThreshold(1000, 10_000_000, 10000),
+            sfConnectorConfig,
+            mockKafkaRecordErrorReporter,
+            mockSinkTaskContext,
+            null,
+            recordService,
+            mockTelemetryService);
+
+    final int noOfRecords = 3;
+    List<SinkRecord> records = createNativeJsonSinkRecords(0, noOfRecords, TOPIC, PARTITION);
+
+    TopicPartitionChannel.StreamingBuffer streamingBuffer =
+        topicPartitionChannel.new StreamingBuffer();
+    records.forEach(streamingBuffer::insert);
+
+    Assert.assertEquals(noOfRecords, streamingBuffer.getData().getKey().size());
+    Assert.assertEquals(2L, streamingBuffer.getData().getValue().get(2).longValue());
+    Assert.assertTrue(streamingBuffer.getBufferSizeBytes() > 0);
+
+    Assert.assertFalse(topicPartitionChannel.insertBufferedRecords(streamingBuffer).hasErrors());
+
+    Mockito.verify(recordService, Mockito.times(noOfRecords))
+        .getProcessedRecordForStreamingIngest(ArgumentMatchers.any(SinkRecord.class));
+  }
+
+  @Test
+  public void testInsertRecordToBuffer_NativeStructValues() throws Exception {
+    TopicPartitionChannel topicPartitionChannel =
+        new TopicPartitionChannel(
+            mockStreamingClient,
+            topicPartition,
+            TEST_CHANNEL_NAME,
+            TEST_TABLE_NAME,
+            new StreamingBufferThreshold(1000, 10_000_000, 10000),
+            sfConnectorConfig,
+            mockKafkaRecordErrorReporter,
+            mockSinkTaskContext);
+
+    Schema schema =
+        SchemaBuilder.struct()
+            .field("id", Schema.INT32_SCHEMA)
+            .field("attributes", SchemaBuilder.map(Schema.STRING_SCHEMA, Schema.INT64_SCHEMA))
+            .field("payload", Schema.BYTES_SCHEMA)
+            .field("tags", SchemaBuilder.array(Schema.STRING_SCHEMA))
+            .build();
+    final byte[] payload = new byte[256];
+    Struct value =
+        new Struct(schema)
+            .put("id", 42)
+            .put("attributes", Collections.singletonMap("count", 7L))
+            .put("payload", payload)
+            .put("tags", Arrays.asList("a", "b"));
+    SinkRecord record =
+        new SinkRecord(TOPIC, PARTITION, Schema.STRING_SCHEMA, "key", schema, value, 0);
+
+    // rows with non string values are sized without failing the task
+    topicPartitionChannel.insertRecordToBuffer(record);
+
+    Mockito.verify(mockKafkaRecordErrorReporter, Mockito.never())
+        .reportError(ArgumentMatchers.any(), ArgumentMatchers.any());
+    Assert.assertEquals(1, topicPartitionChannel.getStreamingBuffer().getNumOfRecords());
+    Assert.assertTrue(topicPartitionChannel.getBufferSizeBytes() > payload.length);
+  }
+
+  @Test
+  public void testInsertRows_PipelinedInsertInOffsetOrder() throws Exception {
+    final List<String> insertedOffsetTokens = Collections.synchronizedList(new ArrayList<>());
+    Mockito.when(
+            mockStreamingChannel.insertRows(
+                ArgumentMatchers.any(Iterable.class), ArgumentMatchers.any(String.class)))
+        .thenAnswer(
+            invocation -> {
+              insertedOffsetTokens.add(invocation.getArgument(1));
+              return new InsertValidationResponse();
+            });
+
+    ExecutorService insertRowsExecutor = Executors.newSingleThreadExecutor();
+    TopicPartitionChannel topicPartitionChannel =
+        new TopicPartitionChannel(
+            mockStreamingClient,
+            topicPartition,
+            TEST_CHANNEL_NAME,
+            TEST_TABLE_NAME,
+            streamingBufferThreshold,
+            sfConnectorConfig,
+            mockKafkaRecordErrorReporter,
+            mockSinkTaskContext,
+            null,
+            new RecordService(),
+            mockTelemetryService,
+            insertRowsExecutor,
+            2,
+            null);
+
+    // Count threshold is 1, every record is handed over to the executor
+    final int noOfRecords = 5;
+    List<SinkRecord> records = createNativeJsonSinkRecords(0, noOfRecords, TOPIC, PARTITION);
+    records.forEach(topicPartitionChannel::insertRecordToBuffer);
+
+    insertRowsExecutor.shutdown();
+    Assert.assertTrue(insertRowsExecutor.awaitTermination(30, TimeUnit.SECONDS));
+
+    Assert.assertEquals(Arrays.asList("0", "1", "2", "3", "4"), insertedOffsetTokens);
+    Assert.assertEquals(0, topicPartitionChannel.getInFlightBufferCount());
+    Assert.assertTrue(topicPartitionChannel.isPartitionBufferEmpty());
+  }
+
+  @Test
+  public void testInsertRows_PipelinedFlushTimeUpdatedOnHandOver() throws Exception {
+    final CountDownLatch insertRowsLatch = new CountDownLatch(1);
+    Mockito.when(
+            mockStreamingChannel.insertRows(
+                ArgumentMatchers.any(Iterable.class), ArgumentMatchers.any(String.class)))
+        .thenAnswer(
+            invocation -> {
+              insertRowsLatch.await();
+              return new InsertValidationResponse();
+            });
+
+    final long bufferFlushTimeSeconds = 1L;
+    ExecutorService insertRowsExecutor = Executors.newSingleThreadExecutor();
+    TopicPartitionChannel topicPartitionChannel =
+        new TopicPartitionChannel(
+            mockStreamingClient,
+            topicPartition,
+            TEST_CHANNEL_NAME,
+            TEST_TABLE_NAME,
+            new StreamingBufferThreshold(bufferFlushTimeSeconds, 10_000, 100),
+            sfConnectorConfig,
+            mockKafkaRecordErrorReporter,
+            mockSinkTaskContext,
+            null,
+            new RecordService(),
+            mockTelemetryService,
+            insertRowsExecutor,
+            2,
+            null);
+
+    List<SinkRecord> records = createNativeJsonSinkRecords(0, 2, TOPIC, PARTITION);
+    topicPartitionChannel.insertRecordToBuffer(records.get(0));
+    Thread.sleep(bufferFlushTimeSeconds * 1000 + 10);
+    final long handOverTimeMs = System.currentTimeMillis();
+    topicPartitionChannel.insertBufferedRecordsIfFlushTimeThresholdReached();
+
+    // Flush time is updated although the buffer is still being inserted
+    Assert.assertTrue(topicPartitionChannel.getPreviousFlushTimeStampMs() >= handOverTimeMs);
+    Assert.assertEquals(1, topicPartitionChannel.getInFlightBufferCount());
+
+    // Next record is not swapped out until the flush time threshold is reached again
+    topicPartitionChannel.insertRecordToBuffer(records.get(1));
+    topicPartitionChannel.insertBufferedRecordsIfFlushTimeThresholdReached();
+    Assert.assertEquals(1, topicPartitionChannel.getInFlightBufferCount());
+    Assert.assertFalse(topicPartitionChannel.isPartitionBufferEmpty());
+
+    insertRowsLatch.countDown();
+    insertRowsExecutor.shutdown();
+    Assert.assertTrue(insertRowsExecutor.awaitTermination(30, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testInsertRows_PipelinedFailureCheckedBeforeEachRecord() throws Exception {
+    final CountDownLatch insertRowsLatch = new CountDownLatch(1);
+    Mockito.when(
+            mockStreamingChannel.insertRows(
+                ArgumentMatchers.any(Iterable.class), ArgumentMatchers.any(String.class)))
+        .thenAnswer(
+            invocation -> {
+              insertRowsLatch.await();
+              throw new IllegalStateException("insertRows failed");
+            });
+
+    ExecutorService insertRowsExecutor = Executors.newSingleThreadExecutor();
+    TopicPartitionChannel topicPartitionChannel =
+        new TopicPartitionChannel(
+            mockStreamingClient,
+            topicPartition,
+            TEST_CHANNEL_NAME,
+            TEST_TABLE_NAME,
+            new StreamingBufferThreshold(10, 10_000, 2),
+            sfConnectorConfig,
+            mockKafkaRecordErrorReporter,
+            mockSinkTaskContext,
+            null,
+            new RecordService(),
+            mockTelemetryService,
+            insertRowsExecutor,
+            2,
+            null);
+
+    // The first buffer fails in background while the third record of the batch is being read
+    final List<Integer> readIndexes = Collections.synchronizedList(new ArrayList<>());
+    List<SinkRecord> records =
+        new ArrayList<SinkRecord>(createNativeJsonSinkRecords(0, 4, TOPIC, PARTITION)) {
+          @Override
+          public SinkRecord get(int index) {
+            readIndexes.add(index);
+            if (index == 2) {
+              insertRowsLatch.countDown();
+              while (topicPartitionChannel.getInFlightBufferCount() > 0) {
+                Thread.yield();
+              }
+            }
+            return super.get(index);
+          }
+        };
+
+    try {
+      topicPartitionChannel.insertRecordsToBuffer(records);
+      Assert.fail("Failure of the in flight buffer should be rethrown");
+    } catch (IllegalStateException ex) {
+      Assert.assertEquals("insertRows failed", ex.getMessage());
+    }
+    // The fourth record is not buffered after the failure
+    Assert.assertEquals(Arrays.asList(0, 1, 2), readIndexes);
+
+    insertRowsExecutor.shutdown();
+    Assert.assertTrue(insertRowsExecutor.awaitTermination(30, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testInsertRows_FlushWhileInsertingInOffsetOrder() throws Exception {
+    final List<Long> insertedOffsets = Collections.synchronizedList(new ArrayList<>());
+    final List<Integer> insertedRowCounts = Collections.synchronizedList(new ArrayList<>());
+    Mockito.when(
+            mockStreamingChannel.insertRows(
+                ArgumentMatchers.any(Iterable.class), ArgumentMatchers.any(String.class)))
+        .thenAnswer(
+            invocation -> {
+              int rowCount = 0;
+              for (Object row : (Iterable<?>) invocation.getArgument(0)) {
+                rowCount++;
+              }
+              insertedRowCounts.add(rowCount);
+              insertedOffsets.add(Long.parseLong(invocation.getArgument(1)));
+              return new InsertValidationResponse();
+            });
+
+    TopicPartitionChannel topicPartitionChannel =
+        new TopicPartitionChannel(
+            mockStreamingClient,
+            topicPartition,
+            TEST_CHANNEL_NAME,
+            TEST_TABLE_NAME,
+            new StreamingBufferThreshold(10, 10_000_000, 50),
+            sfConnectorConfig,
+            mockKafkaRecordErrorReporter,
+            mockSinkTaskContext);
+
+    // Records are added on another thread while the buffer is flushed, e.g. by the memory budget
+    final int noOfRecords = 1000;
+    List<SinkRecord> records = createNativeJsonSinkRecords(0, noOfRecords, TOPIC, PARTITION);
+    ExecutorService insertExecutor = Executors.newSingleThreadExecutor();
+    CompletableFuture<Void> insertFuture =
+        CompletableFuture.runAsync(
+            () -> records.forEach(topicPartitionChannel::insertRecordToBuffer), insertExecutor);
+    while (!insertFuture.isDone()) {
+      topicPartitionChannel.flushBufferedRecords();
+    }
+    insertFuture.get();
+    insertExecutor.shutdown();
+    topicPartitionChannel.flushBufferedRecords();
+
+    // Every record is inserted once, buffers are inserted in offset order
+    Assert.assertEquals(noOfRecords, insertedRowCounts.stream().mapToInt(Integer::intValue).sum());
+    for (int i = 1; i < insertedOffsets.size(); i++) {
+      Assert.assertTrue(insertedOffsets.get(i - 1) < insertedOffsets.get(i));
+    }
+    Assert.assertEquals(noOfRecords - 1, (long) insertedOffsets.get(insertedOffsets.size() - 1));
+    Assert.assertTrue(topicPartitionChannel.isPartitionBufferEmpty());
+  }
+
+  @Test
+  public void testGetOffsetSafeToCommitToKafka_CommittedOffsetPolling() throws Exception {
+    Mockito.when(mockStreamingChannel.getLatestCommittedOffsetToken())
+        .thenReturn("10")
+        .thenReturn("20");
+    this.sfConnectorConfig.put(
+        SnowflakeSinkConnectorConfig.STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG, "60000");
+
+    TopicPartitionChannel topicPartitionChannel =
+        new TopicPartitionChannel(
+            mockStreamingClient,
+            topicPartition,
+            TEST_CHANNEL_NAME,
+            TEST_TABLE_NAME,
+            streamingBufferThreshold,
+            sfConnectorConfig,
+            mockKafkaRecordErrorReporter,
+            mockSinkTaskContext);
+
+    // Offset token fetched while opening the channel is cached
+    Assert.assertEquals(11L, topicPartitionChannel.getOffsetSafeToCommitToKafka());
+    Assert.assertTrue(topicPartitionChannel.getCommittedOffsetStalenessMs() >= 0);
+    Mockito.verify(mockStreamingChannel, Mockito.times(1)).getLatestCommittedOffsetToken();
+
+    topicPartitionChannel.refreshCommittedOffsetToken();
+    Assert.assertEquals(21L, topicPartitionChannel.getOffsetSafeToCommitToKafka());
+    Mockito.verify(mockStreamingChannel, Mockito.times(2)).getLatestCommittedOffsetToken();
+
+    // Poller doesn't fetch the offset token once the channel is closed
+    Mockito.when(mockStreamingChannel.close()).thenReturn(CompletableFuture.completedFuture(null));
+    topicPartitionChannel.closeChannel();
+    topicPartitionChannel.refreshCommittedOffsetToken();
+    Mockito.verify(mockStreamingChannel, Mockito.times(2)).getLatestCommittedOffsetToken();
+  }
+
+  @Test
+  public void testRefreshCommittedOffsetToken_RecoverChannelOnTaskThread() throws Exception {
+    Mockito.when(mockStreamingChannel.getLatestCommittedOffsetToken())
+        .thenReturn("10")
+        .thenThrow(SF_EXCEPTION)
+        .thenThrow(SF_EXCEPTION)
+        .thenThrow(SF_EXCEPTION)
+        .thenThrow(SF_EXCEPTION)
+        .thenThrow(SF_EXCEPTION)
+        .thenThrow(SF_EXCEPTION)
+        .thenReturn("15");
+    this.sfConnectorConfig.put(
+        SnowflakeSinkConnectorConfig.STREAMING_COMMITTED_OFFSET_POLL_INTERVAL_MS_CONFIG, "60000");
+
+    TopicPartitionChannel topicPartitionChannel =
+        new TopicPartitionChannel(
+            mockStreamingClient,
+            topicPartition,
+            TEST_CHANNEL_NAME,
+            TEST_TABLE_NAME,
+            streamingBufferThreshold,
+            sfConnectorConfig,
+            mockKafkaRecordErrorReporter,
+            mockSinkTaskContext);
+    Mockito.verify(mockSinkTaskContext, Mockito.times(1)).offset(topicPartition, 11L);
+
+    // Poller gives up after retries without reopening the channel or resetting the offset
+    topicPartitionChannel.refreshCommittedOffsetToken();
+    Mockito.verify(mockStreamingChannel, Mockito.times(1 + MAX_GET_OFFSET_TOKEN_RETRIES))
+        .getLatestCommittedOffsetToken();
+    Mockito.verify(mockStreamingClient, Mockito.times(1))
+        .openChannel(ArgumentMatchers.any(OpenChannelRequest.class));
+
+    // Task thread reopens the channel and resets the offset in kafka
+    topicPartitionChannel.insertBufferedRecordsIfFlushTimeThresholdReached();
+    Mockito.verify(mockStreamingClient, Mockito.times(2))
+        .openChannel(ArgumentMatchers.any(OpenChannelRequest.class));
+    Mockito.verify(mockSinkTaskContext, Mockito.times(1)).offset(topicPartition, 16L);
+    Assert.assertEquals(16L, topicPartitionChannel.getOffsetSafeToCommitToKafka());
+  }
+
   // --------------- TEST THRESHOLDS ---------------
   @Test
   public void testBufferBytesThreshold() throws Exception {
@@ -18,6 +18,7 @@ package com.snowflake.kafka.connector.records;
 
 import static com.snowflake.kafka.connector.records.RecordService.ISO_DATE_TIME_FORMAT;
 
+import com.snowflake.kafka.connector.Utils;
 import com.snowflake.kafka.connector.internal.SnowflakeKafkaConnectorException;
 import com.snowflake.kafka.connector.mock.MockSchemaRegistryClient;
 import io.confluent.connect.avro.AvroConverter;
@@ -28,6 +29,7 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -60,9 +62,12 @@ import org.apache.kafka.connect.data.SchemaAndValue;
 import org.apache.kafka.connect.data.SchemaBuilder;
 import org.apache.kafka.connect.data.Struct;
 import org.apache.kafka.connect.json.JsonConverter;
+import org.apache.kafka.connect.sink.SinkRecord;
 import org.apache.kafka.connect.storage.SimpleHeaderConverter;
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
 
 public class ConverterTest {
 
@@ -109,6 +114,58 @@ public class ConverterTest {
     assert ((SnowflakeRecordContent) sv.value()).getData()[0].toString().equals("{}");
   }
 
+  @Test
+  public void testJsonConverterRawPassthrough() throws IOException {
+    SnowflakeJsonConverter converter = new SnowflakeJsonConverter();
+    converter.configure(
+        Collections.singletonMap(SnowflakeJsonConverter.RAW_JSON_PASSTHROUGH, "true"), false);
+    assert converter.getRawJsonPassthrough();
+
+    String json = "{\"str\": \"test\", \"num\": 123, \"arr\": [1, {\"a\": null}]}";
+    SchemaAndValue sv = converter.toConnectData("test", json.getBytes(StandardCharsets.UTF_8));
+    SnowflakeRecordContent content = (SnowflakeRecordContent) sv.value();
+    assert !content.isBroken();
+    // original Json is kept as is
+    assert content.hasRawJson();
+    assert content.getRawJson().equals(json);
+    // tree is still available, e.g. for schematization
+    assert content.getData()[0].equals(mapper.readTree(json));
+
+    RecordService service = new RecordService();
+    SinkRecord record = new SinkRecord(TEST_TOPIC, 0, null, null, sv.schema(), sv.value(), 10);
+    SinkRecord parsedRecord =
+        new SinkRecord(
+            TEST_TOPIC,
+            0,
+            null,
+            null,
+            sv.schema(),
+            new SnowflakeRecordContent(mapper.readTree(json)),
+            10);
+    assert mapper
+        .readTree(service.getProcessedRecordForSnowpipe(record))
+        .equals(mapper.readTree(service.getProcessedRecordForSnowpipe(parsedRecord)));
+    assert service
+        .getProcessedRecordForStreamingIngest(record)
+        .get(Utils.TABLE_COLUMN_CONTENT)
+        .equals(json);
+
+    // invalid or trailing content is not passed through
+    for (String invalid : Arrays.asList("{\"str\": ", "{} {}", "[1, 2]]", "")) {
+      sv = converter.toConnectData("test", invalid.getBytes(StandardCharsets.UTF_8));
+      assert !((SnowflakeRecordContent) sv.value()).hasRawJson();
+    }
+
+    // broken record
+    sv = converter.toConnectData("test", "{\"str\": ".getBytes(StandardCharsets.UTF_8));
+    assert ((SnowflakeRecordContent) sv.value()).isBroken();
+
+    // passthrough is disabled by default
+    converter = new SnowflakeJsonConverter();
+    sv = converter.toConnectData("test", json.getBytes(StandardCharsets.UTF_8));
+    assert !((SnowflakeRecordContent) sv.value()).hasRawJson();
+  }
+
   @Test
   public void testAvroConverter() throws IOException {
     // todo: test schema registry
@@ -153,6 +210,24 @@ public class ConverterTest {
     assert ((SnowflakeRecordContent) input.value()).getData()[0].toString().equals("{}");
   }
 
+  @Test
+  public void testAvroWithSchemaRegistryCachedDatumReader() throws Exception {
+    MockSchemaRegistryClient client = Mockito.spy(new MockSchemaRegistryClient());
+    SnowflakeAvroConverter converter = new SnowflakeAvroConverter();
+    converter.setSchemaRegistry(client);
+
+    for (int i = 0; i < 3; i++) {
+      SchemaAndValue input = converter.toConnectData("test", client.getData());
+      SnowflakeRecordContent content = (SnowflakeRecordContent) input.value();
+      assert content.getData().length == 1;
+      assert content.getData()[0].toString().equals("{\"int\":1234}");
+    }
+
+    // writer schema is fetched and resolved once
+    assert converter.getCachedDatumReaderCount() == 1;
+    Mockito.verify(client, Mockito.times(1)).getById(ArgumentMatchers.anyInt());
+  }
+
   @Test
   public void testAvroWithSchemaRegistryAndReaderSchema() throws IOException {
     MockSchemaRegistryClient client = new MockSchemaRegistryClient();
@@ -249,6 +324,79 @@ public class ConverterTest {
     assert content.getData()[0].toString().equals("{\"bytesDecimal\":90.0}");
   }
 
+  @Test
+  public void testAvroJsonNodeEncoderMatchesToString() throws IOException {
+    org.apache.avro.Schema enumType =
+        org.apache.avro.SchemaBuilder.enumeration("color").symbols("RED", "GREEN");
+    org.apache.avro.Schema fixedType = org.apache.avro.SchemaBuilder.fixed("hash").size(2);
+    org.apache.avro.Schema nestedType =
+        org.apache.avro.SchemaBuilder.record("nested").fields().requiredInt("id").endRecord();
+    org.apache.avro.Schema schema =
+        org.apache.avro.SchemaBuilder.record("MyRecord")
+            .fields()
+            .requiredString("name")
+            .requiredLong("bigLong")
+            .requiredLong("smallLong")
+            .requiredFloat("float")
+            .requiredDouble("nan")
+            .requiredBoolean("bool")
+            .requiredBytes("bytes")
+            .optionalString("union")
+            .name("enum")
+            .type(enumType)
+            .noDefault()
+            .name("fixed")
+            .type(fixedType)
+            .noDefault()
+            .name("nested")
+            .type(nestedType)
+            .noDefault()
+            .name("array")
+            .type()
+            .array()
+            .items()
+            .doubleType()
+            .noDefault()
+            .name("map")
+            .type()
+            .map()
+            .values()
+            .stringType()
+            .noDefault()
+            .endRecord();
+
+    Map<String, String> map = new HashMap<>();
+    map.put("key", "value \"quoted\" / \u0001");
+    GenericRecord avroRecord = new GenericData.Record(schema);
+    avroRecord.put("name", "sf\n\t\\");
+    avroRecord.put("bigLong", Long.MAX_VALUE);
+    avroRecord.put("smallLong", 1L);
+    avroRecord.put("float", 0.1f);
+    avroRecord.put("nan", Double.NaN);
+    avroRecord.put("bool", true);
+    avroRecord.put("bytes", ByteBuffer.wrap(new byte[] {0, 65, (byte) 200}));
+    avroRecord.put("union", null);
+    avroRecord.put("enum", new GenericData.EnumSymbol(enumType, "GREEN"));
+    avroRecord.put("fixed", new GenericData.Fixed(fixedType, new byte[] {1, -2}));
+    GenericRecord nested = new GenericData.Record(nestedType);
+    nested.put("id", 7);
+    avroRecord.put("nested", nested);
+    avroRecord.put("array", Arrays.asList(1.5, 2.0));
+    avroRecord.put("map", map);
+
+    JsonNode expected = mapper.readTree(avroRecord.toString());
+    JsonNode got = AvroJsonNodeEncoder.encode(avroRecord, mapper);
+    Assert.assertEquals(expected, got);
+    Assert.assertEquals(expected.toString(), got.toString());
+
+    Assert.assertEquals(
+        mapper.readTree(new BigDecimal("12.3400").toString()),
+        AvroJsonNodeEncoder.encode(new BigDecimal("12.3400"), mapper));
+    Assert.assertEquals(
+        mapper.readTree(new BigDecimal("123456789012345678901234").toString()),
+        AvroJsonNodeEncoder.encode(new BigDecimal("123456789012345678901234"), mapper));
+  }
+
   @Test
   public void testBrokenRecord() throws IOException {
     byte[] data = "fasfas".getBytes(StandardCharsets.UTF_8);
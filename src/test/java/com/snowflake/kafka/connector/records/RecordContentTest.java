@@ -1,19 +1,23 @@
 package com.snowflake.kafka.connector.records;
 
+import com.snowflake.kafka.connector.Utils;
 import com.snowflake.kafka.connector.internal.SnowflakeErrors;
 import com.snowflake.kafka.connector.internal.SnowflakeKafkaConnectorException;
 import com.snowflake.kafka.connector.internal.TestUtils;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import net.snowflake.client.jdbc.internal.fasterxml.jackson.core.JsonProcessingException;
 import net.snowflake.client.jdbc.internal.fasterxml.jackson.core.type.TypeReference;
 import net.snowflake.client.jdbc.internal.fasterxml.jackson.databind.JsonNode;
 import net.snowflake.client.jdbc.internal.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.connect.data.Decimal;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaAndValue;
 import org.apache.kafka.connect.data.SchemaBuilder;
@@ -273,4 +277,78 @@ public class RecordContentTest {
     assert got.containsKey("\"NaMe\"");
     assert got.containsKey("AnSwEr");
   }
+
+  @Test
+  public void testSchematizationNativeStruct() throws JsonProcessingException {
+    RecordService service = new RecordService();
+    service.setEnableSchematization(true);
+
+    Schema nestedSchema = SchemaBuilder.struct().field("city", Schema.STRING_SCHEMA).build();
+    Schema schema =
+        SchemaBuilder.struct()
+            .field("name", Schema.STRING_SCHEMA)
+            .field("answer", Schema.INT32_SCHEMA)
+            .field("price", Decimal.schema(2))
+            .field("tags", SchemaBuilder.array(Schema.STRING_SCHEMA).build())
+            .field("address", nestedSchema)
+            .field("comment", Schema.OPTIONAL_STRING_SCHEMA)
+            .build();
+    Struct value =
+        new Struct(schema)
+            .put("name", "sf")
+            .put("answer", 42)
+            .put("price", new BigDecimal("12.34"))
+            .put("tags", Arrays.asList("a", "b"))
+            .put("address", new Struct(nestedSchema).put("city", "San Mateo"));
+
+    SinkRecord record =
+        new SinkRecord(topic, partition, Schema.STRING_SCHEMA, "string", schema, value, partition);
+
+    Map<String, Object> got = service.getProcessedRecordForStreamingIngest(record);
+    // values are given to the Streaming Ingest SDK as java objects instead of strings
+    assert got.get("name").equals("sf");
+    assert got.get("answer").equals(42);
+    assert got.get("price").equals(new BigDecimal("12.34"));
+    assert got.get("tags").equals(Arrays.asList("a", "b"));
+    assert got.get("address").equals(Collections.singletonMap("city", "San Mateo"));
+    assert got.containsKey("comment") && got.get("comment") == null;
+    assert got.get(Utils.TABLE_COLUMN_METADATA) instanceof String;
+  }
+
+  @Test
+  public void testSchematizationNativeMap() throws JsonProcessingException {
+    RecordService service = new RecordService();
+    service.setEnableSchematization(true);
+
+    Map<String, Object> value = new HashMap<>();
+    value.put("name", "sf");
+    value.put("answer", 42L);
+    value.put("nested", Collections.singletonMap(1, "one"));
+
+    SinkRecord record =
+        new SinkRecord(topic, partition, Schema.STRING_SCHEMA, "string", null, value, partition);
+
+    Map<String, Object> got = service.getProcessedRecordForStreamingIngest(record);
+    assert got.get("name").equals("sf");
+    assert got.get("answer").equals(42L);
+    // maps with non string keys become a list of key value pairs
+    assert got.get("nested").equals(Collections.singletonList(Arrays.asList(1, "one")));
+  }
+
+  @Test(expected = SnowflakeKafkaConnectorException.class)
+  public void testSchematizationNativeEmptyMap() throws JsonProcessingException {
+    RecordService service = new RecordService();
+    service.setEnableSchematization(true);
+
+    SinkRecord record =
+        new SinkRecord(
+            topic,
+            partition,
+            Schema.STRING_SCHEMA,
+            "string",
+            null,
+            Collections.emptyMap(),
+            partition);
+    service.getProcessedRecordForStreamingIngest(record);
+  }
 }